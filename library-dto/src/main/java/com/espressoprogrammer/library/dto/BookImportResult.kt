@@ -0,0 +1,5 @@
+package com.espressoprogrammer.library.dto
+
+data class BookImportResult(val index: Int? = null,
+                            val uuid: String? = null,
+                            val error: String? = null)
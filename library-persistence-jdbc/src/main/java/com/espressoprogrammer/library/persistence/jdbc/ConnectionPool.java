@@ -0,0 +1,84 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of {@link PooledConnection}s.
+ * <p>
+ * Connections are opened on demand up to the pool size and reused most recently released first, so an idle
+ * pool keeps warm the few connections it actually needs. A connection that failed is closed instead of
+ * returned, as its state is unknown.
+ */
+final class ConnectionPool implements AutoCloseable {
+
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int statementCacheSize;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    ConnectionPool(ConnectionFactory connectionFactory, int size, int statementCacheSize, long timeoutMillis) {
+        this.connectionFactory = connectionFactory;
+        this.statementCacheSize = statementCacheSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size, true);
+    }
+
+    PooledConnection acquire() throws SQLException {
+        if(closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if(!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No connection available within " + timeoutMillis + " ms");
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        }
+
+        try {
+            PooledConnection connection = idleConnections.pollFirst();
+            return connection != null
+                ? connection
+                : new PooledConnection(connectionFactory.open(), statementCacheSize);
+        } catch(SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    void release(PooledConnection connection, boolean broken) {
+        if(broken || closed) {
+            connection.close();
+        } else {
+            connection.closeEvictedStatements();
+            idleConnections.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+}
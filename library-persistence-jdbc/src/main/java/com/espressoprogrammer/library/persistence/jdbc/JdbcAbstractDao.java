@@ -0,0 +1,387 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.ItemIds;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.codec.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Items of one type kept in one table, with the JSON of the item next to the columns it is looked up by.
+ * <p>
+ * Every create, update and delete also increments the version of the user items in <code>item_versions</code>,
+ * in the same transaction, and stamps the item with it. Statements are prepared once per pooled connection.
+ */
+abstract class JdbcAbstractDao<T> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int FETCH_SIZE = 100;
+    private static final String INTEGRITY_VIOLATION = "23";
+
+    private static final String INCREMENT_VERSION =
+        "update item_versions set version = version + 1, last_modified = ? where user_name = ? and items = ?";
+    private static final String INSERT_VERSION =
+        "insert into item_versions (user_name, items, version, last_modified) values (?, ?, 1, ?)";
+    private static final String SELECT_VERSION =
+        "select version, last_modified from item_versions where user_name = ? and items = ?";
+
+    private final JsonCodec<T> codec = JsonCodec.forType(getItemType());
+    private final String selectItems;
+    private final String selectItem;
+    private final String selectItemVersion;
+    private final String insertItem;
+    private final String updateItem;
+    private final String updateItemVersion;
+    private final String deleteItem;
+
+    @Autowired
+    JdbcStorage jdbcStorage;
+
+    @Value(value = "${filesystem.dao.ids.timeordered:false}")
+    boolean timeOrderedIds;
+
+    JdbcAbstractDao() {
+        String table = getTableName();
+        List<String> columns = getIndexColumns();
+        selectItems = "select uuid, item from " + table + " where user_name = ?";
+        selectItem = "select item from " + table + " where user_name = ? and uuid = ?";
+        selectItemVersion = "select version, last_modified from " + table + " where user_name = ? and uuid = ?";
+        insertItem = "insert into " + table + " (user_name, uuid, "
+            + columns.stream().map(c -> c + ", ").collect(joining())
+            + "item, version, last_modified) values (?, ?, "
+            + columns.stream().map(c -> "?, ").collect(joining())
+            + "?, ?, ?)";
+        updateItem = "update " + table + " set "
+            + columns.stream().map(c -> c + " = ?, ").collect(joining())
+            + "item = ?, last_modified = ? where user_name = ? and uuid = ?";
+        updateItemVersion = "update " + table + " set version = ? where user_name = ? and uuid = ?";
+        deleteItem = "delete from " + table + " where user_name = ? and uuid = ?";
+    }
+
+    List<T> getUserItems(String user, Predicate<T> filter) {
+        try(Stream<T> items = streamUserItems(user, filter)) {
+            return items.collect(toList());
+        }
+    }
+
+    Stream<T> streamUserItems(String user, Predicate<T> filter) {
+        logger.debug("Look for item for user {}", user);
+
+        return jdbcStorage.stream(c -> {
+                PreparedStatement statement = c.prepare(selectItems + " order by uuid");
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setString(1, user);
+                return statement.executeQuery();
+            },
+            this::readItem)
+            .filter(filter);
+    }
+
+    /**
+     * Reads the items with the index column value, using the index of the column.
+     */
+    List<T> getUserItemsByIndex(String user, String column, String value) {
+        try(Stream<T> items = streamUserItemsByIndex(user, column, value)) {
+            return items.collect(toList());
+        }
+    }
+
+    Stream<T> streamUserItemsByIndex(String user, String column, String value) {
+        logger.debug("Look for item for user {} with {} {}", user, column, value);
+
+        return jdbcStorage.stream(c -> {
+                PreparedStatement statement = c.prepare(selectItems + " and " + column + " = ? order by uuid");
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setString(1, user);
+                statement.setString(2, value);
+                return statement.executeQuery();
+            },
+            this::readItem);
+    }
+
+    /**
+     * Reads one page of items in uuid order, or reverse uuid order, starting after the cursor, optionally
+     * restricted to an index column value, reading only the rows the page needs.
+     */
+    Page<T> getUserItems(String user, String column, String value, PageRequest pageRequest, Predicate<T> filter) {
+        logger.debug("Look for item for user {} with {}", user, pageRequest);
+
+        String indexCondition = column != null ? " and " + column + " = ?" : "";
+        String cursorCondition = pageRequest.getCursor() != null
+            ? (pageRequest.isDescending() ? " and uuid < ?" : " and uuid > ?")
+            : "";
+        String order = pageRequest.isDescending() ? " order by uuid desc" : " order by uuid";
+        return jdbcStorage.execute(c -> {
+            PreparedStatement statement = c.prepare(selectItems + indexCondition + cursorCondition + order);
+            statement.setFetchSize(Math.min(pageRequest.getLimit() + 1, FETCH_SIZE));
+            int parameter = 1;
+            statement.setString(parameter++, user);
+            if(column != null) {
+                statement.setString(parameter++, value);
+            }
+            if(pageRequest.getCursor() != null) {
+                statement.setString(parameter, pageRequest.getCursor());
+            }
+
+            List<T> items = new ArrayList<>();
+            String lastUuid = null;
+            boolean hasNext;
+            try(ResultSet resultSet = statement.executeQuery()) {
+                while((hasNext = resultSet.next()) && items.size() < pageRequest.getLimit()) {
+                    lastUuid = resultSet.getString(1);
+                    T item = decode(resultSet.getString(2));
+                    if(filter.test(item)) {
+                        items.add(item);
+                    }
+                }
+            }
+
+            Long totalCount = pageRequest.isTotalCount() ? count(c, user, column, value, filter) : null;
+            return new Page<>(items, hasNext ? lastUuid : null, totalCount);
+        });
+    }
+
+    T createUserItem(String user, T item) {
+        return createUserItems(user, Collections.singletonList(item)).get(0);
+    }
+
+    /**
+     * Creates the items with one batched insert in one transaction.
+     */
+    List<T> createUserItems(String user, List<T> items) {
+        logger.debug("Add {} new items for user {}", items.size(), user);
+
+        if(items.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<T> persistedItems = new ArrayList<>(items.size());
+        for(T item : items) {
+            persistedItems.add(createItem(ItemIds.newId(timeOrderedIds), item));
+        }
+        return jdbcStorage.transaction(c -> {
+            long time = System.currentTimeMillis();
+            long version = incrementVersion(c, user, time);
+            PreparedStatement statement = c.prepare(insertItem);
+            for(T item : persistedItems) {
+                int parameter = 1;
+                statement.setString(parameter++, user);
+                statement.setString(parameter++, getUuid(item));
+                for(String indexValue : getIndexValues(item)) {
+                    statement.setString(parameter++, indexValue);
+                }
+                statement.setString(parameter++, encode(item));
+                statement.setLong(parameter++, version);
+                statement.setLong(parameter, time);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return persistedItems;
+        });
+    }
+
+    Optional<T> getUserItem(String user, String uuid) {
+        logger.debug("Look for item for user {} with uuid {}", user, uuid);
+
+        return jdbcStorage.execute(c -> {
+            PreparedStatement statement = c.prepare(selectItem);
+            statement.setString(1, user);
+            statement.setString(2, uuid);
+            try(ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(decode(resultSet.getString(1))) : Optional.empty();
+            }
+        });
+    }
+
+    Optional<String> updateUserItem(String user, String uuid, T item) {
+        logger.debug("Update item for user {} with uuid {}", user, uuid);
+
+        T persistedItem = createItem(uuid, item);
+        return jdbcStorage.transaction(c -> {
+            long time = System.currentTimeMillis();
+            PreparedStatement statement = c.prepare(updateItem);
+            int parameter = 1;
+            for(String indexValue : getIndexValues(persistedItem)) {
+                statement.setString(parameter++, indexValue);
+            }
+            statement.setString(parameter++, encode(persistedItem));
+            statement.setLong(parameter++, time);
+            statement.setString(parameter++, user);
+            statement.setString(parameter, uuid);
+            if(statement.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+
+            PreparedStatement versionStatement = c.prepare(updateItemVersion);
+            versionStatement.setLong(1, incrementVersion(c, user, time));
+            versionStatement.setString(2, user);
+            versionStatement.setString(3, uuid);
+            versionStatement.executeUpdate();
+            return Optional.of(uuid);
+        });
+    }
+
+    Optional<String> deleteUserItem(String user, String uuid) {
+        logger.debug("Delete item for user {} with uuid {}", user, uuid);
+
+        return jdbcStorage.transaction(c -> {
+            PreparedStatement statement = c.prepare(deleteItem);
+            statement.setString(1, user);
+            statement.setString(2, uuid);
+            if(statement.executeUpdate() == 0) {
+                return Optional.empty();
+            }
+
+            incrementVersion(c, user, System.currentTimeMillis());
+            return Optional.of(uuid);
+        });
+    }
+
+    DataVersion getUserItemsVersion(String user) {
+        return jdbcStorage.execute(c -> {
+            PreparedStatement statement = c.prepare(SELECT_VERSION);
+            statement.setString(1, user);
+            statement.setString(2, getItemsName());
+            return readVersion(statement).orElse(new DataVersion("0", 0));
+        });
+    }
+
+    Optional<DataVersion> getUserItemVersion(String user, String uuid) {
+        return jdbcStorage.execute(c -> {
+            PreparedStatement statement = c.prepare(selectItemVersion);
+            statement.setString(1, user);
+            statement.setString(2, uuid);
+            return readVersion(statement);
+        });
+    }
+
+    protected abstract String getTableName();
+
+    protected abstract String getItemsName();
+
+    /**
+     * Indexed columns holding values of the item, in the order of {@link #getIndexValues(Object)}.
+     */
+    protected List<String> getIndexColumns() {
+        return Collections.emptyList();
+    }
+
+    protected List<String> getIndexValues(T item) {
+        return Collections.emptyList();
+    }
+
+    protected abstract String getUuid(T item);
+
+    protected abstract T createItem(String uuid, T item);
+
+    /**
+     * Increments the version of the user items, creating it the first time, and returns the new version.
+     */
+    private long incrementVersion(PooledConnection c, String user, long time) throws SQLException {
+        PreparedStatement increment = c.prepare(INCREMENT_VERSION);
+        increment.setLong(1, time);
+        increment.setString(2, user);
+        increment.setString(3, getItemsName());
+        if(increment.executeUpdate() == 0) {
+            try {
+                PreparedStatement insert = c.prepare(INSERT_VERSION);
+                insert.setString(1, user);
+                insert.setString(2, getItemsName());
+                insert.setLong(3, time);
+                insert.executeUpdate();
+                return 1;
+            } catch(SQLException ex) {
+                if(ex.getSQLState() == null || !ex.getSQLState().startsWith(INTEGRITY_VIOLATION)) {
+                    throw ex;
+                }
+                increment.executeUpdate();
+            }
+        }
+
+        PreparedStatement select = c.prepare(SELECT_VERSION);
+        select.setString(1, user);
+        select.setString(2, getItemsName());
+        try(ResultSet resultSet = select.executeQuery()) {
+            if(!resultSet.next()) {
+                throw new JdbcDaoException("No version of " + getItemsName() + " for user " + user);
+            }
+            return resultSet.getLong(1);
+        }
+    }
+
+    private long count(PooledConnection c, String user, String column, String value, Predicate<T> filter)
+            throws SQLException {
+        PreparedStatement statement = c.prepare(selectItems
+            + (column != null ? " and " + column + " = ?" : "")
+            + " order by uuid");
+        statement.setFetchSize(FETCH_SIZE);
+        statement.setString(1, user);
+        if(column != null) {
+            statement.setString(2, value);
+        }
+
+        long count = 0;
+        try(ResultSet resultSet = statement.executeQuery()) {
+            while(resultSet.next()) {
+                if(filter.test(readItem(resultSet))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Optional<DataVersion> readVersion(PreparedStatement statement) throws SQLException {
+        try(ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next()
+                ? Optional.of(new DataVersion(Long.toHexString(resultSet.getLong(1)), resultSet.getLong(2)))
+                : Optional.empty();
+        }
+    }
+
+    private T readItem(ResultSet resultSet) throws SQLException {
+        return decode(resultSet.getString("item"));
+    }
+
+    private String encode(T item) {
+        try {
+            return new String(codec.toBytes(item), UTF_8);
+        } catch(IOException ex) {
+            throw new JdbcDaoException(ex);
+        }
+    }
+
+    private T decode(String item) {
+        try {
+            return codec.read(item.getBytes(UTF_8));
+        } catch(IOException ex) {
+            throw new JdbcDaoException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> getItemType() {
+        return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+}
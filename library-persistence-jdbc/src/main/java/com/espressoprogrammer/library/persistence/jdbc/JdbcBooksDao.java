@@ -0,0 +1,130 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "jdbc")
+public class JdbcBooksDao extends JdbcAbstractDao<Book> implements BooksDao {
+    private static final String ISBN10_COLUMN = "isbn10";
+    private static final String ISBN13_COLUMN = "isbn13";
+
+    @Override
+    public List<Book> getUserBooks(String user) {
+        return getUserItems(user, b -> true);
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user, String searchText) {
+        return getUserItems(user, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        return getUserItems(user, null, null, pageRequest, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        return streamUserItems(user, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        Map<String, Book> books = new LinkedHashMap<>();
+        if(!StringUtils.isEmpty(isbn10)) {
+            getUserItemsByIndex(user, ISBN10_COLUMN, isbn10).forEach(b -> books.put(b.getUuid(), b));
+        }
+        if(!StringUtils.isEmpty(isbn13)) {
+            getUserItemsByIndex(user, ISBN13_COLUMN, isbn13).forEach(b -> books.put(b.getUuid(), b));
+        }
+        return new ArrayList<>(books.values());
+    }
+
+    @Override
+    public Book createUserBook(String user, Book book) {
+        return createUserItem(user, book);
+    }
+
+    @Override
+    public List<Book> createUserBooks(String user, List<Book> books) {
+        return createUserItems(user, books);
+    }
+
+    @Override
+    public Optional<Book> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid);
+    }
+
+    @Override
+    public Optional<String> updateUserBook(String user, String uuid, Book book) {
+        return updateUserItem(user, uuid, book);
+    }
+
+    @Override
+    public Optional<String> deleteUserBook(String user, String uuid) {
+        return deleteUserItem(user, uuid);
+    }
+
+    @Override
+    public DataVersion getUserBooksVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    protected String getTableName() {
+        return "books";
+    }
+
+    @Override
+    protected String getItemsName() {
+        return "books";
+    }
+
+    @Override
+    protected List<String> getIndexColumns() {
+        return Arrays.asList(ISBN10_COLUMN, ISBN13_COLUMN);
+    }
+
+    @Override
+    protected List<String> getIndexValues(Book book) {
+        return Arrays.asList(book.getIsbn10(), book.getIsbn13());
+    }
+
+    @Override
+    protected String getUuid(Book book) {
+        return book.getUuid();
+    }
+
+    @Override
+    protected Book createItem(String uuid, Book book) {
+        return new Book(uuid,
+            book.getIsbn10(),
+            book.getIsbn13(),
+            book.getTitle(),
+            new ArrayList<>(book.getAuthors()),
+            book.getImage(),
+            book.getPages());
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+class JdbcDaoException extends RuntimeException {
+
+    JdbcDaoException(Exception cause) {
+        super(cause);
+    }
+
+    JdbcDaoException(String message) {
+        super(message);
+    }
+
+}
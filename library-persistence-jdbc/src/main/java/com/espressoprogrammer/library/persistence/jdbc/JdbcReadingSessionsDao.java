@@ -0,0 +1,110 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "jdbc")
+public class JdbcReadingSessionsDao extends JdbcAbstractDao<ReadingSession> implements ReadingSessionsDao {
+    private static final String BOOK_UUID_COLUMN = "book_uuid";
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user) {
+        return getUserItems(user, r -> true);
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user, String bookUuid) {
+        return getUserItemsByIndex(user, BOOK_UUID_COLUMN, bookUuid);
+    }
+
+    @Override
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest) {
+        return getUserItems(user, BOOK_UUID_COLUMN, bookUuid, pageRequest, r -> true);
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        return streamUserItems(user, r -> true);
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid) {
+        return streamUserItemsByIndex(user, BOOK_UUID_COLUMN, bookUuid);
+    }
+
+    @Override
+    public ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) {
+        return createUserItem(user, readingSession);
+    }
+
+    @Override
+    public Optional<ReadingSession> getUserReadingSession(String user, String bookUuid, String uuid) {
+        return getUserItem(user, uuid);
+    }
+
+    @Override
+    public Optional<String> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession) {
+        return updateUserItem(user, uuid, readingSession);
+    }
+
+    @Override
+    public Optional<String> deleteUserReadingSession(String user, String bookUuid, String uuid) {
+        return deleteUserItem(user, uuid);
+    }
+
+    @Override
+    public DataVersion getUserReadingSessionsVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    protected String getTableName() {
+        return "reading_sessions";
+    }
+
+    @Override
+    protected String getItemsName() {
+        return "reading-sessions";
+    }
+
+    @Override
+    protected List<String> getIndexColumns() {
+        return Collections.singletonList(BOOK_UUID_COLUMN);
+    }
+
+    @Override
+    protected List<String> getIndexValues(ReadingSession readingSession) {
+        return Collections.singletonList(readingSession.getBookUuid());
+    }
+
+    @Override
+    protected String getUuid(ReadingSession readingSession) {
+        return readingSession.getUuid();
+    }
+
+    @Override
+    protected ReadingSession createItem(String uuid, ReadingSession readingSession) {
+        return new ReadingSession(uuid,
+            readingSession.getBookUuid(),
+            readingSession.getDeadline(),
+            new ArrayList<>(readingSession.getDateReadingSessions()));
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The database shared by the JDBC DAOs.
+ * <p>
+ * Without a configured URL it is an embedded H2 database in the <code>.jdbc</code> folder of the library;
+ * the H2 driver is added by the <code>h2</code> build profile, any other driver on the classpath works
+ * with its own URL. The schema is created on startup when missing.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "jdbc")
+class JdbcStorage {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final String SCHEMA = "/db/schema.sql";
+
+    @Value(value = "${filesystem.dao.rootfolder:}")
+    String libraryFolder = "";
+
+    @Value(value = "${filesystem.dao.jdbc.url:}")
+    String url = "";
+
+    @Value(value = "${filesystem.dao.jdbc.username:sa}")
+    String username = "sa";
+
+    @Value(value = "${filesystem.dao.jdbc.password:}")
+    String password = "";
+
+    @Value(value = "${filesystem.dao.jdbc.poolsize:10}")
+    int poolSize = 10;
+
+    @Value(value = "${filesystem.dao.jdbc.statementcachesize:32}")
+    int statementCacheSize = 32;
+
+    @Value(value = "${filesystem.dao.jdbc.timeout:30000}")
+    long timeoutMillis = 30000;
+
+    private ConnectionPool connectionPool;
+
+    @PostConstruct
+    void open() throws IOException, SQLException {
+        String databaseUrl = getUrl();
+        open(new ConnectionPool(() -> DriverManager.getConnection(databaseUrl, username, password),
+            poolSize,
+            statementCacheSize,
+            timeoutMillis));
+        logger.info("Opened database {}", databaseUrl);
+    }
+
+    void open(ConnectionPool connectionPool) throws IOException, SQLException {
+        this.connectionPool = connectionPool;
+        String schema;
+        try(InputStream in = getClass().getResourceAsStream(SCHEMA)) {
+            schema = StreamUtils.copyToString(in, UTF_8);
+        }
+        execute(c -> {
+            try(Statement statement = c.getConnection().createStatement()) {
+                for(String sql : schema.split(";")) {
+                    if(!sql.trim().isEmpty()) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work in auto-commit mode.
+     */
+    <R> R execute(SqlFunction<R> work) {
+        PooledConnection connection = acquire();
+        boolean broken = false;
+        try {
+            return work.apply(connection);
+        } catch(SQLException ex) {
+            broken = isBroken(connection);
+            throw new JdbcDaoException(ex);
+        } finally {
+            connectionPool.release(connection, broken);
+        }
+    }
+
+    /**
+     * Runs the work in one transaction, committed when the work returns and rolled back when it fails.
+     */
+    <R> R transaction(SqlFunction<R> work) {
+        PooledConnection connection = acquire();
+        boolean broken = false;
+        try {
+            Connection jdbcConnection = connection.getConnection();
+            jdbcConnection.setAutoCommit(false);
+            try {
+                R result = work.apply(connection);
+                jdbcConnection.commit();
+                return result;
+            } catch(SQLException | RuntimeException ex) {
+                jdbcConnection.rollback();
+                throw ex;
+            } finally {
+                jdbcConnection.setAutoCommit(true);
+            }
+        } catch(SQLException ex) {
+            broken = isBroken(connection);
+            throw new JdbcDaoException(ex);
+        } finally {
+            connectionPool.release(connection, broken);
+        }
+    }
+
+    /**
+     * Lazily reads the rows of the query; the connection is held until the stream is closed.
+     */
+    <R> Stream<R> stream(SqlFunction<ResultSet> query, RowReader<R> reader) {
+        PooledConnection connection = acquire();
+        ResultSet resultSet;
+        try {
+            resultSet = query.apply(connection);
+        } catch(SQLException ex) {
+            connectionPool.release(connection, isBroken(connection));
+            throw new JdbcDaoException(ex);
+        }
+
+        Spliterator<R> rows = new Spliterators.AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super R> action) {
+                try {
+                    if(!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(reader.read(resultSet));
+                    return true;
+                } catch(SQLException ex) {
+                    throw new JdbcDaoException(ex);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            boolean broken = false;
+            try {
+                resultSet.close();
+            } catch(SQLException ex) {
+                broken = isBroken(connection);
+            }
+            connectionPool.release(connection, broken);
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        connectionPool.close();
+    }
+
+    private PooledConnection acquire() {
+        try {
+            return connectionPool.acquire();
+        } catch(SQLException ex) {
+            throw new JdbcDaoException(ex);
+        }
+    }
+
+    private String getUrl() {
+        if(!StringUtils.isEmpty(url)) {
+            return url;
+        }
+        String folder = !StringUtils.isEmpty(libraryFolder)
+            ? libraryFolder
+            : System.getProperty("user.home") + "/Library";
+        return "jdbc:h2:file:" + Paths.get(folder, ".jdbc", "library").toAbsolutePath();
+    }
+
+    private static boolean isBroken(PooledConnection connection) {
+        try {
+            return !connection.getConnection().isValid(1);
+        } catch(SQLException ex) {
+            return true;
+        }
+    }
+
+}
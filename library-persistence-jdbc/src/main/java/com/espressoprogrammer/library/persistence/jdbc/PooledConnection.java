@@ -0,0 +1,87 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A connection of the {@link ConnectionPool} with its own cache of prepared statements, so the handful of
+ * statements the DAOs run are parsed and planned once per connection instead of once per call.
+ * <p>
+ * The cache keeps the most recently used statements. The ones it evicts may still be in use by the operation
+ * holding the connection, which can run more statements than the cache keeps, so they are closed only when
+ * the connection is released.
+ */
+final class PooledConnection {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final List<PreparedStatement> evictedStatements = new ArrayList<>();
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if(size() <= statementCacheSize) {
+                    return false;
+                }
+                evictedStatements.add(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the cached statement of the SQL, with its parameters cleared, or prepares a new one.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if(statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    int getStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * Closes the statements evicted while the connection was in use; called when the connection is released.
+     */
+    void closeEvictedStatements() {
+        evictedStatements.forEach(PooledConnection::closeQuietly);
+        evictedStatements.clear();
+    }
+
+    void close() {
+        closeEvictedStatements();
+        statements.values().forEach(PooledConnection::closeQuietly);
+        statements.clear();
+        try {
+            connection.close();
+        } catch(SQLException ex) {
+            // the connection is discarded anyway
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch(SQLException ex) {
+            // the statement is discarded anyway
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the current row of a result set.
+ */
+@FunctionalInterface
+interface RowReader<R> {
+
+    R read(ResultSet resultSet) throws SQLException;
+
+}
@@ -0,0 +1,13 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Work done with a pooled connection.
+ */
+@FunctionalInterface
+interface SqlFunction<R> {
+
+    R apply(PooledConnection connection) throws SQLException;
+
+}
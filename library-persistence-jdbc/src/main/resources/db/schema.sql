@@ -0,0 +1,34 @@
+create table if not exists books (
+    user_name varchar(255) not null,
+    uuid varchar(64) not null,
+    isbn10 varchar(32),
+    isbn13 varchar(32),
+    item text not null,
+    version bigint not null,
+    last_modified bigint not null,
+    primary key (user_name, uuid)
+);
+
+create index if not exists books_user_isbn10 on books (user_name, isbn10);
+
+create index if not exists books_user_isbn13 on books (user_name, isbn13);
+
+create table if not exists reading_sessions (
+    user_name varchar(255) not null,
+    uuid varchar(64) not null,
+    book_uuid varchar(64),
+    item text not null,
+    version bigint not null,
+    last_modified bigint not null,
+    primary key (user_name, uuid)
+);
+
+create index if not exists reading_sessions_user_book_uuid on reading_sessions (user_name, book_uuid);
+
+create table if not exists item_versions (
+    user_name varchar(255) not null,
+    items varchar(32) not null,
+    version bigint not null,
+    last_modified bigint not null,
+    primary key (user_name, items)
+);
@@ -0,0 +1,88 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionPoolTest {
+
+    @Mock
+    private Connection connection;
+
+    @Test
+    public void reuseReleasedConnection() throws Exception {
+        AtomicInteger openCount = new AtomicInteger();
+        ConnectionPool connectionPool = new ConnectionPool(() -> {
+            openCount.incrementAndGet();
+            return connection;
+        }, 2, 4, 100);
+
+        PooledConnection pooledConnection = connectionPool.acquire();
+        connectionPool.release(pooledConnection, false);
+
+        assertThat(connectionPool.acquire()).isSameAs(pooledConnection);
+        assertThat(openCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void closeBrokenConnection() throws Exception {
+        ConnectionPool connectionPool = new ConnectionPool(() -> connection, 1, 4, 100);
+
+        PooledConnection pooledConnection = connectionPool.acquire();
+        connectionPool.release(pooledConnection, true);
+
+        verify(connection).close();
+        assertThat(connectionPool.getIdleCount()).isEqualTo(0);
+        assertThat(connectionPool.acquire()).isNotSameAs(pooledConnection);
+    }
+
+    @Test
+    public void waitForConnectionWithTimeout() throws Exception {
+        ConnectionPool connectionPool = new ConnectionPool(() -> connection, 1, 4, 10);
+
+        connectionPool.acquire();
+
+        assertThatThrownBy(connectionPool::acquire)
+            .isInstanceOf(SQLException.class)
+            .hasMessageContaining("No connection available");
+    }
+
+    @Test
+    public void cachePreparedStatements() throws Exception {
+        PreparedStatement statement1 = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement1, mock(PreparedStatement.class),
+            mock(PreparedStatement.class));
+        ConnectionPool connectionPool = new ConnectionPool(() -> connection, 1, 2, 100);
+        PooledConnection pooledConnection = connectionPool.acquire();
+
+        assertThat(pooledConnection.prepare("sql-1")).isSameAs(statement1);
+        assertThat(pooledConnection.prepare("sql-1")).isSameAs(statement1);
+        verify(connection, times(1)).prepareStatement("sql-1");
+        verify(statement1).clearParameters();
+
+        pooledConnection.prepare("sql-2");
+        pooledConnection.prepare("sql-3");
+        assertThat(pooledConnection.getStatementCount()).isEqualTo(2);
+        verify(statement1, never()).close();
+
+        connectionPool.release(pooledConnection, false);
+        verify(statement1).close();
+    }
+
+}
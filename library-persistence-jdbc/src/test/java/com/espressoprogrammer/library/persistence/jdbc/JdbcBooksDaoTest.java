@@ -0,0 +1,127 @@
+package com.espressoprogrammer.library.persistence.jdbc;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class JdbcBooksDaoTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private JdbcBooksDao booksDao;
+
+    @Before
+    public void init() throws Exception {
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        JdbcStorage jdbcStorage = new JdbcStorage();
+        jdbcStorage.open(new ConnectionPool(() -> connection, 1, 8, 100));
+        booksDao = new JdbcBooksDao();
+        booksDao.jdbcStorage = jdbcStorage;
+    }
+
+    @Test
+    public void createSchema() throws Exception {
+        verify(statement).execute(contains("create table if not exists books"));
+        verify(statement).execute(contains("on books (user_name, isbn10)"));
+        verify(statement).execute(contains("on books (user_name, isbn13)"));
+        verify(statement).execute(contains("on reading_sessions (user_name, book_uuid)"));
+    }
+
+    @Test
+    public void createUserBooksInOneBatch() throws Exception {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(7L);
+
+        List<Book> books = booksDao.createUserBooks(JOHN_DOE_USER, Arrays.asList(getBook("1"), getBook("2"), getBook("3")));
+
+        assertThat(books).hasSize(3);
+        assertThat(books).extracting(Book::getUuid).doesNotContainNull().doesNotHaveDuplicates();
+        verify(connection).prepareStatement(startsWith("insert into books"));
+        verify(preparedStatement, times(3)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(preparedStatement, times(3)).setLong(eq(6), eq(7L));
+        verify(connection).commit();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    public void getUserBooksByIsbnWithIndexedQueries() throws Exception {
+        when(resultSet.next()).thenReturn(false);
+
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-1")).isEmpty();
+
+        verify(connection).prepareStatement(contains("and isbn10 = ?"));
+        verify(connection).prepareStatement(contains("and isbn13 = ?"));
+        verify(preparedStatement).setString(2, "isbn10-1");
+        verify(preparedStatement).setString(2, "isbn13-1");
+    }
+
+    @Test
+    public void pageUserBooksNewestFirstWithReverseRangeScan() throws Exception {
+        when(resultSet.next()).thenReturn(false);
+
+        PageRequest pageRequest = new PageRequest("0190a1b2-c3d4-7e5f-8a6b-7c8d9e0f1a2b", 10, false, true);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, null, pageRequest).getItems()).isEmpty();
+
+        verify(connection).prepareStatement(contains("and uuid < ? order by uuid desc"));
+        verify(preparedStatement).setString(2, pageRequest.getCursor());
+    }
+
+    @Test
+    public void updateMissingUserBook() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        assertThat(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-0", getBook("1"))).isEmpty();
+
+        verify(connection, never()).prepareStatement(startsWith("update item_versions"));
+        verify(connection).commit();
+    }
+
+    private static Book getBook(String suffix) {
+        return new Book(null,
+            "isbn10-" + suffix,
+            "isbn13-" + suffix,
+            "Title " + suffix,
+            Arrays.asList("First" + suffix + " Last" + suffix),
+            "image-" + suffix,
+            100);
+    }
+
+}
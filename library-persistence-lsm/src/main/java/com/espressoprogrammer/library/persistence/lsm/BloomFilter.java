@@ -0,0 +1,90 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloom filter of the keys of one table, so lookups of missing keys skip the table without reading it.
+ * <p>
+ * Ten bits per key and seven probes derived from one 64-bit hash give about one percent of false positives.
+ */
+final class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_COUNT = 7;
+
+    private final long[] words;
+    private final int hashCount;
+
+    private BloomFilter(long[] words, int hashCount) {
+        this.words = words;
+        this.hashCount = hashCount;
+    }
+
+    static BloomFilter create(long expectedKeys) {
+        long bits = Math.max(64, expectedKeys * BITS_PER_KEY);
+        return new BloomFilter(new long[(int) ((bits + 63) / 64)], HASH_COUNT);
+    }
+
+    void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) words.length * 64;
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) words.length * 64;
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getSerializedSize() {
+        return 2 * Integer.BYTES + words.length * Long.BYTES;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(hashCount);
+        buffer.putInt(words.length);
+        for(long word : words) {
+            buffer.putLong(word);
+        }
+    }
+
+    static BloomFilter readFrom(ByteBuffer buffer) {
+        int hashCount = buffer.getInt();
+        long[] words = new long[buffer.getInt()];
+        for(int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new BloomFilter(words, hashCount);
+    }
+
+    /**
+     * FNV-1a over the characters of the key, finished with the murmur3 mixer.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Append-only log of the batches held by one memtable, replayed on open and deleted once the memtable is
+ * flushed to a table.
+ * <p>
+ * Record layout: <code>int bodyLength | int crc32(body) | body</code> where body is
+ * <code>long sequence | int count | (int keyLength | key | int valueLength (-1 for deletes) | value)*</code>.
+ * Replay stops at the first truncated or corrupted record, which is the one being appended when the
+ * process stopped.
+ */
+final class CommitLog implements Closeable {
+    private static final int HEADER_LENGTH = 2 * Integer.BYTES;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean sync;
+
+    private CommitLog(long number, Path path, FileChannel channel, boolean sync) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.sync = sync;
+    }
+
+    static CommitLog open(long number, Path path, boolean sync) throws IOException {
+        return new CommitLog(number, path, FileChannel.open(path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND), sync);
+    }
+
+    long getNumber() {
+        return number;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void append(long sequence, WriteBatch batch) throws IOException {
+        List<byte[]> keys = new ArrayList<>(batch.getKeys().size());
+        int bodyLength = Long.BYTES + Integer.BYTES;
+        for(int i = 0; i < batch.getKeys().size(); i++) {
+            byte[] key = batch.getKeys().get(i).getBytes(UTF_8);
+            byte[] value = batch.getValues().get(i);
+            keys.add(key);
+            bodyLength += Integer.BYTES + key.length + Integer.BYTES + (value != null ? value.length : 0);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + bodyLength);
+        record.position(HEADER_LENGTH);
+        record.putLong(sequence);
+        record.putInt(keys.size());
+        for(int i = 0; i < keys.size(); i++) {
+            byte[] value = batch.getValues().get(i);
+            record.putInt(keys.get(i).length);
+            record.put(keys.get(i));
+            record.putInt(value != null ? value.length : -1);
+            if(value != null) {
+                record.put(value);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_LENGTH, bodyLength);
+        record.putInt(0, bodyLength);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+
+        while(record.hasRemaining()) {
+            channel.write(record);
+        }
+        if(sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Hands the entries of every complete record to the consumer, in the order they were appended.
+     */
+    static void replay(Path path, Consumer<LsmEntry> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        while(buffer.remaining() >= HEADER_LENGTH) {
+            int bodyLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if(bodyLength < Long.BYTES + Integer.BYTES || bodyLength > buffer.remaining()) {
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), buffer.position(), bodyLength);
+            if((int) crc.getValue() != checksum) {
+                return;
+            }
+
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            for(int i = 0; i < count; i++) {
+                byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                int valueLength = buffer.getInt();
+                byte[] value = null;
+                if(valueLength >= 0) {
+                    value = new byte[valueLength];
+                    buffer.get(value);
+                }
+                consumer.accept(new LsmEntry(new String(key, UTF_8), sequence, value));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,328 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.ItemIds;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.codec.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Items of one type kept in the shared {@link LsmStore}, keyed by user, type and uuid so the items of a user
+ * are one range scan.
+ * <p>
+ * Keys:
+ * <ul>
+ *     <li><code>user/type/uuid</code> holds the write time and the JSON of the item</li>
+ *     <li><code>user/type-index/indexKey/uuid</code> is an empty entry per secondary index key of the item</li>
+ *     <li><code>user/type-version</code> holds the write time of the last change of the user items</li>
+ * </ul>
+ * Every create, update and delete is one atomic batch over the item, its index entries and the user version.
+ * Versions are the sequence numbers of these entries, so they survive restarts.
+ */
+abstract class LsmAbstractDao<T> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int ITEM_LOCK_STRIPES = 64;
+
+    private final JsonCodec<T> codec = JsonCodec.forType(getItemType());
+    private final Object[] itemLocks = new Object[ITEM_LOCK_STRIPES];
+
+    @Autowired
+    LsmStorage lsmStorage;
+
+    @Value(value = "${filesystem.dao.ids.timeordered:false}")
+    boolean timeOrderedIds;
+
+    LsmAbstractDao() {
+        for(int i = 0; i < ITEM_LOCK_STRIPES; i++) {
+            itemLocks[i] = new Object();
+        }
+    }
+
+    List<T> getUserItems(String user, Predicate<T> filter) {
+        try(Stream<T> items = streamUserItems(user, filter)) {
+            return items.collect(toList());
+        }
+    }
+
+    /**
+     * Reads the items of the user with one range scan and decodes them lazily, in uuid order.
+     */
+    Stream<T> streamUserItems(String user, Predicate<T> filter) {
+        logger.debug("Look for item for user {}", user);
+
+        return getStore().scan(getItemsPrefix(user)).stream()
+            .map(entry -> decode(entry.getValue()))
+            .filter(filter);
+    }
+
+    /**
+     * Reads one page of items in uuid order, decoding only the items the page needs.
+     */
+    Page<T> getUserItems(String user, PageRequest pageRequest, Predicate<T> filter) {
+        logger.debug("Look for item for user {} with {}", user, pageRequest);
+
+        String prefix = getItemsPrefix(user);
+        TreeMap<String, byte[]> values = new TreeMap<>();
+        for(LsmEntry entry : getStore().scan(prefix)) {
+            values.put(entry.getKey().substring(prefix.length()), entry.getValue());
+        }
+        return Page.read(values.navigableKeySet(), pageRequest, uuid -> Optional.of(decode(values.get(uuid))), filter);
+    }
+
+    /**
+     * Reads the items indexed under any of the keys, in index key and uuid order.
+     */
+    List<T> getUserItemsByIndex(String user, Collection<String> indexKeys) {
+        return streamUserItemsByIndex(user, indexKeys).collect(toList());
+    }
+
+    Stream<T> streamUserItemsByIndex(String user, Collection<String> indexKeys) {
+        logger.debug("Look for item for user {} with {}", user, indexKeys);
+
+        Set<String> uuids = new LinkedHashSet<>();
+        for(String indexKey : indexKeys) {
+            String prefix = getIndexPrefix(user, indexKey);
+            for(LsmEntry entry : getStore().scan(prefix)) {
+                uuids.add(entry.getKey().substring(prefix.length()));
+            }
+        }
+        return uuids.stream()
+            .map(uuid -> getUserItem(user, uuid))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .filter(item -> getIndexKeys(item).stream().anyMatch(indexKeys::contains));
+    }
+
+    /**
+     * Reads one page of the items indexed under the key, in uuid order.
+     */
+    Page<T> getUserItemsByIndex(String user, String indexKey, PageRequest pageRequest) {
+        logger.debug("Look for item for user {} with {} and {}", user, indexKey, pageRequest);
+
+        String prefix = getIndexPrefix(user, indexKey);
+        TreeSet<String> uuids = new TreeSet<>();
+        for(LsmEntry entry : getStore().scan(prefix)) {
+            uuids.add(entry.getKey().substring(prefix.length()));
+        }
+        return Page.read(uuids, pageRequest, uuid -> getUserItem(user, uuid),
+            item -> getIndexKeys(item).contains(indexKey));
+    }
+
+    T createUserItem(String user, T item) {
+        try {
+            logger.debug("Add new item for user {}", user);
+
+            String uuid = ItemIds.newId(timeOrderedIds);
+            T persistedItem = createItem(uuid, item);
+            WriteBatch batch = new WriteBatch();
+            putItem(batch, user, uuid, persistedItem, Collections.emptySet());
+            getStore().write(batch);
+            return persistedItem;
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    /**
+     * Creates the items with one atomic batch.
+     */
+    List<T> createUserItems(String user, List<T> items) {
+        try {
+            logger.debug("Add {} new items for user {}", items.size(), user);
+
+            List<T> persistedItems = new ArrayList<>(items.size());
+            WriteBatch batch = new WriteBatch();
+            for(T item : items) {
+                String uuid = ItemIds.newId(timeOrderedIds);
+                T persistedItem = createItem(uuid, item);
+                putItem(batch, user, uuid, persistedItem, Collections.emptySet());
+                persistedItems.add(persistedItem);
+            }
+            if(!batch.isEmpty()) {
+                getStore().write(batch);
+            }
+            return persistedItems;
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    Optional<T> getUserItem(String user, String uuid) {
+        try {
+            logger.debug("Look for item for user {} with uuid {}", user, uuid);
+
+            return getStore().get(getItemKey(user, uuid)).map(entry -> decode(entry.getValue()));
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    Optional<String> updateUserItem(String user, String uuid, T item) {
+        try {
+            logger.debug("Update item for user {} with uuid {}", user, uuid);
+
+            synchronized(getItemLock(user, uuid)) {
+                Optional<T> oldItem = getUserItem(user, uuid);
+                if(!oldItem.isPresent()) {
+                    return Optional.empty();
+                }
+
+                WriteBatch batch = new WriteBatch();
+                putItem(batch, user, uuid, createItem(uuid, item), new HashSet<>(getIndexKeys(oldItem.get())));
+                getStore().write(batch);
+                return Optional.of(uuid);
+            }
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    Optional<String> deleteUserItem(String user, String uuid) {
+        try {
+            logger.debug("Delete item for user {} with uuid {}", user, uuid);
+
+            synchronized(getItemLock(user, uuid)) {
+                Optional<T> oldItem = getUserItem(user, uuid);
+                if(!oldItem.isPresent()) {
+                    return Optional.empty();
+                }
+
+                WriteBatch batch = new WriteBatch()
+                    .delete(getItemKey(user, uuid))
+                    .put(getVersionKey(user), encodeTime());
+                for(String indexKey : getIndexKeys(oldItem.get())) {
+                    batch.delete(getIndexPrefix(user, indexKey) + uuid);
+                }
+                getStore().write(batch);
+                return Optional.of(uuid);
+            }
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    DataVersion getUserItemsVersion(String user) {
+        try {
+            return getStore().get(getVersionKey(user))
+                .map(this::toVersion)
+                .orElse(new DataVersion(getStore().getStoreId() + "-0", 0));
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    Optional<DataVersion> getUserItemVersion(String user, String uuid) {
+        try {
+            return getStore().get(getItemKey(user, uuid)).map(this::toVersion);
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    protected abstract String getItemsName();
+
+    protected abstract T createItem(String uuid, T item);
+
+    protected Collection<String> getIndexKeys(T item) {
+        return Collections.emptyList();
+    }
+
+    private void putItem(WriteBatch batch, String user, String uuid, T item, Set<String> oldIndexKeys) {
+        byte[] time = encodeTime();
+        batch.put(getItemKey(user, uuid), encode(time, item));
+        Collection<String> indexKeys = getIndexKeys(item);
+        for(String indexKey : oldIndexKeys) {
+            if(!indexKeys.contains(indexKey)) {
+                batch.delete(getIndexPrefix(user, indexKey) + uuid);
+            }
+        }
+        for(String indexKey : indexKeys) {
+            if(!oldIndexKeys.contains(indexKey)) {
+                batch.put(getIndexPrefix(user, indexKey) + uuid, new byte[0]);
+            }
+        }
+        batch.put(getVersionKey(user), time);
+    }
+
+    private String getItemKey(String user, String uuid) {
+        return getItemsPrefix(user) + uuid;
+    }
+
+    private String getItemsPrefix(String user) {
+        return user + "/" + getItemsName() + "/";
+    }
+
+    private String getIndexPrefix(String user, String indexKey) {
+        return user + "/" + getItemsName() + "-index/" + indexKey + "/";
+    }
+
+    private String getVersionKey(String user) {
+        return user + "/" + getItemsName() + "-version";
+    }
+
+    private Object getItemLock(String user, String uuid) {
+        return itemLocks[Math.floorMod(getItemKey(user, uuid).hashCode(), ITEM_LOCK_STRIPES)];
+    }
+
+    private DataVersion toVersion(LsmEntry entry) {
+        return new DataVersion(getStore().getStoreId() + "-" + Long.toHexString(entry.getSequence()),
+            ByteBuffer.wrap(entry.getValue()).getLong());
+    }
+
+    private static byte[] encodeTime() {
+        return ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).array();
+    }
+
+    private byte[] encode(byte[] time, T item) {
+        try {
+            byte[] json = codec.toBytes(item);
+            byte[] value = Arrays.copyOf(time, time.length + json.length);
+            System.arraycopy(json, 0, value, time.length, json.length);
+            return value;
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    private T decode(byte[] value) {
+        try {
+            return codec.read(value, Long.BYTES, value.length - Long.BYTES);
+        } catch(IOException ex) {
+            throw new LsmDaoException(ex);
+        }
+    }
+
+    private LsmStore getStore() {
+        return lsmStorage.getStore();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> getItemType() {
+        return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+}
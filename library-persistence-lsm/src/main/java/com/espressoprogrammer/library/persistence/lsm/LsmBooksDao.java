@@ -0,0 +1,123 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "lsm")
+public class LsmBooksDao extends LsmAbstractDao<Book> implements BooksDao {
+    private static final String ISBN10_KEY_PREFIX = "isbn10:";
+    private static final String ISBN13_KEY_PREFIX = "isbn13:";
+
+    @Override
+    public List<Book> getUserBooks(String user) {
+        return getUserItems(user, b -> true);
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user, String searchText) {
+        return getUserItems(user, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        return getUserItems(user, pageRequest, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        return streamUserItems(user, b -> BooksSearch.matches(b, searchText));
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        List<String> keys = getIsbnKeys(isbn10, isbn13);
+        if(keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return getUserItemsByIndex(user, keys);
+    }
+
+    @Override
+    public Book createUserBook(String user, Book book) {
+        return createUserItem(user, book);
+    }
+
+    @Override
+    public List<Book> createUserBooks(String user, List<Book> books) {
+        return createUserItems(user, books);
+    }
+
+    @Override
+    public Optional<Book> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid);
+    }
+
+    @Override
+    public Optional<String> updateUserBook(String user, String uuid, Book book) {
+        return updateUserItem(user, uuid, book);
+    }
+
+    @Override
+    public Optional<String> deleteUserBook(String user, String uuid) {
+        return deleteUserItem(user, uuid);
+    }
+
+    @Override
+    public DataVersion getUserBooksVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    protected String getItemsName() {
+        return "books";
+    }
+
+    @Override
+    protected Collection<String> getIndexKeys(Book book) {
+        return getIsbnKeys(book.getIsbn10(), book.getIsbn13());
+    }
+
+    @Override
+    protected Book createItem(String uuid, Book book) {
+        return new Book(uuid,
+            book.getIsbn10(),
+            book.getIsbn13(),
+            book.getTitle(),
+            new ArrayList<>(book.getAuthors()),
+            book.getImage(),
+            book.getPages());
+    }
+
+    private static List<String> getIsbnKeys(String isbn10, String isbn13) {
+        List<String> keys = new ArrayList<>();
+        if(!StringUtils.isEmpty(isbn10)) {
+            keys.add(ISBN10_KEY_PREFIX + isbn10);
+        }
+        if(!StringUtils.isEmpty(isbn13)) {
+            keys.add(ISBN13_KEY_PREFIX + isbn13);
+        }
+        return keys;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+class LsmDaoException extends RuntimeException {
+
+    LsmDaoException(Exception cause) {
+        super(cause);
+    }
+
+    LsmDaoException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+/**
+ * Version of a key written with a sequence number. A <code>null</code> value is a tombstone that hides
+ * older versions of the key until compaction drops them.
+ */
+final class LsmEntry {
+    private final String key;
+    private final long sequence;
+    private final byte[] value;
+
+    LsmEntry(String key, long sequence, byte[] value) {
+        this.key = key;
+        this.sequence = sequence;
+        this.value = value;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    byte[] getValue() {
+        return value;
+    }
+
+    boolean isTombstone() {
+        return value == null;
+    }
+
+    long getSize() {
+        return 2L * key.length() + Long.BYTES + (value != null ? value.length : 0);
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+/**
+ * Tuning of an {@link LsmStore}.
+ */
+final class LsmOptions {
+
+    /**
+     * Bytes held by the memtable before it is flushed to a level 0 table.
+     */
+    long memtableSize = 4 * 1024 * 1024;
+
+    /**
+     * Bytes of the tables written by compactions.
+     */
+    long tableSize = 2 * 1024 * 1024;
+
+    /**
+     * Level 0 tables, which overlap each other, that trigger their compaction into level 1.
+     */
+    int level0Tables = 4;
+
+    /**
+     * Bytes of level 1; every next level holds ten times more.
+     */
+    long levelSize = 10 * 1024 * 1024;
+
+    /**
+     * Whether every write is forced to disk before it returns.
+     */
+    boolean sync = true;
+
+}
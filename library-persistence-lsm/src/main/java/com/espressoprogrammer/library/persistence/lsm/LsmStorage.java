@@ -0,0 +1,74 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The one store shared by the LSM DAOs, kept in the <code>.lsm</code> folder of the library.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "lsm")
+class LsmStorage {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${filesystem.dao.rootfolder:}")
+    String libraryFolder = "";
+
+    @Value(value = "${filesystem.dao.lsm.memtablesize:4194304}")
+    long memtableSize = 4 * 1024 * 1024;
+
+    @Value(value = "${filesystem.dao.lsm.tablesize:2097152}")
+    long tableSize = 2 * 1024 * 1024;
+
+    @Value(value = "${filesystem.dao.lsm.level0tables:4}")
+    int level0Tables = 4;
+
+    @Value(value = "${filesystem.dao.lsm.levelsize:10485760}")
+    long levelSize = 10 * 1024 * 1024;
+
+    @Value(value = "${filesystem.dao.lsm.sync:true}")
+    boolean sync = true;
+
+    private LsmStore store;
+
+    @PostConstruct
+    void open() throws IOException {
+        LsmOptions options = new LsmOptions();
+        options.memtableSize = memtableSize;
+        options.tableSize = tableSize;
+        options.level0Tables = level0Tables;
+        options.levelSize = levelSize;
+        options.sync = sync;
+
+        Path folder = getLibraryFolder().resolve(".lsm");
+        store = LsmStore.open(folder, options);
+        logger.info("Opened store {} in {}", store.getStoreId(), folder);
+    }
+
+    LsmStore getStore() {
+        return store;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        store.close();
+    }
+
+    private Path getLibraryFolder() {
+        if(!StringUtils.isEmpty(libraryFolder)) {
+            return Paths.get(libraryFolder);
+        }
+        return Paths.get(System.getProperty("user.home"), "Library");
+    }
+
+}
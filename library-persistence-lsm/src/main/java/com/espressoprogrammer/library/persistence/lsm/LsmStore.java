@@ -0,0 +1,656 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Embedded log-structured merge tree of string keys and byte array values.
+ * <p>
+ * Writes are appended to a commit log and applied to a sorted in-memory memtable. A full memtable is
+ * swapped for an empty one and flushed in the background to an immutable, sorted table on level 0.
+ * Level 0 tables overlap each other and, once there are enough of them, are merged with the overlapping
+ * level 1 tables. Tables of the other levels never overlap and each level holds ten times more bytes than
+ * the previous one; an overflowing level has one table merged into the next level, round robin over the
+ * key space. Tombstones are dropped when nothing older can be below them.
+ * <p>
+ * Reads look at the memtables and then the levels from the newest data to the oldest and stop at the first
+ * version of the key. Range scans merge every source in key order, keeping the version with the highest
+ * sequence number.
+ * <p>
+ * One writer at a time appends to the log, readers never wait for writers and only wait for flushes and
+ * compactions while the set of tables is swapped.
+ */
+final class LsmStore implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LsmStore.class);
+
+    static final int LEVEL_COUNT = 7;
+    private static final String TABLE_EXTENSION = ".sst";
+    private static final String LOG_EXTENSION = ".log";
+    private static final String LOCK_FILE_NAME = "LOCK";
+
+    private final Path folder;
+    private final LsmOptions options;
+    private final String storeId;
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private final AtomicLong nextFileNumber;
+    private final Object writeMutex = new Object();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "lsm-store-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long lastSequence;
+    private long memtableBytes;
+    private ConcurrentSkipListMap<String, LsmEntry> memtable = new ConcurrentSkipListMap<>();
+    private CommitLog commitLog;
+    private final Deque<Memtable> immutables = new ArrayDeque<>();
+    private final List<List<SSTable>> levels = new ArrayList<>();
+    private final String[] compactPointers = new String[LEVEL_COUNT];
+    private volatile boolean closed;
+
+    private LsmStore(Path folder,
+                     LsmOptions options,
+                     String storeId,
+                     FileChannel lockChannel,
+                     FileLock fileLock,
+                     long nextFileNumber) {
+        this.folder = folder;
+        this.options = options;
+        this.storeId = storeId;
+        this.lockChannel = lockChannel;
+        this.fileLock = fileLock;
+        this.nextFileNumber = new AtomicLong(nextFileNumber);
+        for(int level = 0; level < LEVEL_COUNT; level++) {
+            levels.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Opens the store in the folder, creating it when missing. Batches left in commit logs are flushed to
+     * a level 0 table before the store accepts writes.
+     */
+    static LsmStore open(Path folder, LsmOptions options) throws IOException {
+        Files.createDirectories(folder);
+        FileChannel lockChannel = FileChannel.open(folder.resolve(LOCK_FILE_NAME),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+        FileLock fileLock = lockChannel.tryLock();
+        if(fileLock == null) {
+            lockChannel.close();
+            throw new IOException("Store " + folder + " is used by another process");
+        }
+
+        Manifest manifest;
+        if(Files.exists(folder.resolve(Manifest.FILE_NAME))) {
+            manifest = Manifest.read(folder, LEVEL_COUNT);
+        } else {
+            manifest = new Manifest(UUID.randomUUID().toString().replace("-", ""), 1, new ArrayList<>());
+        }
+
+        LsmStore store = new LsmStore(folder, options, manifest.getStoreId(), lockChannel, fileLock,
+            Math.max(manifest.getNextFileNumber(), getMaxFileNumber(folder) + 1));
+        try {
+            store.load(manifest);
+        } catch(IOException | RuntimeException ex) {
+            store.close();
+            throw ex;
+        }
+        return store;
+    }
+
+    String getStoreId() {
+        return storeId;
+    }
+
+    /**
+     * Applies the batch atomically and returns the sequence number of its entries.
+     */
+    long write(WriteBatch batch) throws IOException {
+        synchronized(writeMutex) {
+            if(closed) {
+                throw new IOException("Store " + folder + " is closed");
+            }
+
+            long sequence = lastSequence + 1;
+            commitLog.append(sequence, batch);
+            lastSequence = sequence;
+            for(int i = 0; i < batch.getKeys().size(); i++) {
+                LsmEntry entry = new LsmEntry(batch.getKeys().get(i), sequence, batch.getValues().get(i));
+                memtable.put(entry.getKey(), entry);
+                memtableBytes += entry.getSize();
+            }
+            if(memtableBytes >= options.memtableSize) {
+                rotateMemtable();
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Latest live version of the key.
+     */
+    Optional<LsmEntry> get(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            LsmEntry entry = memtable.get(key);
+            if(entry != null) {
+                return live(entry);
+            }
+            for(Memtable immutable : immutables) {
+                entry = immutable.entries.get(key);
+                if(entry != null) {
+                    return live(entry);
+                }
+            }
+            for(SSTable table : levels.get(0)) {
+                Optional<LsmEntry> tableEntry = table.get(key);
+                if(tableEntry.isPresent()) {
+                    return live(tableEntry.get());
+                }
+            }
+            for(int level = 1; level < LEVEL_COUNT; level++) {
+                SSTable table = findTable(levels.get(level), key);
+                if(table != null) {
+                    Optional<LsmEntry> tableEntry = table.get(key);
+                    if(tableEntry.isPresent()) {
+                        return live(tableEntry.get());
+                    }
+                }
+            }
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Latest live versions of the keys starting with the prefix, in key order.
+     */
+    List<LsmEntry> scan(String prefix) {
+        lock.readLock().lock();
+        try {
+            List<Iterator<LsmEntry>> sources = new ArrayList<>();
+            sources.add(memtable.tailMap(prefix).values().iterator());
+            for(Memtable immutable : immutables) {
+                sources.add(immutable.entries.tailMap(prefix).values().iterator());
+            }
+            for(List<SSTable> level : levels) {
+                for(SSTable table : level) {
+                    if(table.overlapsPrefix(prefix)) {
+                        sources.add(table.iterator(prefix));
+                    }
+                }
+            }
+
+            List<LsmEntry> entries = new ArrayList<>();
+            MergingIterator merged = new MergingIterator(sources);
+            while(merged.hasNext()) {
+                LsmEntry entry = merged.next();
+                if(!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                if(!entry.isTombstone()) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the memtable and waits for the flush and the compactions it triggers.
+     */
+    void flush() throws IOException {
+        synchronized(writeMutex) {
+            if(!memtable.isEmpty()) {
+                rotateMemtable();
+            }
+        }
+        try {
+            compactor.submit(() -> { }).get();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch(ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    int getTableCount(int level) {
+        lock.readLock().lock();
+        try {
+            return levels.get(level).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        compactor.shutdown();
+        try {
+            if(!compactor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warn("Store {} closed before its compaction finished", folder);
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized(writeMutex) {
+            if(commitLog != null) {
+                commitLog.close();
+            }
+            for(Memtable immutable : immutables) {
+                immutable.commitLog.close();
+            }
+        }
+        for(List<SSTable> level : levels) {
+            for(SSTable table : level) {
+                table.close();
+            }
+        }
+        fileLock.release();
+        lockChannel.close();
+    }
+
+    private void load(Manifest manifest) throws IOException {
+        Set<Long> liveTables = new HashSet<>();
+        for(int level = 0; level < manifest.getLevels().size(); level++) {
+            for(long number : manifest.getLevels().get(level)) {
+                SSTable table = SSTable.open(number, getTablePath(number));
+                levels.get(level).add(table);
+                liveTables.add(number);
+                lastSequence = Math.max(lastSequence, table.getMaxSequence());
+            }
+        }
+        for(Path path : listFiles(TABLE_EXTENSION)) {
+            if(!liveTables.contains(getFileNumber(path))) {
+                LOGGER.info("Delete table {} missing from the manifest", path);
+                Files.delete(path);
+            }
+        }
+
+        List<Path> logs = listFiles(LOG_EXTENSION);
+        ConcurrentSkipListMap<String, LsmEntry> replayed = new ConcurrentSkipListMap<>();
+        for(Path log : logs) {
+            CommitLog.replay(log, entry -> {
+                replayed.merge(entry.getKey(), entry, LsmStore::latest);
+                lastSequence = Math.max(lastSequence, entry.getSequence());
+            });
+        }
+        if(!replayed.isEmpty()) {
+            LOGGER.info("Recover {} entries of store {} from {} commit logs", replayed.size(), folder, logs.size());
+            levels.get(0).add(0, writeTable(new ArrayList<>(replayed.values())));
+        }
+        writeManifest(getManifest());
+        for(Path log : logs) {
+            Files.delete(log);
+        }
+
+        long number = nextFileNumber.getAndIncrement();
+        commitLog = CommitLog.open(number, getLogPath(number), options.sync);
+    }
+
+    /**
+     * Swaps the memtable for an empty one with a new commit log and schedules its flush. Called with the
+     * write mutex held.
+     */
+    private void rotateMemtable() throws IOException {
+        long number = nextFileNumber.getAndIncrement();
+        CommitLog newCommitLog = CommitLog.open(number, getLogPath(number), options.sync);
+        lock.writeLock().lock();
+        try {
+            immutables.addFirst(new Memtable(memtable, commitLog));
+            memtable = new ConcurrentSkipListMap<>();
+            commitLog = newCommitLog;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        memtableBytes = 0;
+        compactor.execute(this::flushAndCompact);
+    }
+
+    private void flushAndCompact() {
+        try {
+            Memtable oldest;
+            while((oldest = getOldestImmutable()) != null) {
+                flush(oldest);
+            }
+            while(!closed) {
+                int level = getCompactionLevel();
+                if(level < 0) {
+                    break;
+                }
+                compact(level);
+            }
+        } catch(Exception ex) {
+            LOGGER.error("Error on flushing or compacting store {}", folder, ex);
+        }
+    }
+
+    private Memtable getOldestImmutable() {
+        lock.readLock().lock();
+        try {
+            return immutables.peekLast();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void flush(Memtable immutable) throws IOException {
+        SSTable table = writeTable(new ArrayList<>(immutable.entries.values()));
+        Manifest manifest;
+        lock.writeLock().lock();
+        try {
+            levels.get(0).add(0, table);
+            immutables.removeLast();
+            manifest = getManifest();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeManifest(manifest);
+        immutable.commitLog.close();
+        Files.deleteIfExists(immutable.commitLog.getPath());
+        LOGGER.debug("Flushed {} entries of store {} to table {}", table.getEntryCount(), folder, table.getNumber());
+    }
+
+    private int getCompactionLevel() throws IOException {
+        lock.readLock().lock();
+        try {
+            if(levels.get(0).size() >= options.level0Tables) {
+                return 0;
+            }
+            long maxBytes = options.levelSize;
+            for(int level = 1; level < LEVEL_COUNT - 1; level++) {
+                if(getLevelBytes(level) > maxBytes) {
+                    return level;
+                }
+                maxBytes *= 10;
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges tables of the level into the next one: every table of level 0 or one table, round robin, of
+     * the other levels, together with the overlapping tables of the next level.
+     */
+    private void compact(int level) throws IOException {
+        List<SSTable> inputs = new ArrayList<>();
+        List<SSTable> overlapping = new ArrayList<>();
+        boolean dropTombstones;
+        String toKey;
+        lock.readLock().lock();
+        try {
+            if(level == 0) {
+                inputs.addAll(levels.get(0));
+            } else {
+                inputs.add(pickTable(level));
+            }
+            String inputsFromKey = inputs.stream().map(SSTable::getFirstKey).min(Comparator.naturalOrder()).get();
+            String inputsToKey = inputs.stream().map(SSTable::getLastKey).max(Comparator.naturalOrder()).get();
+            for(SSTable table : levels.get(level + 1)) {
+                if(table.overlaps(inputsFromKey, inputsToKey)) {
+                    overlapping.add(table);
+                }
+            }
+            // the overlapping tables may reach beyond the inputs and the merge covers all of their keys
+            List<SSTable> tables = new ArrayList<>(inputs);
+            tables.addAll(overlapping);
+            String fromKey = tables.stream().map(SSTable::getFirstKey).min(Comparator.naturalOrder()).get();
+            toKey = tables.stream().map(SSTable::getLastKey).max(Comparator.naturalOrder()).get();
+            dropTombstones = true;
+            for(int deeperLevel = level + 2; deeperLevel < LEVEL_COUNT; deeperLevel++) {
+                for(SSTable table : levels.get(deeperLevel)) {
+                    dropTombstones &= !table.overlaps(fromKey, toKey);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Iterator<LsmEntry>> sources = new ArrayList<>();
+        for(SSTable table : inputs) {
+            sources.add(table.iterator(""));
+        }
+        for(SSTable table : overlapping) {
+            sources.add(table.iterator(""));
+        }
+        List<SSTable> outputs = new ArrayList<>();
+        List<LsmEntry> entries = new ArrayList<>();
+        long bytes = 0;
+        MergingIterator merged = new MergingIterator(sources);
+        while(merged.hasNext()) {
+            LsmEntry entry = merged.next();
+            if(entry.isTombstone() && dropTombstones) {
+                continue;
+            }
+            entries.add(entry);
+            bytes += entry.getSize();
+            if(bytes >= options.tableSize) {
+                outputs.add(writeTable(entries));
+                entries = new ArrayList<>();
+                bytes = 0;
+            }
+        }
+        if(!entries.isEmpty()) {
+            outputs.add(writeTable(entries));
+        }
+
+        Manifest manifest;
+        lock.writeLock().lock();
+        try {
+            levels.get(level).removeAll(inputs);
+            levels.get(level + 1).removeAll(overlapping);
+            levels.get(level + 1).addAll(outputs);
+            levels.get(level + 1).sort(Comparator.comparing(SSTable::getFirstKey));
+            compactPointers[level] = toKey;
+            manifest = getManifest();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeManifest(manifest);
+        for(SSTable table : Stream.concat(inputs.stream(), overlapping.stream()).collect(toList())) {
+            table.close();
+            Files.deleteIfExists(table.getPath());
+        }
+        LOGGER.debug("Compacted {} tables of level {} and {} of level {} of store {} into {} tables",
+            inputs.size(), level, overlapping.size(), level + 1, folder, outputs.size());
+    }
+
+    private SSTable pickTable(int level) {
+        List<SSTable> tables = levels.get(level);
+        String pointer = compactPointers[level];
+        if(pointer != null) {
+            for(SSTable table : tables) {
+                if(table.getFirstKey().compareTo(pointer) > 0) {
+                    return table;
+                }
+            }
+        }
+        return tables.get(0);
+    }
+
+    private long getLevelBytes(int level) throws IOException {
+        long bytes = 0;
+        for(SSTable table : levels.get(level)) {
+            bytes += table.getSize();
+        }
+        return bytes;
+    }
+
+    private SSTable writeTable(List<LsmEntry> entries) throws IOException {
+        long number = nextFileNumber.getAndIncrement();
+        Path path = getTablePath(number);
+        SSTable.write(path, entries);
+        return SSTable.open(number, path);
+    }
+
+    private Manifest getManifest() {
+        List<List<Long>> tables = new ArrayList<>();
+        for(List<SSTable> level : levels) {
+            tables.add(level.stream().map(SSTable::getNumber).collect(toList()));
+        }
+        return new Manifest(storeId, nextFileNumber.get(), tables);
+    }
+
+    private void writeManifest(Manifest manifest) throws IOException {
+        manifest.write(folder);
+    }
+
+    private Path getTablePath(long number) {
+        return folder.resolve(String.format("%08d%s", number, TABLE_EXTENSION));
+    }
+
+    private Path getLogPath(long number) {
+        return folder.resolve(String.format("%08d%s", number, LOG_EXTENSION));
+    }
+
+    private List<Path> listFiles(String extension) throws IOException {
+        try(Stream<Path> paths = Files.list(folder)) {
+            return paths
+                .filter(p -> p.getFileName().toString().endsWith(extension))
+                .sorted(Comparator.comparing(LsmStore::getFileNumber))
+                .collect(toList());
+        }
+    }
+
+    private static long getMaxFileNumber(Path folder) throws IOException {
+        try(Stream<Path> paths = Files.list(folder)) {
+            return paths
+                .filter(p -> p.getFileName().toString().endsWith(TABLE_EXTENSION)
+                    || p.getFileName().toString().endsWith(LOG_EXTENSION))
+                .mapToLong(LsmStore::getFileNumber)
+                .max()
+                .orElse(0);
+        }
+    }
+
+    private static long getFileNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    private static SSTable findTable(List<SSTable> tables, String key) {
+        int low = 0;
+        int high = tables.size() - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            SSTable table = tables.get(middle);
+            if(table.getLastKey().compareTo(key) < 0) {
+                low = middle + 1;
+            } else if(table.getFirstKey().compareTo(key) > 0) {
+                high = middle - 1;
+            } else {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private static Optional<LsmEntry> live(LsmEntry entry) {
+        return entry.isTombstone() ? Optional.empty() : Optional.of(entry);
+    }
+
+    private static LsmEntry latest(LsmEntry e1, LsmEntry e2) {
+        return e1.getSequence() >= e2.getSequence() ? e1 : e2;
+    }
+
+    private static final class Memtable {
+        private final ConcurrentSkipListMap<String, LsmEntry> entries;
+        private final CommitLog commitLog;
+
+        private Memtable(ConcurrentSkipListMap<String, LsmEntry> entries, CommitLog commitLog) {
+            this.entries = entries;
+            this.commitLog = commitLog;
+        }
+    }
+
+    /**
+     * Merges sorted sources into one sorted sequence with only the latest version of every key.
+     */
+    private static final class MergingIterator implements Iterator<LsmEntry> {
+        private final PriorityQueue<Source> sources = new PriorityQueue<>(
+            Comparator.comparing((Source s) -> s.head.getKey())
+                .thenComparing(s -> s.head.getSequence(), Comparator.reverseOrder()));
+
+        private MergingIterator(List<Iterator<LsmEntry>> iterators) {
+            for(Iterator<LsmEntry> iterator : iterators) {
+                if(iterator.hasNext()) {
+                    sources.add(new Source(iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !sources.isEmpty();
+        }
+
+        @Override
+        public LsmEntry next() {
+            Source source = sources.poll();
+            LsmEntry entry = source.head;
+            advance(source);
+            while(!sources.isEmpty() && sources.peek().head.getKey().equals(entry.getKey())) {
+                advance(sources.poll());
+            }
+            return entry;
+        }
+
+        private void advance(Source source) {
+            if(source.iterator.hasNext()) {
+                source.head = source.iterator.next();
+                sources.add(source);
+            }
+        }
+
+        private static final class Source {
+            private final Iterator<LsmEntry> iterator;
+            private LsmEntry head;
+
+            private Source(Iterator<LsmEntry> iterator) {
+                this.iterator = iterator;
+                this.head = iterator.next();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Live tables of every level, rewritten and atomically swapped after each flush and compaction. Table
+ * files left out of the manifest by a crash are deleted on open.
+ * <p>
+ * Layout: one <code>store &lt;id&gt;</code> line, one <code>next-file &lt;number&gt;</code> line and one
+ * <code>table &lt;level&gt; &lt;number&gt;</code> line per table, tables of a level in read order.
+ */
+final class Manifest {
+    static final String FILE_NAME = "MANIFEST";
+
+    private final String storeId;
+    private final long nextFileNumber;
+    private final List<List<Long>> levels;
+
+    Manifest(String storeId, long nextFileNumber, List<List<Long>> levels) {
+        this.storeId = storeId;
+        this.nextFileNumber = nextFileNumber;
+        this.levels = levels;
+    }
+
+    String getStoreId() {
+        return storeId;
+    }
+
+    long getNextFileNumber() {
+        return nextFileNumber;
+    }
+
+    List<List<Long>> getLevels() {
+        return levels;
+    }
+
+    static Manifest read(Path folder, int levelCount) throws IOException {
+        String storeId = null;
+        long nextFileNumber = 1;
+        List<List<Long>> levels = new ArrayList<>();
+        for(int i = 0; i < levelCount; i++) {
+            levels.add(new ArrayList<>());
+        }
+
+        for(String line : Files.readAllLines(folder.resolve(FILE_NAME), UTF_8)) {
+            String[] fields = line.trim().split(" ");
+            switch(fields[0]) {
+                case "store":
+                    storeId = fields[1];
+                    break;
+                case "next-file":
+                    nextFileNumber = Long.parseLong(fields[1]);
+                    break;
+                case "table":
+                    levels.get(Integer.parseInt(fields[1])).add(Long.parseLong(fields[2]));
+                    break;
+                default:
+                    throw new IOException("Unknown manifest line " + line);
+            }
+        }
+        if(storeId == null) {
+            throw new IOException("Manifest of " + folder + " has no store id");
+        }
+        return new Manifest(storeId, nextFileNumber, levels);
+    }
+
+    void write(Path folder) throws IOException {
+        StringBuilder content = new StringBuilder()
+            .append("store ").append(storeId).append('\n')
+            .append("next-file ").append(nextFileNumber).append('\n');
+        for(int level = 0; level < levels.size(); level++) {
+            for(long number : levels.get(level)) {
+                content.append("table ").append(level).append(' ').append(number).append('\n');
+            }
+        }
+
+        Path tmp = folder.resolve(FILE_NAME + ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(content.toString().getBytes(UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tmp, folder.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,376 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Immutable, sorted table of entries on disk.
+ * <p>
+ * Entries are grouped in blocks of {@link #BLOCK_ENTRIES}; the first key and the offset of every block are
+ * kept in memory, together with the bloom filter, so a lookup reads at most one block and a lookup of a
+ * missing key usually reads nothing.
+ * <p>
+ * Layout: <code>entry* | index | bloom | meta | long indexOffset | long bloomOffset | long metaOffset | int magic</code>
+ * where entry is <code>int keyLength | key | long sequence | int valueLength (-1 for tombstones) | value</code>.
+ */
+final class SSTable implements Closeable {
+    private static final int MAGIC = 0x4C534D31;
+    private static final int FOOTER_LENGTH = 3 * Long.BYTES + Integer.BYTES;
+    private static final int BLOCK_ENTRIES = 16;
+    private static final int TOMBSTONE_LENGTH = -1;
+
+    private final long number;
+    private final Path path;
+    private final FileChannel channel;
+    private final String[] blockKeys;
+    private final long[] blockOffsets;
+    private final long dataLength;
+    private final BloomFilter bloomFilter;
+    private final String firstKey;
+    private final String lastKey;
+    private final long entryCount;
+    private final long maxSequence;
+
+    private SSTable(long number,
+                    Path path,
+                    FileChannel channel,
+                    String[] blockKeys,
+                    long[] blockOffsets,
+                    long dataLength,
+                    BloomFilter bloomFilter,
+                    String firstKey,
+                    String lastKey,
+                    long entryCount,
+                    long maxSequence) {
+        this.number = number;
+        this.path = path;
+        this.channel = channel;
+        this.blockKeys = blockKeys;
+        this.blockOffsets = blockOffsets;
+        this.dataLength = dataLength;
+        this.bloomFilter = bloomFilter;
+        this.firstKey = firstKey;
+        this.lastKey = lastKey;
+        this.entryCount = entryCount;
+        this.maxSequence = maxSequence;
+    }
+
+    /**
+     * Writes the sorted entries to a new table and forces it to disk.
+     */
+    static void write(Path path, List<LsmEntry> entries) throws IOException {
+        List<String> blockKeys = new ArrayList<>();
+        List<Long> blockOffsets = new ArrayList<>();
+        BloomFilter bloomFilter = BloomFilter.create(entries.size());
+        long maxSequence = 0;
+
+        try(FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            CountingOutputStream counter = new CountingOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counter, 64 * 1024));
+            long offset = 0;
+            for(int i = 0; i < entries.size(); i++) {
+                LsmEntry entry = entries.get(i);
+                if(i % BLOCK_ENTRIES == 0) {
+                    blockKeys.add(entry.getKey());
+                    blockOffsets.add(offset);
+                }
+                byte[] key = entry.getKey().getBytes(UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(entry.getSequence());
+                if(entry.isTombstone()) {
+                    out.writeInt(TOMBSTONE_LENGTH);
+                } else {
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+                offset += Integer.BYTES + key.length + Long.BYTES + Integer.BYTES
+                    + (entry.isTombstone() ? 0 : entry.getValue().length);
+                bloomFilter.add(entry.getKey());
+                maxSequence = Math.max(maxSequence, entry.getSequence());
+            }
+            out.flush();
+
+            long indexOffset = counter.getCount();
+            out.writeInt(blockKeys.size());
+            for(int i = 0; i < blockKeys.size(); i++) {
+                byte[] key = blockKeys.get(i).getBytes(UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(blockOffsets.get(i));
+            }
+            out.flush();
+
+            long bloomOffset = counter.getCount();
+            ByteBuffer bloom = ByteBuffer.allocate(bloomFilter.getSerializedSize());
+            bloomFilter.writeTo(bloom);
+            out.write(bloom.array());
+            out.flush();
+
+            long metaOffset = counter.getCount();
+            byte[] firstKey = entries.isEmpty() ? new byte[0] : entries.get(0).getKey().getBytes(UTF_8);
+            byte[] lastKey = entries.isEmpty() ? new byte[0] : entries.get(entries.size() - 1).getKey().getBytes(UTF_8);
+            out.writeInt(firstKey.length);
+            out.write(firstKey);
+            out.writeInt(lastKey.length);
+            out.write(lastKey);
+            out.writeLong(entries.size());
+            out.writeLong(maxSequence);
+
+            out.writeLong(indexOffset);
+            out.writeLong(bloomOffset);
+            out.writeLong(metaOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    static SSTable open(long number, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if(size < FOOTER_LENGTH) {
+                throw new IOException("Table " + path + " is truncated");
+            }
+            ByteBuffer footer = read(channel, size - FOOTER_LENGTH, FOOTER_LENGTH);
+            long indexOffset = footer.getLong();
+            long bloomOffset = footer.getLong();
+            long metaOffset = footer.getLong();
+            if(footer.getInt() != MAGIC) {
+                throw new IOException("Table " + path + " has no valid footer");
+            }
+
+            ByteBuffer index = read(channel, indexOffset, (int) (bloomOffset - indexOffset));
+            int blockCount = index.getInt();
+            String[] blockKeys = new String[blockCount];
+            long[] blockOffsets = new long[blockCount];
+            for(int i = 0; i < blockCount; i++) {
+                blockKeys[i] = readString(index);
+                blockOffsets[i] = index.getLong();
+            }
+
+            BloomFilter bloomFilter = BloomFilter.readFrom(read(channel, bloomOffset, (int) (metaOffset - bloomOffset)));
+
+            ByteBuffer meta = read(channel, metaOffset, (int) (size - FOOTER_LENGTH - metaOffset));
+            String firstKey = readString(meta);
+            String lastKey = readString(meta);
+            long entryCount = meta.getLong();
+            long maxSequence = meta.getLong();
+
+            return new SSTable(number, path, channel, blockKeys, blockOffsets, indexOffset, bloomFilter,
+                firstKey, lastKey, entryCount, maxSequence);
+        } catch(IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    long getNumber() {
+        return number;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    String getFirstKey() {
+        return firstKey;
+    }
+
+    String getLastKey() {
+        return lastKey;
+    }
+
+    long getEntryCount() {
+        return entryCount;
+    }
+
+    long getMaxSequence() {
+        return maxSequence;
+    }
+
+    long getSize() throws IOException {
+        return channel.size();
+    }
+
+    boolean overlaps(String fromKey, String toKey) {
+        return entryCount > 0 && firstKey.compareTo(toKey) <= 0 && lastKey.compareTo(fromKey) >= 0;
+    }
+
+    boolean overlapsPrefix(String prefix) {
+        return entryCount > 0
+            && (lastKey.compareTo(prefix) >= 0)
+            && (firstKey.compareTo(prefix) <= 0 || firstKey.startsWith(prefix));
+    }
+
+    Optional<LsmEntry> get(String key) throws IOException {
+        if(entryCount == 0
+            || key.compareTo(firstKey) < 0
+            || key.compareTo(lastKey) > 0
+            || !bloomFilter.mightContain(key)) {
+            return Optional.empty();
+        }
+
+        int block = findBlock(key);
+        ByteBuffer buffer = readBlock(block);
+        while(buffer.hasRemaining()) {
+            LsmEntry entry = readEntry(buffer);
+            int comparison = entry.getKey().compareTo(key);
+            if(comparison == 0) {
+                return Optional.of(entry);
+            }
+            if(comparison > 0) {
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Iterates the entries in key order starting with the first key not lower than the given one.
+     */
+    Iterator<LsmEntry> iterator(String fromKey) {
+        return new Iterator<LsmEntry>() {
+            private int block = Math.max(0, findBlock(fromKey));
+            private ByteBuffer buffer;
+            private LsmEntry next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public LsmEntry next() {
+                if(next == null) {
+                    throw new NoSuchElementException();
+                }
+                LsmEntry entry = next;
+                next = advance();
+                return entry;
+            }
+
+            private LsmEntry advance() {
+                try {
+                    while(true) {
+                        if(buffer == null || !buffer.hasRemaining()) {
+                            if(block >= blockOffsets.length) {
+                                return null;
+                            }
+                            buffer = readBlock(block++);
+                        }
+                        LsmEntry entry = readEntry(buffer);
+                        if(entry.getKey().compareTo(fromKey) >= 0) {
+                            return entry;
+                        }
+                    }
+                } catch(IOException ex) {
+                    throw new LsmDaoException(ex);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Index of the last block whose first key is not greater than the key, or -1 when there is none.
+     */
+    private int findBlock(String key) {
+        int low = 0;
+        int high = blockKeys.length - 1;
+        int block = -1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            if(blockKeys[middle].compareTo(key) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return block;
+    }
+
+    private ByteBuffer readBlock(int block) throws IOException {
+        long start = blockOffsets[block];
+        long end = block + 1 < blockOffsets.length ? blockOffsets[block + 1] : dataLength;
+        return read(channel, start, (int) (end - start));
+    }
+
+    private static LsmEntry readEntry(ByteBuffer buffer) {
+        String key = readString(buffer);
+        long sequence = buffer.getLong();
+        int valueLength = buffer.getInt();
+        byte[] value = null;
+        if(valueLength != TOMBSTONE_LENGTH) {
+            value = new byte[valueLength];
+            buffer.get(value);
+        }
+        return new LsmEntry(key, sequence, value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of table");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private long count;
+
+        CountingOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while(buffer.hasRemaining()) {
+                count += channel.write(buffer);
+            }
+        }
+    }
+
+}
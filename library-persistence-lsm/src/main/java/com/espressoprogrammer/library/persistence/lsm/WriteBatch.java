@@ -0,0 +1,38 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Puts and deletes applied atomically, with one sequence number, by {@link LsmStore#write(WriteBatch)}.
+ */
+final class WriteBatch {
+    private final List<String> keys = new ArrayList<>();
+    private final List<byte[]> values = new ArrayList<>();
+
+    WriteBatch put(String key, byte[] value) {
+        keys.add(key);
+        values.add(value);
+        return this;
+    }
+
+    WriteBatch delete(String key) {
+        keys.add(key);
+        values.add(null);
+        return this;
+    }
+
+    List<String> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<byte[]> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LsmBooksDaoTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+    private static final String JANE_DOE_USER = "janedoe";
+
+    private LsmStorage lsmStorage;
+    private LsmBooksDao booksDao;
+
+    @Before
+    public void init() throws Exception {
+        lsmStorage = new LsmStorage();
+        lsmStorage.libraryFolder = System.getProperty(TMPDIR) + "/library-" + System.nanoTime();
+        lsmStorage.sync = false;
+        lsmStorage.open();
+        booksDao = new LsmBooksDao();
+        booksDao.lsmStorage = lsmStorage;
+    }
+
+    @After
+    public void clear() throws Exception {
+        lsmStorage.close();
+        FileSystemUtils.deleteRecursively(Paths.get(lsmStorage.libraryFolder));
+    }
+
+    @Test
+    public void getNoUserBooks() throws Exception {
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).isEmpty();
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER).getLastModified()).isEqualTo(0);
+    }
+
+    @Test
+    public void createReadUpdateAndDeleteUserBook() throws Exception {
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getBook(null, "1"));
+        booksDao.createUserBook(JANE_DOE_USER, getBook(null, "2"));
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).contains(book);
+
+        Book updatedBook = getBook(book.getUuid(), "3");
+        assertThat(booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), updatedBook)).contains(book.getUuid());
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).contains(updatedBook);
+        assertThat(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-0", updatedBook)).isEmpty();
+
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid())).contains(book.getUuid());
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).isEmpty();
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid())).isEmpty();
+        assertThat(booksDao.getUserBooks(JANE_DOE_USER)).hasSize(1);
+    }
+
+    @Test
+    public void getUserBooksByIsbn() throws Exception {
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getBook(null, "1"));
+        booksDao.createUserBook(JOHN_DOE_USER, getBook(null, "2"));
+
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", null)).containsExactly(book);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, null, "isbn13-1")).containsExactly(book);
+
+        booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), getBook(book.getUuid(), "3"));
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-1")).isEmpty();
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-3", null)).hasSize(1);
+    }
+
+    @Test
+    public void getUserBooksPage() throws Exception {
+        for(int i = 0; i < 5; i++) {
+            booksDao.createUserBook(JOHN_DOE_USER, getBook(null, String.valueOf(i)));
+        }
+
+        Page<Book> page = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 3, false));
+        assertThat(page.getItems()).hasSize(3);
+        Page<Book> nextPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(page.getNextCursor(), 3, false));
+        assertThat(nextPage.getItems()).hasSize(2);
+        assertThat(nextPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void userBooksVersionSurvivesReopen() throws Exception {
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getBook(null, "1"));
+        DataVersion version = booksDao.getUserBooksVersion(JOHN_DOE_USER);
+        Optional<DataVersion> bookVersion = booksDao.getUserBookVersion(JOHN_DOE_USER, book.getUuid());
+        assertThat(bookVersion).isPresent();
+
+        lsmStorage.close();
+        lsmStorage.open();
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER)).isEqualTo(version);
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, book.getUuid())).isEqualTo(bookVersion);
+
+        booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), getBook(book.getUuid(), "2"));
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER).getTag()).isNotEqualTo(version.getTag());
+    }
+
+    private static Book getBook(String uuid, String suffix) {
+        return new Book(uuid,
+            "isbn10-" + suffix,
+            "isbn13-" + suffix,
+            "Title " + suffix,
+            Arrays.asList("First" + suffix + " Last" + suffix),
+            "image-" + suffix,
+            100);
+    }
+
+}
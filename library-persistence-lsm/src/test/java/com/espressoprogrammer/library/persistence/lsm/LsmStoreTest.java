@@ -0,0 +1,136 @@
+package com.espressoprogrammer.library.persistence.lsm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LsmStoreTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+
+    private Path folder;
+    private LsmOptions options;
+    private LsmStore store;
+
+    @Before
+    public void init() throws Exception {
+        folder = Paths.get(System.getProperty(TMPDIR), "lsm-" + System.nanoTime());
+        options = new LsmOptions();
+        options.memtableSize = 1024;
+        options.tableSize = 1024;
+        options.level0Tables = 2;
+        options.levelSize = 4 * 1024;
+        options.sync = false;
+        store = LsmStore.open(folder, options);
+    }
+
+    @After
+    public void clear() throws Exception {
+        store.close();
+        FileSystemUtils.deleteRecursively(folder);
+    }
+
+    @Test
+    public void putGetAndDelete() throws Exception {
+        long sequence = store.write(new WriteBatch().put("key-1", bytes("value-1")));
+
+        Optional<LsmEntry> entry = store.get("key-1");
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getValue()).isEqualTo(bytes("value-1"));
+        assertThat(entry.get().getSequence()).isEqualTo(sequence);
+
+        store.write(new WriteBatch().delete("key-1"));
+        assertThat(store.get("key-1")).isEmpty();
+        assertThat(store.get("key-2")).isEmpty();
+    }
+
+    @Test
+    public void scanPrefix() throws Exception {
+        store.write(new WriteBatch()
+            .put("a/2", bytes("2"))
+            .put("a/1", bytes("1"))
+            .put("ab/1", bytes("x"))
+            .put("b/1", bytes("y")));
+        store.flush();
+        store.write(new WriteBatch()
+            .put("a/3", bytes("3"))
+            .delete("a/2"));
+
+        assertThat(getKeys(store.scan("a/"))).containsExactly("a/1", "a/3");
+    }
+
+    @Test
+    public void reopenStore() throws Exception {
+        String storeId = store.getStoreId();
+        store.write(new WriteBatch().put("flushed", bytes("1")));
+        store.flush();
+        long sequence = store.write(new WriteBatch().put("logged", bytes("2")));
+        store.close();
+
+        store = LsmStore.open(folder, options);
+        assertThat(store.getStoreId()).isEqualTo(storeId);
+        assertThat(store.get("flushed").map(LsmEntry::getValue)).contains(bytes("1"));
+        assertThat(store.get("logged").map(LsmEntry::getSequence)).contains(sequence);
+        assertThat(store.write(new WriteBatch().put("next", bytes("3")))).isGreaterThan(sequence);
+    }
+
+    @Test
+    public void compactTables() throws Exception {
+        for(int i = 0; i < 200; i++) {
+            store.write(new WriteBatch().put(String.format("key-%03d", i), new byte[64]));
+        }
+        for(int i = 0; i < 200; i += 2) {
+            store.write(new WriteBatch().delete(String.format("key-%03d", i)));
+        }
+        store.flush();
+
+        assertThat(store.getTableCount(0)).isLessThan(options.level0Tables);
+        assertThat(store.getTableCount(1) + store.getTableCount(2)).isGreaterThan(0);
+        List<String> keys = getKeys(store.scan("key-"));
+        assertThat(keys).hasSize(100);
+        assertThat(keys).allMatch(key -> Integer.parseInt(key.substring(4)) % 2 == 1);
+        assertThat(store.get("key-001")).isPresent();
+        assertThat(store.get("key-000")).isEmpty();
+    }
+
+    @Test
+    public void keepTombstonesOfOverlappingTablesAboveOlderValues() throws Exception {
+        store.close();
+        options.level0Tables = 1;
+        options.levelSize = 1;
+        store = LsmStore.open(folder, options);
+        store.write(new WriteBatch().put("b", bytes("1")));
+        store.flush();
+        assertThat(store.getTableCount(0) + store.getTableCount(1)).isEqualTo(0);
+
+        store.close();
+        options.levelSize = 4 * 1024;
+        store = LsmStore.open(folder, options);
+        store.write(new WriteBatch().put("a", bytes("2")).delete("b").put("z", bytes("3")));
+        store.flush();
+        assertThat(store.get("b")).isEmpty();
+
+        store.write(new WriteBatch().put("m", bytes("4")));
+        store.flush();
+        assertThat(store.get("b")).isEmpty();
+        assertThat(getKeys(store.scan(""))).containsExactly("a", "m", "z");
+    }
+
+    private static List<String> getKeys(List<LsmEntry> entries) {
+        return entries.stream().map(LsmEntry::getKey).collect(toList());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+}
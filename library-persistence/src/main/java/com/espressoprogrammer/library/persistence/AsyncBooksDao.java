@@ -0,0 +1,23 @@
+package com.espressoprogrammer.library.persistence;
+
+import com.espressoprogrammer.library.dto.Book;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link BooksDao}; the futures complete on the storage I/O threads.
+ */
+public interface AsyncBooksDao {
+
+    CompletableFuture<List<Book>> getUserBooks(String user, String searchText);
+
+    CompletableFuture<Optional<Book>> getUserBook(String user, String uuid);
+
+    CompletableFuture<Book> createUserBook(String user, Book book);
+
+    CompletableFuture<Optional<String>> updateUserBook(String user, String uuid, Book book);
+
+    CompletableFuture<Optional<String>> deleteUserBook(String user, String uuid);
+}
@@ -0,0 +1,23 @@
+package com.espressoprogrammer.library.persistence;
+
+import com.espressoprogrammer.library.dto.ReadingSession;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link ReadingSessionsDao}; the futures complete on the storage I/O threads.
+ */
+public interface AsyncReadingSessionsDao {
+
+    CompletableFuture<List<ReadingSession>> getUserReadingSessions(String user, String bookUuid);
+
+    CompletableFuture<Optional<ReadingSession>> getUserReadingSession(String user, String bookUuid, String uuid);
+
+    CompletableFuture<ReadingSession> createUserReadingSession(String user, String bookUuid, ReadingSession readingSession);
+
+    CompletableFuture<Optional<String>> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession);
+
+    CompletableFuture<Optional<String>> deleteUserReadingSession(String user, String bookUuid, String uuid);
+}
@@ -4,6 +4,8 @@ import com.espressoprogrammer.library.dto.Book;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface BooksDao {
 
@@ -11,11 +13,48 @@ public interface BooksDao {
 
     List<Book> getUserBooks(String user, String searchText);
 
+    Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest);
+
+    /**
+     * Lazily reads the user books matching the search text. The stream must be closed to release the storage.
+     */
+    Stream<Book> streamUserBooks(String user, String searchText);
+
+    List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13);
+
     Book createUserBook(String user, Book book);
 
+    /**
+     * Creates the books in as few storage writes as the storage allows; by default one by one.
+     */
+    default List<Book> createUserBooks(String user, List<Book> books) {
+        return books.stream()
+            .map(book -> createUserBook(user, book))
+            .collect(Collectors.toList());
+    }
+
     Optional<Book> getUserBook(String user, String uuid);
 
     Optional<String> updateUserBook(String user, String uuid, Book book);
 
     Optional<String> deleteUserBook(String user, String uuid);
+
+    DataVersion getUserBooksVersion(String user);
+
+    Optional<DataVersion> getUserBookVersion(String user, String uuid);
+
+    /**
+     * Loads what the storage keeps in memory for the user ahead of the first request; by default reads all
+     * the user books.
+     */
+    default void warmUpUser(String user) {
+        getUserBooks(user);
+    }
+
+    /**
+     * Loads what the storage keeps in memory for the user without reading the user books, for callers that
+     * read them right after; by default does nothing.
+     */
+    default void warmUpUserStorage(String user) {
+    }
 }
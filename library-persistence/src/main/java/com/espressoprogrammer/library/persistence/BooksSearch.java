@@ -0,0 +1,34 @@
+package com.espressoprogrammer.library.persistence;
+
+import com.espressoprogrammer.library.dto.Book;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class BooksSearch {
+
+    private BooksSearch() {
+    }
+
+    public static boolean matches(Book book, String searchText) {
+        if(StringUtils.isEmpty(searchText)) return true;
+
+        String lowerCaseSearchText = searchText.toLowerCase();
+        return getSearchableValues(book).stream()
+            .anyMatch(value -> value.toLowerCase().contains(lowerCaseSearchText));
+    }
+
+    public static List<String> getSearchableValues(Book book) {
+        return Arrays.asList(book.getTitle() != null ? book.getTitle() : "",
+            book.getIsbn10() != null ? book.getIsbn10() : "",
+            book.getIsbn13() != null ? book.getIsbn13() : "",
+            book.getAuthors().stream().reduce("", (acc, s) -> acc + s + " "));
+    }
+
+    public static boolean matchesIsbn(Book book, String isbn10, String isbn13) {
+        return (!StringUtils.isEmpty(isbn10) && isbn10.equals(book.getIsbn10()))
+            || (!StringUtils.isEmpty(isbn13) && isbn13.equals(book.getIsbn13()));
+    }
+
+}
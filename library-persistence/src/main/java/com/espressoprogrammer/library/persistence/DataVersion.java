@@ -0,0 +1,53 @@
+package com.espressoprogrammer.library.persistence;
+
+import java.util.Objects;
+
+/**
+ * Version of a user item or collection, used to answer conditional requests without loading the data.
+ * <p>
+ * The tag changes whenever the data changes. The last modified time is in epoch milliseconds, or a negative
+ * value when the data can change without being written and only the tag can be trusted.
+ */
+public final class DataVersion {
+
+    private final String tag;
+    private final long lastModified;
+
+    public DataVersion(String tag, long lastModified) {
+        this.tag = tag;
+        this.lastModified = lastModified;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public DataVersion combine(DataVersion other) {
+        long combinedLastModified = lastModified < 0 || other.lastModified < 0
+            ? -1
+            : Math.max(lastModified, other.lastModified);
+        return new DataVersion(tag + "." + other.tag, combinedLastModified);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+        DataVersion that = (DataVersion) o;
+        return lastModified == that.lastModified && tag.equals(that.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag, lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tag=%s, lastModified=%d", tag, lastModified);
+    }
+}
@@ -0,0 +1,55 @@
+package com.espressoprogrammer.library.persistence;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Makes the uuids of new items, random or time-ordered.
+ * <p>
+ * Time-ordered uuids follow the version 7 layout: 48 bits of creation time in milliseconds, 12 bits counting
+ * the uuids made in the same millisecond and 62 random bits. The ones made by this process sort by creation
+ * time, so storages keyed by uuid append them and a page read in descending uuid order lists the newest first.
+ * Both kinds are plain uuid strings, so they live side by side with the random ones already stored; those
+ * keep sorting by their random value.
+ */
+public final class ItemIds {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final long MAX_SEQUENCE = 0xFFF;
+    private static final int UUID_LENGTH = 36;
+    private static final int VERSION_INDEX = 14;
+
+    private static long lastMillis;
+    private static long sequence;
+
+    private ItemIds() {
+    }
+
+    public static String newId(boolean timeOrdered) {
+        return timeOrdered ? newTimeOrderedId(System.currentTimeMillis()) : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Makes a time-ordered uuid. Calls within the same millisecond, or after the clock went back, continue
+     * from the last uuid, so uuids never go backwards.
+     */
+    static String newTimeOrderedId(long millis) {
+        long mostSigBits;
+        synchronized(ItemIds.class) {
+            if(millis > lastMillis) {
+                lastMillis = millis;
+                sequence = 0;
+            } else if(++sequence > MAX_SEQUENCE) {
+                lastMillis++;
+                sequence = 0;
+            }
+            mostSigBits = lastMillis << 16 | 0x7000L | sequence;
+        }
+        long leastSigBits = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    public static boolean isTimeOrdered(String uuid) {
+        return uuid.length() == UUID_LENGTH && uuid.charAt(VERSION_INDEX) == '7';
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.espressoprogrammer.library.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * One page of user items in the uuid order of the page request.
+ * <p>
+ * The next cursor is the uuid of the last item of the page, or null when there is nothing after it. The total
+ * count is only present when the page request asked for it.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final Long totalCount;
+
+    public Page(List<T> items, String nextCursor, Long totalCount) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Loads the items after the cursor, in uuid order or walking the uuids backwards, until the page is full.
+     * <p>
+     * Items that are missing or rejected by the filter are skipped. Counting the total loads every item when
+     * there is a filter, otherwise it is the number of uuids.
+     */
+    public static <T> Page<T> read(NavigableSet<String> uuids,
+                                   PageRequest pageRequest,
+                                   Function<String, Optional<T>> loader,
+                                   Predicate<T> filter) {
+        NavigableSet<String> orderedUuids = pageRequest.isDescending() ? uuids.descendingSet() : uuids;
+        NavigableSet<String> remainingUuids = pageRequest.getCursor() != null
+            ? orderedUuids.tailSet(pageRequest.getCursor(), false)
+            : orderedUuids;
+
+        List<T> items = new ArrayList<>();
+        String lastUuid = null;
+        Iterator<String> iterator = remainingUuids.iterator();
+        while(iterator.hasNext() && items.size() < pageRequest.getLimit()) {
+            String uuid = iterator.next();
+            Optional<T> item = loader.apply(uuid).filter(filter);
+            if(item.isPresent()) {
+                items.add(item.get());
+                lastUuid = uuid;
+            }
+        }
+
+        String nextCursor = iterator.hasNext() ? lastUuid : null;
+        Long totalCount = pageRequest.isTotalCount() ? count(uuids, loader, filter) : null;
+        return new Page<>(items, nextCursor, totalCount);
+    }
+
+    private static <T> long count(NavigableSet<String> uuids, Function<String, Optional<T>> loader, Predicate<T> filter) {
+        long count = 0;
+        for(String uuid : uuids) {
+            if(loader.apply(uuid).filter(filter).isPresent()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.espressoprogrammer.library.persistence;
+
+/**
+ * Asks for at most <code>limit</code> items after the <code>cursor</code> uuid, in uuid order or, when
+ * descending, in reverse uuid order, which lists time-ordered items newest first.
+ */
+public final class PageRequest {
+
+    private final String cursor;
+    private final int limit;
+    private final boolean totalCount;
+    private final boolean descending;
+
+    public PageRequest(String cursor, int limit, boolean totalCount) {
+        this(cursor, limit, totalCount, false);
+    }
+
+    public PageRequest(String cursor, int limit, boolean totalCount, boolean descending) {
+        if(limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        this.cursor = cursor;
+        this.limit = limit;
+        this.totalCount = totalCount;
+        this.descending = descending;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cursor=%s, limit=%d, totalCount=%b, descending=%b", cursor, limit, totalCount, descending);
+    }
+}
@@ -4,11 +4,26 @@ import com.espressoprogrammer.library.dto.ReadingSession;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ReadingSessionsDao {
 
+    List<ReadingSession> getUserReadingSessions(String user);
+
     List<ReadingSession> getUserReadingSessions(String user, String bookUuid);
 
+    Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest);
+
+    /**
+     * Lazily reads all the reading sessions of the user. The stream must be closed to release the storage.
+     */
+    Stream<ReadingSession> streamUserReadingSessions(String user);
+
+    /**
+     * Lazily reads the reading sessions of a book. The stream must be closed to release the storage.
+     */
+    Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid);
+
     ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession);
 
     Optional<ReadingSession> getUserReadingSession(String user, String bookUuid, String uuid);
@@ -16,4 +31,23 @@ public interface ReadingSessionsDao {
     Optional<String> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession);
 
     Optional<String> deleteUserReadingSession(String user, String bookUuid, String uuid);
+
+    DataVersion getUserReadingSessionsVersion(String user);
+
+    Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid);
+
+    /**
+     * Loads what the storage keeps in memory for the user ahead of the first request; by default reads all
+     * the user reading sessions.
+     */
+    default void warmUpUser(String user) {
+        getUserReadingSessions(user);
+    }
+
+    /**
+     * Loads what the storage keeps in memory for the user without reading the user reading sessions, for callers that
+     * read them right after; by default does nothing.
+     */
+    default void warmUpUserStorage(String user) {
+    }
 }
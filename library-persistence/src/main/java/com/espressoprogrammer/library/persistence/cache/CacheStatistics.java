@@ -0,0 +1,49 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+public class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long userCount;
+    private final long weight;
+
+    CacheStatistics(long hitCount, long missCount, long evictionCount, long userCount, long weight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.userCount = userCount;
+        this.weight = weight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, evictions=%d, users=%d, weight=%d",
+            hitCount, missCount, evictionCount, userCount, weight);
+    }
+}
@@ -0,0 +1,96 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+abstract class CachingAbstractDao<T> {
+
+    private final ItemsCache<T> cache;
+
+    CachingAbstractDao(ItemsCache<T> cache) {
+        this.cache = cache;
+    }
+
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    List<T> getUserItems(String user, Supplier<List<T>> loader) {
+        Map<String, T> userItems = cache.get(user);
+        if(userItems != null) {
+            return new ArrayList<>(userItems.values());
+        }
+
+        long stamp = cache.stamp(user);
+        List<T> items = loader.get();
+        cache.put(user, stamp, items);
+        return items;
+    }
+
+    List<T> findUserItems(String user, Predicate<T> filter, Supplier<List<T>> loader) {
+        Map<String, T> userItems = cache.get(user);
+        if(userItems != null) {
+            return userItems.values().stream()
+                .filter(filter)
+                .collect(toList());
+        }
+
+        return loader.get();
+    }
+
+    /**
+     * Streams the cached items of the user; otherwise lets the storage stream them without filling the cache.
+     */
+    Stream<T> streamUserItems(String user, Predicate<T> filter, Supplier<Stream<T>> loader) {
+        Map<String, T> userItems = cache.get(user);
+        if(userItems != null) {
+            return userItems.values().stream().filter(filter);
+        }
+
+        return loader.get();
+    }
+
+    /**
+     * Pages through the cached items of the user; otherwise lets the storage read only the requested page.
+     */
+    Page<T> getUserItems(String user, PageRequest pageRequest, Predicate<T> filter, Supplier<Page<T>> loader) {
+        Map<String, T> userItems = cache.get(user);
+        if(userItems != null) {
+            return Page.read(new TreeSet<>(userItems.keySet()),
+                pageRequest,
+                uuid -> Optional.ofNullable(userItems.get(uuid)),
+                filter);
+        }
+
+        return loader.get();
+    }
+
+    Optional<T> getUserItem(String user, String uuid, Supplier<Optional<T>> loader) {
+        Map<String, T> userItems = cache.get(user);
+        if(userItems != null) {
+            return Optional.ofNullable(userItems.get(uuid));
+        }
+
+        return loader.get();
+    }
+
+    <R> R writeUserItem(String user, Supplier<R> writer) {
+        try {
+            return writer.get();
+        } finally {
+            cache.invalidate(user);
+        }
+    }
+
+}
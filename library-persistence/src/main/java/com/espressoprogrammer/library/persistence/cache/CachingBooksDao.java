@@ -0,0 +1,121 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+public class CachingBooksDao extends CachingAbstractDao<Book> implements BooksDao {
+
+    private final BooksDao booksDao;
+
+    public CachingBooksDao(BooksDao booksDao, long maxUsers, long maxWeight) {
+        super(new ItemsCache<>("books", maxUsers, maxWeight, CachingBooksDao::estimateSize, Book::getUuid));
+        this.booksDao = booksDao;
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user) {
+        return getUserItems(user, () -> booksDao.getUserBooks(user));
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user, String searchText) {
+        return getUserBooks(user).stream()
+            .filter(b -> BooksSearch.matches(b, searchText))
+            .collect(toList());
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        return getUserItems(user,
+            pageRequest,
+            b -> BooksSearch.matches(b, searchText),
+            () -> booksDao.getUserBooks(user, searchText, pageRequest));
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        return streamUserItems(user,
+            b -> BooksSearch.matches(b, searchText),
+            () -> booksDao.streamUserBooks(user, searchText));
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        return findUserItems(user,
+            b -> BooksSearch.matchesIsbn(b, isbn10, isbn13),
+            () -> booksDao.getUserBooksByIsbn(user, isbn10, isbn13));
+    }
+
+    @Override
+    public Book createUserBook(String user, Book book) {
+        return writeUserItem(user, () -> booksDao.createUserBook(user, book));
+    }
+
+    @Override
+    public List<Book> createUserBooks(String user, List<Book> books) {
+        return writeUserItem(user, () -> booksDao.createUserBooks(user, books));
+    }
+
+    @Override
+    public Optional<Book> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid, () -> booksDao.getUserBook(user, uuid));
+    }
+
+    @Override
+    public Optional<String> updateUserBook(String user, String uuid, Book book) {
+        return writeUserItem(user, () -> booksDao.updateUserBook(user, uuid, book));
+    }
+
+    @Override
+    public Optional<String> deleteUserBook(String user, String uuid) {
+        return writeUserItem(user, () -> booksDao.deleteUserBook(user, uuid));
+    }
+
+    @Override
+    public DataVersion getUserBooksVersion(String user) {
+        return booksDao.getUserBooksVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return booksDao.getUserBookVersion(user, uuid);
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        booksDao.warmUpUserStorage(user);
+        getUserBooks(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        booksDao.warmUpUserStorage(user);
+    }
+
+    static long estimateSize(Book book) {
+        long size = 64
+            + estimateSize(book.getUuid())
+            + estimateSize(book.getIsbn10())
+            + estimateSize(book.getIsbn13())
+            + estimateSize(book.getTitle())
+            + estimateSize(book.getImage());
+        for(String author : book.getAuthors()) {
+            size += estimateSize(author);
+        }
+        return size;
+    }
+
+    static long estimateSize(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
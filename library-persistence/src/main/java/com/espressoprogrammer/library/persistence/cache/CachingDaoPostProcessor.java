@@ -0,0 +1,48 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts an in-memory cache in front of the configured DAOs when <code>filesystem.dao.cache.enabled</code> is set.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.cache.enabled", havingValue = "true")
+class CachingDaoPostProcessor implements BeanPostProcessor, Ordered {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${filesystem.dao.cache.maxusers:1000}")
+    private long maxUsers;
+
+    @Value(value = "${filesystem.dao.cache.maxbytes:67108864}")
+    private long maxBytes;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if(bean instanceof BooksDao && !(bean instanceof CachingBooksDao)) {
+            logger.info("Cache books of at most {} users and {} bytes", maxUsers, maxBytes);
+            return new CachingBooksDao((BooksDao) bean, maxUsers, maxBytes);
+        }
+        if(bean instanceof ReadingSessionsDao && !(bean instanceof CachingReadingSessionsDao)) {
+            logger.info("Cache reading sessions of at most {} users and {} bytes", maxUsers, maxBytes);
+            return new CachingReadingSessionsDao((ReadingSessionsDao) bean, maxUsers, maxBytes);
+        }
+        return bean;
+    }
+
+    /**
+     * Wraps the storage before the write-behind queue does, so queued changes are written through the cache.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+}
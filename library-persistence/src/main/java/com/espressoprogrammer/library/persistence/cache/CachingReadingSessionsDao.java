@@ -0,0 +1,115 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import com.espressoprogrammer.library.dto.DateReadingSession;
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.espressoprogrammer.library.persistence.cache.CachingBooksDao.estimateSize;
+import static java.util.stream.Collectors.toList;
+
+public class CachingReadingSessionsDao extends CachingAbstractDao<ReadingSession> implements ReadingSessionsDao {
+
+    private final ReadingSessionsDao readingSessionsDao;
+
+    public CachingReadingSessionsDao(ReadingSessionsDao readingSessionsDao, long maxUsers, long maxWeight) {
+        super(new ItemsCache<>("reading sessions",
+            maxUsers,
+            maxWeight,
+            CachingReadingSessionsDao::estimateReadingSessionSize,
+            ReadingSession::getUuid));
+        this.readingSessionsDao = readingSessionsDao;
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user) {
+        return getUserItems(user, () -> readingSessionsDao.getUserReadingSessions(user));
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user, String bookUuid) {
+        return getUserReadingSessions(user).stream()
+            .filter(r -> bookUuid.equals(r.getBookUuid()))
+            .collect(toList());
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        return streamUserItems(user,
+            r -> true,
+            () -> readingSessionsDao.streamUserReadingSessions(user));
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid) {
+        return streamUserItems(user,
+            r -> bookUuid.equals(r.getBookUuid()),
+            () -> readingSessionsDao.streamUserReadingSessions(user, bookUuid));
+    }
+
+    @Override
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest) {
+        return getUserItems(user,
+            pageRequest,
+            r -> bookUuid.equals(r.getBookUuid()),
+            () -> readingSessionsDao.getUserReadingSessions(user, bookUuid, pageRequest));
+    }
+
+    @Override
+    public ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) {
+        return writeUserItem(user, () -> readingSessionsDao.createUserReadingSession(user, bookUuid, readingSession));
+    }
+
+    @Override
+    public Optional<ReadingSession> getUserReadingSession(String user, String bookUuid, String uuid) {
+        return getUserItem(user, uuid, () -> readingSessionsDao.getUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public Optional<String> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession) {
+        return writeUserItem(user, () -> readingSessionsDao.updateUserReadingSession(user, bookUuid, uuid, readingSession));
+    }
+
+    @Override
+    public Optional<String> deleteUserReadingSession(String user, String bookUuid, String uuid) {
+        return writeUserItem(user, () -> readingSessionsDao.deleteUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public DataVersion getUserReadingSessionsVersion(String user) {
+        return readingSessionsDao.getUserReadingSessionsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return readingSessionsDao.getUserReadingSessionVersion(user, bookUuid, uuid);
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        readingSessionsDao.warmUpUserStorage(user);
+        getUserReadingSessions(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        readingSessionsDao.warmUpUserStorage(user);
+    }
+
+    static long estimateReadingSessionSize(ReadingSession readingSession) {
+        long size = 64
+            + estimateSize(readingSession.getUuid())
+            + estimateSize(readingSession.getBookUuid())
+            + estimateSize(readingSession.getDeadline());
+        for(DateReadingSession dateReadingSession : readingSession.getDateReadingSessions()) {
+            size += 48 + estimateSize(dateReadingSession.getDate()) + estimateSize(dateReadingSession.getBookmark());
+        }
+        return size;
+    }
+}
@@ -0,0 +1,123 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps the whole item collection of the most recently used users in memory.
+ * <p>
+ * The cache is bounded both by the number of users and by the estimated heap size of the cached items,
+ * the least recently used users being evicted first. Every invalidation bumps a stamp, so a collection
+ * loaded while a write was in flight is never cached.
+ */
+public class ItemsCache<T> {
+    private static final int STAMP_STRIPES = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String name;
+    private final long maxUsers;
+    private final long maxWeight;
+    private final ToLongFunction<T> weigher;
+    private final Function<T, String> uuid;
+
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long[] stamps = new long[STAMP_STRIPES];
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public ItemsCache(String name, long maxUsers, long maxWeight, ToLongFunction<T> weigher, Function<T, String> uuid) {
+        this.name = name;
+        this.maxUsers = maxUsers;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.uuid = uuid;
+    }
+
+    synchronized Map<String, T> get(String user) {
+        Entry<T> entry = entries.get(user);
+        if(entry == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return entry.items;
+    }
+
+    synchronized long stamp(String user) {
+        return stamps[stripe(user)];
+    }
+
+    synchronized void put(String user, long stamp, List<T> items) {
+        if(stamps[stripe(user)] != stamp) {
+            logger.debug("Skip caching {} for user {}, it changed while loading", name, user);
+            return;
+        }
+
+        Map<String, T> userItems = new LinkedHashMap<>();
+        long userWeight = 0;
+        for(T item : items) {
+            userItems.put(uuid.apply(item), item);
+            userWeight += weigher.applyAsLong(item);
+        }
+        if(userWeight > maxWeight) {
+            logger.debug("Skip caching {} for user {}, {} bytes is over the limit", name, user, userWeight);
+            return;
+        }
+
+        Entry<T> previous = entries.put(user, new Entry<>(Collections.unmodifiableMap(userItems), userWeight));
+        if(previous != null) {
+            weight -= previous.weight;
+        }
+        weight += userWeight;
+        evict();
+    }
+
+    synchronized void invalidate(String user) {
+        stamps[stripe(user)]++;
+        Entry<T> entry = entries.remove(user);
+        if(entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount, entries.size(), weight);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry<T>>> iterator = entries.entrySet().iterator();
+        while((entries.size() > maxUsers || weight > maxWeight) && iterator.hasNext()) {
+            Map.Entry<String, Entry<T>> eldest = iterator.next();
+            iterator.remove();
+            weight -= eldest.getValue().weight;
+            evictionCount++;
+            logger.debug("Evict {} for user {}, {}", name, eldest.getKey(), getStatistics());
+        }
+    }
+
+    private int stripe(String user) {
+        return (user.hashCode() & Integer.MAX_VALUE) % STAMP_STRIPES;
+    }
+
+    private static class Entry<T> {
+        private final Map<String, T> items;
+        private final long weight;
+
+        private Entry(Map<String, T> items, long weight) {
+            this.items = items;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.espressoprogrammer.library.persistence.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads and writes one DTO type as a compact binary encoding of its JSON token stream.
+ * <p>
+ * The layout follows the JSON tokens one to one, so the DTO mapping is the same as {@link JsonCodec}'s, but
+ * strings are length prefixed, integers are zig-zag varints and a field name repeated inside a document is
+ * written once and then referenced by its index. Decoding never tokenizes text or parses numbers.
+ * <p>
+ * Layout: <code>magic | version | token*</code> where token is
+ * <code>byte tag [payload]</code>.
+ */
+public final class BinaryCodec<T> implements ItemCodec<T> {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ConcurrentMap<Class<?>, BinaryCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private static final byte[] MAGIC = {'L', 'I', 'B'};
+    private static final byte VERSION = 1;
+
+    private static final byte START_OBJECT = 1;
+    private static final byte END_OBJECT = 2;
+    private static final byte START_ARRAY = 3;
+    private static final byte END_ARRAY = 4;
+    private static final byte FIELD_NAME = 5;
+    private static final byte FIELD_NAME_REF = 6;
+    private static final byte STRING = 7;
+    private static final byte INT = 8;
+    private static final byte LONG = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte DOUBLE = 11;
+    private static final byte BIG_DECIMAL = 12;
+    private static final byte TRUE = 13;
+    private static final byte FALSE = 14;
+    private static final byte NULL = 15;
+
+    private final Class<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    private BinaryCodec(Class<T> type) {
+        this.type = type;
+        this.reader = OBJECT_MAPPER.readerFor(type);
+        this.writer = OBJECT_MAPPER.writerFor(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> BinaryCodec<T> forType(Class<T> type) {
+        return (BinaryCodec<T>) CODECS.computeIfAbsent(type, BinaryCodec::new);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public T read(Path path) throws IOException {
+        return read(Files.readAllBytes(path));
+    }
+
+    @Override
+    public T read(byte[] bytes) throws IOException {
+        Input in = new Input(bytes);
+        for(byte b : MAGIC) {
+            if(in.readByte() != b) {
+                throw new IOException("Not a binary item");
+            }
+        }
+        if(in.readByte() != VERSION) {
+            throw new IOException("Unsupported binary item version");
+        }
+
+        TokenBuffer buffer = new TokenBuffer(OBJECT_MAPPER, false);
+        List<String> names = new ArrayList<>();
+        while(in.hasMore()) {
+            byte tag = in.readByte();
+            switch(tag) {
+                case START_OBJECT: buffer.writeStartObject(); break;
+                case END_OBJECT: buffer.writeEndObject(); break;
+                case START_ARRAY: buffer.writeStartArray(); break;
+                case END_ARRAY: buffer.writeEndArray(); break;
+                case FIELD_NAME:
+                    String name = in.readString();
+                    names.add(name);
+                    buffer.writeFieldName(name);
+                    break;
+                case FIELD_NAME_REF: buffer.writeFieldName(names.get((int) in.readVarLong())); break;
+                case STRING: buffer.writeString(in.readString()); break;
+                case INT: buffer.writeNumber((int) in.readZigZag()); break;
+                case LONG: buffer.writeNumber(in.readZigZag()); break;
+                case BIG_INTEGER: buffer.writeNumber(new BigInteger(in.readString())); break;
+                case DOUBLE: buffer.writeNumber(Double.longBitsToDouble(in.readLong())); break;
+                case BIG_DECIMAL: buffer.writeNumber(new BigDecimal(in.readString())); break;
+                case TRUE: buffer.writeBoolean(true); break;
+                case FALSE: buffer.writeBoolean(false); break;
+                case NULL: buffer.writeNull(); break;
+                default: throw new IOException("Unknown binary item tag " + tag);
+            }
+        }
+
+        try(JsonParser parser = buffer.asParser()) {
+            return reader.readValue(parser);
+        }
+    }
+
+    @Override
+    public void write(Path path, T item) throws IOException {
+        byte[] bytes = toBytes(item);
+        try(FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    @Override
+    public byte[] toBytes(T item) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(OBJECT_MAPPER, false);
+        writer.writeValue(buffer, item);
+
+        Output out = new Output();
+        out.write(MAGIC);
+        out.write(VERSION);
+        Map<String, Integer> names = new HashMap<>();
+        try(JsonParser parser = buffer.asParser()) {
+            JsonToken token;
+            while((token = parser.nextToken()) != null) {
+                switch(token) {
+                    case START_OBJECT: out.write(START_OBJECT); break;
+                    case END_OBJECT: out.write(END_OBJECT); break;
+                    case START_ARRAY: out.write(START_ARRAY); break;
+                    case END_ARRAY: out.write(END_ARRAY); break;
+                    case FIELD_NAME:
+                        String name = parser.getCurrentName();
+                        Integer index = names.get(name);
+                        if(index != null) {
+                            out.write(FIELD_NAME_REF);
+                            out.writeVarLong(index);
+                        } else {
+                            names.put(name, names.size());
+                            out.write(FIELD_NAME);
+                            out.writeString(name);
+                        }
+                        break;
+                    case VALUE_STRING:
+                        out.write(STRING);
+                        out.writeString(parser.getText());
+                        break;
+                    case VALUE_NUMBER_INT:
+                        writeInteger(out, parser);
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        if(parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                            out.write(BIG_DECIMAL);
+                            out.writeString(parser.getDecimalValue().toString());
+                        } else {
+                            out.write(DOUBLE);
+                            out.writeLong(Double.doubleToRawLongBits(parser.getDoubleValue()));
+                        }
+                        break;
+                    case VALUE_TRUE: out.write(TRUE); break;
+                    case VALUE_FALSE: out.write(FALSE); break;
+                    case VALUE_NULL: out.write(NULL); break;
+                    default: throw new IOException("Unsupported token " + token);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeInteger(Output out, JsonParser parser) throws IOException {
+        switch(parser.getNumberType()) {
+            case INT:
+                out.write(INT);
+                out.writeZigZag(parser.getIntValue());
+                break;
+            case LONG:
+                out.write(LONG);
+                out.writeZigZag(parser.getLongValue());
+                break;
+            default:
+                out.write(BIG_INTEGER);
+                out.writeString(parser.getBigIntegerValue().toString());
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(256);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeVarLong(long value) {
+            while((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLong(long value) {
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        byte readByte() throws IOException {
+            if(position >= bytes.length) {
+                throw new IOException("Truncated binary item");
+            }
+            return bytes[position++];
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in binary item");
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for(int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarLong();
+            if(length < 0 || position + length > bytes.length) {
+                throw new IOException("Truncated binary item");
+            }
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.espressoprogrammer.library.persistence.codec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes one DTO type in one on-disk format.
+ */
+public interface ItemCodec<T> {
+
+    T read(Path path) throws IOException;
+
+    T read(byte[] bytes) throws IOException;
+
+    void write(Path path, T item) throws IOException;
+
+    byte[] toBytes(T item) throws IOException;
+
+}
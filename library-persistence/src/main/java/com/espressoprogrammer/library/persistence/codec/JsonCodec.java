@@ -0,0 +1,99 @@
+package com.espressoprogrammer.library.persistence.codec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads and writes one DTO type as UTF-8 JSON.
+ * <p>
+ * Instances are immutable and thread-safe, so there is a single codec per type shared by every caller.
+ * The type is resolved once, when the codec is created, and bytes are streamed straight to and
+ * from the file channel.
+ */
+public final class JsonCodec<T> implements ItemCodec<T> {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ConcurrentMap<Class<?>, JsonCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    private JsonCodec(Class<T> type) {
+        this.type = type;
+        this.reader = OBJECT_MAPPER.readerFor(type);
+        this.writer = OBJECT_MAPPER.writerFor(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> forType(Class<T> type) {
+        return (JsonCodec<T>) CODECS.computeIfAbsent(type, JsonCodec::new);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public T read(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(Channels.newInputStream(channel));
+        }
+    }
+
+    public T read(InputStream in) throws IOException {
+        return reader.readValue(in);
+    }
+
+    public T read(ByteBuffer buffer) throws IOException {
+        return reader.readValue(new ByteBufferBackedInputStream(buffer));
+    }
+
+    @Override
+    public T read(byte[] bytes) throws IOException {
+        return read(bytes, 0, bytes.length);
+    }
+
+    public T read(byte[] bytes, int offset, int length) throws IOException {
+        return reader.readValue(bytes, offset, length);
+    }
+
+    @Override
+    public void write(Path path, T item) throws IOException {
+        try(FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            write(out, item);
+            out.flush();
+        }
+    }
+
+    public void write(OutputStream out, T item) throws IOException {
+        try(JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writer.writeValue(generator, item);
+        }
+    }
+
+    @Override
+    public byte[] toBytes(T item) throws IOException {
+        return writer.writeValueAsBytes(item);
+    }
+
+}
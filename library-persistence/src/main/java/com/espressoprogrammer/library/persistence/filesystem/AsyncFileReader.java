@@ -0,0 +1,111 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated I/O pool of the async DAOs.
+ * <p>
+ * Item files are read through an {@link AsynchronousFileChannel} bound to the pool, so no caller thread waits
+ * on the disk. Work that has no non-blocking form, like writes going through the indexes, also runs on the
+ * pool, which keeps it off the request threads.
+ */
+@Component
+class AsyncFileReader {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${filesystem.dao.async.threads:8}")
+    int threads = 8;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "filesystem-dao-io-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.debug("Run async item I/O on {} threads", threads);
+    }
+
+    /**
+     * Reads the whole file, completing with an empty optional when it does not exist.
+     */
+    CompletableFuture<Optional<byte[]>> read(Path path) {
+        CompletableFuture<Optional<byte[]>> result = new CompletableFuture<>();
+        AsynchronousFileChannel channel;
+        ByteBuffer buffer;
+        try {
+            channel = AsynchronousFileChannel.open(path, Collections.singleton(StandardOpenOption.READ), executor);
+            buffer = ByteBuffer.allocate((int) channel.size());
+        } catch(NoSuchFileException ex) {
+            result.complete(Optional.empty());
+            return result;
+        } catch(Exception ex) {
+            result.completeExceptionally(new FilesystemDaoException(ex));
+            return result;
+        }
+
+        channel.read(buffer, 0, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(Integer count, ByteBuffer readBuffer) {
+                if(count >= 0 && readBuffer.hasRemaining()) {
+                    channel.read(readBuffer, readBuffer.position(), readBuffer, this);
+                    return;
+                }
+
+                close(channel);
+                result.complete(Optional.of(Arrays.copyOf(readBuffer.array(), readBuffer.position())));
+            }
+
+            @Override
+            public void failed(Throwable ex, ByteBuffer readBuffer) {
+                close(channel);
+                result.completeExceptionally(new FilesystemDaoException(ex instanceof Exception
+                    ? (Exception) ex
+                    : new IOException(ex)));
+            }
+        });
+        return result;
+    }
+
+    <R> CompletableFuture<R> submit(Supplier<R> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    private void close(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch(IOException ex) {
+            logger.warn("Error on closing async channel", ex);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Reads item files of the <code>files</code> storage through async channels. Everything else, and every
+ * call on the other storages, runs the blocking DAO on the I/O pool so indexes, write-ahead log and cache
+ * stay in charge of the data. An item not found in the configured format, for instance one still waiting
+ * for migration, is looked up by the blocking DAO as well. With write-behind on, the item file may be older
+ * than a queued change, so items are read through the blocking DAO, which sees the queue.
+ */
+abstract class AsyncFilesystemAbstractDao<T> {
+    private static final String FILES_STORAGE = "files";
+
+    private final Class<T> itemType = getItemType();
+
+    @Value(value = "${filesystem.dao.storage:files}")
+    String storage = FILES_STORAGE;
+
+    @Value(value = "${filesystem.dao.format:json}")
+    String format = "json";
+
+    @Value(value = "${filesystem.dao.layout:flat}")
+    String layout = "flat";
+
+    @Value(value = "${filesystem.dao.writebehind.enabled:false}")
+    boolean writeBehind;
+
+    @Autowired
+    AsyncFileReader asyncFileReader;
+
+    @Autowired
+    FilesystemConfiguration filesystemConfiguration;
+
+    @Autowired(required = false)
+    ItemCompressor itemCompressor;
+
+    CompletableFuture<Optional<T>> getUserItem(String user, String uuid, Supplier<Optional<T>> loader) {
+        if(!FILES_STORAGE.equals(storage) || writeBehind) {
+            return asyncFileReader.submit(loader);
+        }
+
+        ItemFormat itemFormat = ItemFormat.fromName(format);
+        Path path = ItemLayout.fromName(layout).getPath(itemFormat, Paths.get(getStorageFolder(user)), uuid);
+        return asyncFileReader.read(path)
+            .thenCompose(bytes -> {
+                if(!bytes.isPresent()) {
+                    return asyncFileReader.submit(loader);
+                }
+                filesystemConfiguration.recordRead(path, bytes.get().length);
+                return CompletableFuture.completedFuture(Optional.of(read(itemFormat, bytes.get())));
+            });
+    }
+
+    <R> CompletableFuture<R> submit(Supplier<R> work) {
+        return asyncFileReader.submit(work);
+    }
+
+    protected abstract String getStorageFolder(String user);
+
+    private T read(ItemFormat itemFormat, byte[] bytes) {
+        try {
+            return itemFormat.getCodec(itemType).read(itemCompressor != null
+                ? itemCompressor.decompress(bytes)
+                : ItemCompressor.inflate(bytes));
+        } catch(IOException ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> getItemType() {
+        return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.AsyncBooksDao;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+public class AsyncFilesystemBooksDao extends AsyncFilesystemAbstractDao<Book> implements AsyncBooksDao {
+
+    @Autowired
+    BooksDao booksDao;
+
+    @Override
+    public CompletableFuture<List<Book>> getUserBooks(String user, String searchText) {
+        return submit(() -> booksDao.getUserBooks(user, searchText));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Book>> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid, () -> booksDao.getUserBook(user, uuid));
+    }
+
+    @Override
+    public CompletableFuture<Book> createUserBook(String user, Book book) {
+        return submit(() -> booksDao.createUserBook(user, book));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> updateUserBook(String user, String uuid, Book book) {
+        return submit(() -> booksDao.updateUserBook(user, uuid, book));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> deleteUserBook(String user, String uuid) {
+        return submit(() -> booksDao.deleteUserBook(user, uuid));
+    }
+
+    @Override
+    protected String getStorageFolder(String user) {
+        return FilesystemBooksDao.getBooksFolder(filesystemConfiguration, user);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.AsyncReadingSessionsDao;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+public class AsyncFilesystemReadingSessionsDao extends AsyncFilesystemAbstractDao<ReadingSession> implements AsyncReadingSessionsDao {
+
+    @Autowired
+    ReadingSessionsDao readingSessionsDao;
+
+    @Override
+    public CompletableFuture<List<ReadingSession>> getUserReadingSessions(String user, String bookUuid) {
+        return submit(() -> readingSessionsDao.getUserReadingSessions(user, bookUuid));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ReadingSession>> getUserReadingSession(String user, String bookUuid, String uuid) {
+        return getUserItem(user, uuid, () -> readingSessionsDao.getUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public CompletableFuture<ReadingSession> createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) {
+        return submit(() -> readingSessionsDao.createUserReadingSession(user, bookUuid, readingSession));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession) {
+        return submit(() -> readingSessionsDao.updateUserReadingSession(user, bookUuid, uuid, readingSession));
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> deleteUserReadingSession(String user, String bookUuid, String uuid) {
+        return submit(() -> readingSessionsDao.deleteUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    protected String getStorageFolder(String user) {
+        return FilesystemReadingSessionsDao.getReadingSessionsFolder(filesystemConfiguration, user);
+    }
+
+}
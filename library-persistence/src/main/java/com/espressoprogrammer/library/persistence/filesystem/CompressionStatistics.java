@@ -0,0 +1,67 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+public class CompressionStatistics {
+
+    private final long compressedCount;
+    private final long skippedCount;
+    private final long uncompressedBytes;
+    private final long compressedBytes;
+    private final long compressNanos;
+    private final long decompressedCount;
+    private final long decompressNanos;
+
+    CompressionStatistics(long compressedCount,
+                          long skippedCount,
+                          long uncompressedBytes,
+                          long compressedBytes,
+                          long compressNanos,
+                          long decompressedCount,
+                          long decompressNanos) {
+        this.compressedCount = compressedCount;
+        this.skippedCount = skippedCount;
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressNanos = compressNanos;
+        this.decompressedCount = decompressedCount;
+        this.decompressNanos = decompressNanos;
+    }
+
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    public long getDecompressedCount() {
+        return decompressedCount;
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos;
+    }
+
+    public double getCompressionRatio() {
+        return uncompressedBytes == 0 ? 1.0 : (double) compressedBytes / uncompressedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("compressed=%d, skipped=%d, ratio=%.2f, compressMillis=%d, decompressed=%d, decompressMillis=%d",
+            compressedCount, skippedCount, getCompressionRatio(), compressNanos / 1_000_000,
+            decompressedCount, decompressNanos / 1_000_000);
+    }
+}
@@ -1,42 +1,266 @@
 package com.espressoprogrammer.library.persistence.filesystem;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.ItemIds;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.codec.ItemCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
-import java.io.ByteArrayOutputStream;
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 
 abstract class FilesystemAbstractDao<T> {
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    
-    private static final String FILE_EXTENSION = ".json";
+
+    private static final int ITEM_LOCK_STRIPES = 64;
+    private static final Object[] ITEM_LOCKS = new Object[ITEM_LOCK_STRIPES];
+
+    static {
+        for(int i = 0; i < ITEM_LOCK_STRIPES; i++) {
+            ITEM_LOCKS[i] = new Object();
+        }
+    }
+
+    private final Class<T> itemType = getItemType();
+    private final VersionTracker versionTracker = new VersionTracker();
 
     List<T> getUserItems(String user) {
         return getUserItems(user, null);
     }
 
     List<T> getUserItems(String user, String searchText) {
+        if(parallelScanner != null) {
+            return scanUserItems(user, t -> applySearchCriteria(t, searchText));
+        }
+
+        try(Stream<T> items = streamUserItems(user, t -> applySearchCriteria(t, searchText))) {
+            return items.collect(toList());
+        }
+    }
+
+    /**
+     * Decodes the item files of the user in parallel and returns the matching ones in file name order.
+     */
+    private List<T> scanUserItems(String user, Predicate<T> filter) {
         try {
-            String storageFolder = createStorageFolderIfMissing(user);
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            logger.debug("Scan items for user {} into {}", user, storageFolder);
+
+            List<String> uuids = new ArrayList<>(getUuids(storageFolder));
+            return parallelScanner.scan(uuids, uuid -> getItem(storageFolder, uuid).orElse(null),
+                item -> item != null && filter.test(item));
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    List<T> getUserItems(String user, SecondaryIndex<T> index, String key) {
+        return getUserItems(user, index, Collections.singletonList(key));
+    }
+
+    List<T> getUserItems(String user, SecondaryIndex<T> index, Collection<String> keys) {
+        try(Stream<T> items = streamUserItems(user, index, keys)) {
+            return items.collect(toList());
+        }
+    }
+
+    List<T> getUserItems(String user, String searchText, SecondaryIndex<T> index, Collection<String> keys) {
+        try(Stream<T> items = streamUserItems(user, searchText, index, keys)) {
+            return items.collect(toList());
+        }
+    }
+
+    /**
+     * Lazily decodes the item files of the user that match the filter.
+     * <p>
+     * The stream holds the directory open until it is closed.
+     */
+    Stream<T> streamUserItems(String user, Predicate<T> filter) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
             logger.debug("Look for item for user {} into {}", user, storageFolder);
 
-            return Files.list(Paths.get(storageFolder))
-                .filter(p -> p.getFileName().toFile().getName().endsWith(FILE_EXTENSION))
-                .map(p -> fromJson(p))
-                .filter(t -> applySearchCriteria(t, searchText))
-                .collect(toList());
+            return ItemLayout.listItemFiles(storageFolder)
+                .map(p -> ItemFormat.getUuid(p.getFileName().toString()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .distinct()
+                .map(uuid -> getItem(storageFolder, uuid))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(filter);
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    Stream<T> streamUserItems(String user, SecondaryIndex<T> index, Collection<String> keys) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            logger.debug("Look for item for user {} into {} with {}", user, storageFolder, keys);
+
+            Set<String> uuids = new LinkedHashSet<>();
+            for(String key : keys) {
+                uuids.addAll(index.lookup(storageFolder, key, () -> getUserItems(user)));
+            }
+            return streamItems(storageFolder, uuids, item -> index.matchesAny(item, keys));
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    /**
+     * Lazily decodes only the items indexed under all the keys and keeps the ones matching the search criteria.
+     */
+    Stream<T> streamUserItems(String user, String searchText, SecondaryIndex<T> index, Collection<String> keys) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            logger.debug("Look for item for user {} into {} with {} keys", user, storageFolder, keys.size());
+
+            Set<String> uuids = index.lookupAll(storageFolder, keys, () -> getUserItems(user));
+            return streamItems(storageFolder, uuids, item -> applySearchCriteria(item, searchText));
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    /**
+     * Reads one page of items in uuid order, loading only the item files the page needs.
+     * <p>
+     * Candidates are the uuids indexed under all the keys or, without an index, every item file of the user.
+     */
+    Page<T> getUserItems(String user,
+                         PageRequest pageRequest,
+                         Predicate<T> filter,
+                         SecondaryIndex<T> index,
+                         Collection<String> keys) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            logger.debug("Look for item for user {} into {} with {}", user, storageFolder, pageRequest);
+
+            NavigableSet<String> uuids = index != null
+                ? new TreeSet<>(index.lookupAll(storageFolder, keys, () -> getUserItems(user)))
+                : getUuids(storageFolder);
+            return Page.read(uuids, pageRequest, uuid -> getItem(storageFolder, uuid), filter);
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    private NavigableSet<String> getUuids(Path storageFolder) throws IOException {
+        try(Stream<Path> paths = ItemLayout.listItemFiles(storageFolder)) {
+            return paths
+                .map(p -> ItemFormat.getUuid(p.getFileName().toString()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(toCollection(TreeSet::new));
+        }
+    }
+
+    /**
+     * Reads the item in whatever format its file has. A file moved to the other format by a concurrent
+     * migration is looked up again, a file deleted meanwhile reads as missing.
+     */
+    private Optional<T> getItem(Path storageFolder, String uuid) {
+        for(int attempt = 0; attempt < 2; attempt++) {
+            Optional<Path> pathToItem = findItemPath(storageFolder, uuid);
+            if(!pathToItem.isPresent()) {
+                return Optional.empty();
+            }
+
+            try {
+                return Optional.of(readFile(pathToItem.get()));
+            } catch(NoSuchFileException ex) {
+                logger.debug("Item file {} is gone, look for it again", pathToItem.get());
+            } catch(IOException ex) {
+                throw new FilesystemDaoException(ex);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the item file in the configured format and layout first and then in the other ones. Migration
+     * writes the new file before deleting the old one, so the configured path is checked once more when all
+     * miss.
+     */
+    private Optional<Path> findItemPath(Path storageFolder, String uuid) {
+        Path pathToItem = getItemPath(storageFolder, uuid);
+        if(pathToItem.toFile().exists()) {
+            return Optional.of(pathToItem);
+        }
+
+        for(Path otherPathToItem : getOtherItemPaths(storageFolder, uuid)) {
+            if(otherPathToItem.toFile().exists()) {
+                return Optional.of(otherPathToItem);
+            }
+        }
+
+        return pathToItem.toFile().exists() ? Optional.of(pathToItem) : Optional.empty();
+    }
+
+    private Stream<T> streamItems(Path storageFolder, Set<String> uuids, Predicate<T> filter) {
+        return uuids.stream()
+            .map(uuid -> getItem(storageFolder, uuid))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .filter(filter);
+    }
+
+    /**
+     * Loads the secondary indexes of the user and reads every item file, so the first requests of the user
+     * find the indexes in memory and the files in the page cache.
+     */
+    void warmUpUserItems(String user) {
+        loadUserIndexes(user);
+        getUserItems(user);
+    }
+
+    /**
+     * Creates the storage folder of the user and loads its secondary indexes, without reading the items unless
+     * an index has to be rebuilt.
+     */
+    void loadUserIndexes(String user) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            logger.debug("Warm up items for user {} into {}", user, storageFolder);
+
+            for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                index.load(storageFolder, () -> getUserItems(user));
+            }
         } catch(FilesystemDaoException ex) {
             throw ex;
         } catch(Exception ex) {
@@ -46,14 +270,22 @@ abstract class FilesystemAbstractDao<T> {
 
     protected abstract boolean applySearchCriteria(T t, String searchText);
 
+    protected List<SecondaryIndex<T>> getSecondaryIndexes() {
+        return Collections.emptyList();
+    }
+
     T createUserItem(String user, T item) {
         try {
             String storageFolder = createStorageFolderIfMissing(user);
             logger.debug("Add new item for user {} into {}", user, storageFolder);
 
-            String uuid = UUID.randomUUID().toString();
+            String uuid = ItemIds.newId(timeOrderedIds);
             T persistedItem = createItem(uuid, item);
-            Files.write(Paths.get(storageFolder, uuid + FILE_EXTENSION), toJson(persistedItem).getBytes());
+            for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                index.add(Paths.get(storageFolder), uuid, persistedItem, () -> getUserItems(user));
+            }
+            writeFile(getItemPath(Paths.get(storageFolder), uuid), persistedItem);
+            versionTracker.written(user, uuid);
             return persistedItem;
         } catch(Exception ex) {
             throw new FilesystemDaoException(ex);
@@ -65,12 +297,9 @@ abstract class FilesystemAbstractDao<T> {
             String storageFolder = createStorageFolderIfMissing(user);
             logger.debug("Look for item for user {} into {} with uuid {}", user, storageFolder, id);
 
-            Path pathToItem = Paths.get(storageFolder, id + FILE_EXTENSION);
-            if(pathToItem.toFile().exists()) {
-                return Optional.of(fromJson(pathToItem));
-            }
-
-            return Optional.empty();
+            return getItem(Paths.get(storageFolder), id);
+        } catch(FilesystemDaoException ex) {
+            throw ex;
         } catch(Exception ex) {
             throw new FilesystemDaoException(ex);
         }
@@ -81,11 +310,19 @@ abstract class FilesystemAbstractDao<T> {
             String storageFolder = createStorageFolderIfMissing(user);
             logger.debug("Update item for user {} with uuid {}", user, uuid);
 
-            Path pathToItem = Paths.get(storageFolder, uuid + FILE_EXTENSION);
-            if(pathToItem.toFile().exists()) {
-                T persistedItem = createItem(uuid, item);
-                Files.write(pathToItem, toJson(persistedItem).getBytes());
-                return Optional.of(uuid);
+            synchronized(getItemLock(Paths.get(storageFolder), uuid)) {
+                if(findItemPath(Paths.get(storageFolder), uuid).isPresent()) {
+                    T persistedItem = createItem(uuid, item);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.add(Paths.get(storageFolder), uuid, persistedItem, () -> getUserItems(user));
+                    }
+                    writeItem(Paths.get(storageFolder), uuid, persistedItem);
+                    versionTracker.written(user, uuid);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.retain(Paths.get(storageFolder), uuid, persistedItem, () -> getUserItems(user));
+                    }
+                    return Optional.of(uuid);
+                }
             }
 
             return Optional.empty();
@@ -99,10 +336,18 @@ abstract class FilesystemAbstractDao<T> {
             String storageFolder = createStorageFolderIfMissing(user);
             logger.debug("Delete item for user {} with uuid {}", user, uuid);
 
-            Path pathToItem = Paths.get(storageFolder, uuid + FILE_EXTENSION);
-            if(pathToItem.toFile().exists()) {
-                pathToItem.toFile().delete();
-                return Optional.of(uuid);
+            synchronized(getItemLock(Paths.get(storageFolder), uuid)) {
+                if(findItemPath(Paths.get(storageFolder), uuid).isPresent()) {
+                    deleteFileIfExists(getItemPath(Paths.get(storageFolder), uuid));
+                    for(Path otherPathToItem : getOtherItemPaths(Paths.get(storageFolder), uuid)) {
+                        deleteFileIfExists(otherPathToItem);
+                    }
+                    versionTracker.deleted(user, uuid);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.remove(Paths.get(storageFolder), uuid, () -> getUserItems(user));
+                    }
+                    return Optional.of(uuid);
+                }
             }
 
             return Optional.empty();
@@ -111,33 +356,201 @@ abstract class FilesystemAbstractDao<T> {
         }
     }
 
+    DataVersion getUserItemsVersion(String user) {
+        return versionTracker.getUserVersion(user);
+    }
+
+    Optional<DataVersion> getUserItemVersion(String user, String uuid) {
+        if(findItemPath(Paths.get(getStorageFolder(user)), uuid).isPresent()) {
+            return Optional.of(versionTracker.getItemVersion(user, uuid));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Rewrites the item files of the user that are not in the configured format or layout. Each item is
+     * converted under its lock, so a concurrent update or delete of the same item either runs before and is
+     * migrated or runs after and wins. The content does not change, so versions, indexes and caches stay
+     * valid.
+     *
+     * @return the number of migrated items
+     */
+    int migrateUserItems(String user) {
+        try {
+            Path storageFolder = Paths.get(createStorageFolderIfMissing(user));
+            List<Path> otherPaths;
+            try(Stream<Path> paths = ItemLayout.listItemFiles(storageFolder)) {
+                otherPaths = paths
+                    .filter(p -> ItemFormat.getUuid(p.getFileName().toString())
+                        .filter(uuid -> !p.equals(getItemPath(storageFolder, uuid)))
+                        .isPresent())
+                    .collect(toList());
+            }
+
+            int migrated = 0;
+            for(Path otherPath : otherPaths) {
+                String uuid = ItemFormat.getUuid(otherPath.getFileName().toString()).get();
+                synchronized(getItemLock(storageFolder, uuid)) {
+                    if(!otherPath.toFile().exists()) {
+                        continue;
+                    }
+                    Path pathToItem = getItemPath(storageFolder, uuid);
+                    if(!pathToItem.toFile().exists()) {
+                        writeFile(pathToItem, readFile(otherPath));
+                    }
+                    deleteFileIfExists(otherPath);
+                    migrated++;
+                }
+            }
+            logger.debug("Migrated {} items for user {} into {}", migrated, user, storageFolder);
+            return migrated;
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
     protected abstract T createItem(String uuid, T item);
 
+    @Value(value = "${filesystem.dao.format:json}")
+    String format = "json";
+
+    @Value(value = "${filesystem.dao.layout:flat}")
+    String layout = "flat";
+
+    @Value(value = "${filesystem.dao.ids.timeordered:false}")
+    boolean timeOrderedIds;
+
     @Autowired
     FilesystemConfiguration filesystemConfiguration;
 
+    @Autowired(required = false)
+    WriteAheadLog writeAheadLog;
 
-    private T fromJson(Path path) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(path.toFile(),
-                (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0]);
-        } catch (IOException ex) {
-            throw new FilesystemDaoException(ex);
+    @Autowired(required = false)
+    ParallelScanner parallelScanner;
+
+    @Autowired(required = false)
+    FormatMigrator formatMigrator;
+
+    @Autowired(required = false)
+    ItemCompressor itemCompressor;
+
+    @PostConstruct
+    void scheduleMigration() {
+        if(formatMigrator != null) {
+            formatMigrator.schedule(getClass().getSimpleName(), this::migrateUserItems);
         }
     }
 
-    private String toJson(T t) {
-        ObjectMapper objectMapper = new ObjectMapper();
+    @SuppressWarnings("unchecked")
+    private Class<T> getItemType() {
+        return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+    ItemFormat getFormat() {
+        return ItemFormat.fromName(format);
+    }
+
+    ItemLayout getLayout() {
+        return ItemLayout.fromName(layout);
+    }
+
+    /**
+     * Where the item file is in the configured format and layout.
+     */
+    private Path getItemPath(Path storageFolder, String uuid) {
+        return getLayout().getPath(getFormat(), storageFolder, uuid);
+    }
+
+    /**
+     * Where the item file may still be, in another format or layout, while a migration runs.
+     */
+    private List<Path> getOtherItemPaths(Path storageFolder, String uuid) {
+        Path pathToItem = getItemPath(storageFolder, uuid);
+        List<Path> otherPaths = new ArrayList<>();
+        for(ItemLayout otherLayout : ItemLayout.values()) {
+            for(ItemFormat otherFormat : ItemFormat.values()) {
+                Path otherPath = otherLayout.getPath(otherFormat, storageFolder, uuid);
+                if(!otherPath.equals(pathToItem) && !otherPaths.contains(otherPath)) {
+                    otherPaths.add(otherPath);
+                }
+            }
+        }
+        return otherPaths;
+    }
+
+    private ItemCodec<T> getCodec(Path path) {
+        return ItemFormat.fromFileName(path.getFileName().toString()).orElse(ItemFormat.JSON).getCodec(itemType);
+    }
+
+    private static Object getItemLock(Path storageFolder, String uuid) {
+        return ITEM_LOCKS[Math.floorMod(storageFolder.toAbsolutePath().normalize().resolve(uuid).hashCode(), ITEM_LOCK_STRIPES)];
+    }
+
+    /**
+     * Writes the item in the configured format and layout and drops the files left in other ones.
+     */
+    private void writeItem(Path storageFolder, String uuid, T t) throws IOException {
+        writeFile(getItemPath(storageFolder, uuid), t);
+        for(Path otherPathToItem : getOtherItemPaths(storageFolder, uuid)) {
+            deleteFileIfExists(otherPathToItem);
+        }
+    }
+
+    /**
+     * Reads the item file, inflating it when it was written compressed.
+     */
+    private T readFile(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        filesystemConfiguration.recordRead(path, bytes.length);
+        return getCodec(path).read(itemCompressor != null
+            ? itemCompressor.decompress(bytes)
+            : ItemCompressor.inflate(bytes));
+    }
+
+    private void writeFile(Path path, T t) {
         try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            objectMapper.writeValue(out, t);
-            return out.toString();
+            ItemCodec<T> codec = getCodec(path);
+            if(getLayout() == ItemLayout.FANOUT) {
+                Files.createDirectories(path.getParent());
+            }
+            if(writeAheadLog != null) {
+                byte[] bytes = compress(codec.toBytes(t));
+                writeAheadLog.write(path, bytes);
+                filesystemConfiguration.recordWrite(path, bytes.length);
+            } else if(itemCompressor != null) {
+                byte[] bytes = itemCompressor.compress(codec.toBytes(t));
+                Files.write(path, bytes);
+                filesystemConfiguration.recordWrite(path, bytes.length);
+            } else {
+                codec.write(path, t);
+                filesystemConfiguration.recordWrite(path, path.toFile().length());
+            }
         } catch (IOException ex) {
             throw new FilesystemDaoException(ex);
         }
     }
 
+    private byte[] compress(byte[] bytes) {
+        return itemCompressor != null ? itemCompressor.compress(bytes) : bytes;
+    }
+
+    private void deleteFileIfExists(Path path) throws IOException {
+        if(!path.toFile().exists()) {
+            return;
+        }
+
+        if(writeAheadLog != null) {
+            writeAheadLog.delete(path);
+        } else {
+            path.toFile().delete();
+        }
+        filesystemConfiguration.recordDelete(path);
+    }
+
     private String createStorageFolderIfMissing(String user) throws IOException {
         return createFolderIfMissing(user, u -> getStorageFolder(u));
     }
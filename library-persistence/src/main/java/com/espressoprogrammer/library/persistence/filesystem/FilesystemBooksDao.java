@@ -2,16 +2,33 @@ package com.espressoprogrammer.library.persistence.filesystem;
 
 import com.espressoprogrammer.library.dto.Book;
 import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "files", matchIfMissing = true)
 public class FilesystemBooksDao extends FilesystemAbstractDao<Book> implements BooksDao {
+    private static final String ISBN10_KEY_PREFIX = "isbn10:";
+    private static final String ISBN13_KEY_PREFIX = "isbn13:";
+
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final SecondaryIndex<Book> isbnIndex = createIsbnIndex();
+    private final SecondaryIndex<Book> trigramIndex = new SecondaryIndex<>("trigram", Book::getUuid, FilesystemBooksDao::getTrigrams);
 
     @Override
     public List<Book> getUserBooks(String user) {
@@ -20,7 +37,42 @@ public class FilesystemBooksDao extends FilesystemAbstractDao<Book> implements B
 
     @Override
     public List<Book> getUserBooks(String user, String searchText) {
-        return getUserItems(user, searchText);
+        Set<String> trigrams = StringUtils.isEmpty(searchText) ? Collections.emptySet() : getTrigrams(searchText);
+        if(trigrams.isEmpty()) {
+            return getUserItems(user, searchText);
+        }
+
+        return getUserItems(user, searchText, trigramIndex, trigrams);
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        Set<String> trigrams = StringUtils.isEmpty(searchText) ? Collections.emptySet() : getTrigrams(searchText);
+        if(trigrams.isEmpty()) {
+            return getUserItems(user, pageRequest, b -> applySearchCriteria(b, searchText), null, trigrams);
+        }
+
+        return getUserItems(user, pageRequest, b -> applySearchCriteria(b, searchText), trigramIndex, trigrams);
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        Set<String> trigrams = StringUtils.isEmpty(searchText) ? Collections.emptySet() : getTrigrams(searchText);
+        if(trigrams.isEmpty()) {
+            return streamUserItems(user, b -> applySearchCriteria(b, searchText));
+        }
+
+        return streamUserItems(user, searchText, trigramIndex, trigrams);
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        List<String> keys = getIsbnKeys(isbn10, isbn13);
+        if(keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return getUserItems(user, isbnIndex, keys);
     }
 
     @Override
@@ -44,22 +96,41 @@ public class FilesystemBooksDao extends FilesystemAbstractDao<Book> implements B
     }
 
     @Override
-    protected boolean applySearchCriteria(Book book, String searchText) {
-        if(StringUtils.isEmpty(searchText)) return true;
+    public DataVersion getUserBooksVersion(String user) {
+        return getUserItemsVersion(user);
+    }
 
-        return createSearchPredicate(book.getTitle())
-            .or(createSearchPredicate(book.getIsbn10() != null ? book.getIsbn10() : ""))
-            .or(createSearchPredicate(book.getIsbn13() != null ? book.getIsbn13() : ""))
-            .or(createSearchPredicate(book.getAuthors().stream().reduce("", (acc, s) -> acc + s + " ")))
-            .test(searchText);
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return getUserItemVersion(user, uuid);
     }
 
-    private Predicate<String> createSearchPredicate(String value) {
-        return s -> value.toLowerCase().contains(s.toLowerCase());
+    @Override
+    public void warmUpUser(String user) {
+        warmUpUserItems(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        loadUserIndexes(user);
+    }
+
+    @Override
+    protected boolean applySearchCriteria(Book book, String searchText) {
+        return BooksSearch.matches(book, searchText);
+    }
+
+    @Override
+    protected List<SecondaryIndex<Book>> getSecondaryIndexes() {
+        return Arrays.asList(isbnIndex, trigramIndex);
     }
 
     @Override
     protected Book createItem(String uuid, Book book) {
+        return createBook(uuid, book);
+    }
+
+    static Book createBook(String uuid, Book book) {
         return new Book(uuid,
             book.getIsbn10(),
             book.getIsbn13(),
@@ -69,9 +140,48 @@ public class FilesystemBooksDao extends FilesystemAbstractDao<Book> implements B
             book.getPages());
     }
 
+    static SecondaryIndex<Book> createIsbnIndex() {
+        return new SecondaryIndex<>("isbn", Book::getUuid, b -> getIsbnKeys(b.getIsbn10(), b.getIsbn13()));
+    }
+
+    static List<String> getIsbnKeys(String isbn10, String isbn13) {
+        List<String> keys = new ArrayList<>();
+        if(!StringUtils.isEmpty(isbn10)) {
+            keys.add(ISBN10_KEY_PREFIX + isbn10);
+        }
+        if(!StringUtils.isEmpty(isbn13)) {
+            keys.add(ISBN13_KEY_PREFIX + isbn13);
+        }
+        return keys;
+    }
+
+    static Set<String> getTrigrams(Book book) {
+        Set<String> trigrams = new HashSet<>();
+        for(String value : BooksSearch.getSearchableValues(book)) {
+            trigrams.addAll(getTrigrams(value));
+        }
+        return trigrams;
+    }
+
+    static Set<String> getTrigrams(String value) {
+        String lowerCaseValue = value.toLowerCase();
+        Set<String> trigrams = new HashSet<>();
+        for(int i = 0; i + TRIGRAM_LENGTH <= lowerCaseValue.length(); i++) {
+            String trigram = lowerCaseValue.substring(i, i + TRIGRAM_LENGTH);
+            if(trigram.indexOf('\n') < 0 && trigram.indexOf('\r') < 0) {
+                trigrams.add(trigram);
+            }
+        }
+        return trigrams;
+    }
+
     @Override
     protected String getStorageFolder(String user) {
-        return filesystemConfiguration.getLibraryFolder() + "/" + user + "/books";
+        return getBooksFolder(filesystemConfiguration, user);
+    }
+
+    static String getBooksFolder(FilesystemConfiguration filesystemConfiguration, String user) {
+        return filesystemConfiguration.getUserFolder(user) + "/books";
     }
 
 }
@@ -4,16 +4,88 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Where the library lives: the library folder, which also holds the storage engine folders, and the shard
+ * roots of <code>filesystem.dao.shards.rootfolders</code> the user folders are spread over, if any.
+ * <p>
+ * User folders are rebalanced over the shard roots and item files moved to the configured layout on
+ * startup, when asked to, before any DAO touches them.
+ */
 @Component
 class FilesystemConfiguration {
 
     @Value(value = "${filesystem.dao.rootfolder:}")
     private String libraryFolder;
 
+    @Value(value = "${filesystem.dao.shards.rootfolders:}")
+    private String shardFolders;
+
+    @Value(value = "${filesystem.dao.shards.rebalance:false}")
+    private boolean rebalance;
+
+    @Value(value = "${filesystem.dao.layout:flat}")
+    private String layout = "flat";
+
+    @Value(value = "${filesystem.dao.layout.migration.offline:false}")
+    private boolean migrateLayout;
+
+    private StorageShards shards;
+
+    @PostConstruct
+    void init() throws IOException {
+        List<String> folders = Arrays.stream(StringUtils.commaDelimitedListToStringArray(shardFolders))
+            .map(String::trim)
+            .filter(folder -> !folder.isEmpty())
+            .collect(toList());
+        shards = new StorageShards(getLibraryFolder(), folders);
+        if(rebalance) {
+            new ShardRebalancer(getLibraryFolder(), shards).rebalance();
+        }
+        if(migrateLayout) {
+            new LayoutMigrator(getLibraryFolder(), ItemLayout.fromName(layout)).migrate(getUserFolders());
+        }
+    }
+
     String getLibraryFolder() {
         if(!StringUtils.isEmpty(libraryFolder)) {
             return libraryFolder;
         }
         return System.getProperty("user.home") + "/Library";
     }
+
+    /**
+     * The user folders of the library folder and of the shard roots.
+     */
+    List<File> getUserFolders() {
+        return shards.getUserFolders();
+    }
+
+    String getUserFolder(String user) {
+        return shards.getUserFolder(user);
+    }
+
+    void recordRead(Path path, long bytes) {
+        shards.recordRead(path, bytes);
+    }
+
+    void recordWrite(Path path, long bytes) {
+        shards.recordWrite(path, bytes);
+    }
+
+    void recordDelete(Path path) {
+        shards.recordDelete(path);
+    }
+
+    public List<ShardStatistics> getShardStatistics() {
+        return shards.getStatistics();
+    }
 }
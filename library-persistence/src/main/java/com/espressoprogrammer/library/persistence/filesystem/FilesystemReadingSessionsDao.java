@@ -1,23 +1,51 @@
 package com.espressoprogrammer.library.persistence.filesystem;
 
 import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-
-import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
 
 @Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "files", matchIfMissing = true)
 public class FilesystemReadingSessionsDao extends FilesystemAbstractDao<ReadingSession> implements ReadingSessionsDao {
 
+    private final SecondaryIndex<ReadingSession> bookUuidIndex = new SecondaryIndex<>("book-uuid",
+        ReadingSession::getUuid,
+        r -> Collections.singleton(r.getBookUuid()));
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user) {
+        return getUserItems(user);
+    }
+
     @Override
     public List<ReadingSession> getUserReadingSessions(String user, String bookUuid) {
-        return getUserItems(user).stream()
-            .filter(r -> bookUuid.equals(r.getBookUuid()))
-            .collect(toList());
+        return getUserItems(user, bookUuidIndex, bookUuid);
+    }
+
+    @Override
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest) {
+        List<String> keys = Collections.singletonList(bookUuid);
+        return getUserItems(user, pageRequest, r -> bookUuidIndex.matchesAny(r, keys), bookUuidIndex, keys);
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        return streamUserItems(user, r -> true);
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid) {
+        return streamUserItems(user, bookUuidIndex, Collections.singletonList(bookUuid));
     }
 
     @Override
@@ -40,13 +68,42 @@ public class FilesystemReadingSessionsDao extends FilesystemAbstractDao<ReadingS
         return deleteUserItem(user, uuid);
     }
 
+    @Override
+    public DataVersion getUserReadingSessionsVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        warmUpUserItems(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        loadUserIndexes(user);
+    }
+
     @Override
     protected boolean applySearchCriteria(ReadingSession readingSession, String searchText) {
         return true;
     }
 
+    @Override
+    protected List<SecondaryIndex<ReadingSession>> getSecondaryIndexes() {
+        return Collections.singletonList(bookUuidIndex);
+    }
+
     @Override
     protected ReadingSession createItem(String uuid, ReadingSession readingSession) {
+        return createReadingSession(uuid, readingSession);
+    }
+
+    static ReadingSession createReadingSession(String uuid, ReadingSession readingSession) {
         return new ReadingSession(uuid,
             readingSession.getBookUuid(),
             readingSession.getDeadline(),
@@ -55,7 +112,11 @@ public class FilesystemReadingSessionsDao extends FilesystemAbstractDao<ReadingS
 
     @Override
     protected String getStorageFolder(String user) {
-        return filesystemConfiguration.getLibraryFolder() + "/" + user + "/reading-sessions";
+        return getReadingSessionsFolder(filesystemConfiguration, user);
+    }
+
+    static String getReadingSessionsFolder(FilesystemConfiguration filesystemConfiguration, String user) {
+        return filesystemConfiguration.getUserFolder(user) + "/reading-sessions";
     }
 
 }
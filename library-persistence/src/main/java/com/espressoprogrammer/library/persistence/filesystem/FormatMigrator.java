@@ -0,0 +1,61 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToIntFunction;
+
+/**
+ * Converts, in the background, the item files written in another format or layout to the configured
+ * <code>filesystem.dao.format</code> and <code>filesystem.dao.layout</code>.
+ * <p>
+ * Every filesystem DAO schedules its migration on startup and the DAOs keep reading all formats and layouts
+ * while it runs, so the application serves requests during the whole migration. Migrations run one after another
+ * on a single daemon thread, user by user.
+ */
+@Component
+@ConditionalOnExpression("${filesystem.dao.format.migration.enabled:false} or ${filesystem.dao.layout.migration.enabled:false}")
+class FormatMigrator {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "filesystem-dao-format-migrator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    FilesystemConfiguration filesystemConfiguration;
+
+    void schedule(String name, ToIntFunction<String> migrateUser) {
+        executor.execute(() -> migrate(name, migrateUser));
+    }
+
+    private void migrate(String name, ToIntFunction<String> migrateUser) {
+        int migrated = 0;
+        for(File userFolder : filesystemConfiguration.getUserFolders()) {
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                migrated += migrateUser.applyAsInt(userFolder.getName());
+            } catch(Exception ex) {
+                logger.error("Error on migrating {} items of user {}", name, userFolder.getName(), ex);
+            }
+        }
+        logger.info("Migrated {} {} items to the configured format and layout", migrated, name);
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
+    }
+
+}
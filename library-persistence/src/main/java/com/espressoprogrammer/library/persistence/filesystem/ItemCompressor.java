@@ -0,0 +1,147 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Deflates the encoded items at or above a size threshold before they are written, so reading sessions,
+ * which grow by one date reading session per reading day, stop rewriting their whole text on every update.
+ * <p>
+ * The deflater is primed with a dictionary of the DTO field names, so even items just above the threshold
+ * shrink. Compressed items start with a marker no JSON or binary item starts with, so items are read back
+ * whatever their size and even after compression is turned off.
+ * <p>
+ * Layout: <code>byte 0 | byte 'Z' | byte dictionaryVersion | int length | zlib(item)</code>.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.compression.enabled", havingValue = "true")
+public class ItemCompressor {
+    private static final byte[] MAGIC = {0, 'Z'};
+    private static final byte DICTIONARY_VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Integer.BYTES;
+
+    /**
+     * Fragments shared by most items, the most frequent ones last as deflate prefers closer matches.
+     */
+    private static final byte[] DICTIONARY = ("\"isbn10\":\"\",\"isbn13\":\"\",\"image\":\"http://\",\"pages\":"
+        + "\"title\":\"\",\"authors\":[\"\"],\"uuid\":\"\",\"bookUuid\":\"\",\"deadline\":\"20\","
+        + "\"dateReadingSessions\":[{\"date\":\"20\",\"lastReadPage\":,\"bookmark\":\"\"},"
+        + "{\"date\":\"20\",\"lastReadPage\":,\"bookmark\":\"\"},").getBytes(UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    @Value(value = "${filesystem.dao.compression.threshold:2048}")
+    int threshold = 2048;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedCount = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    byte[] compress(byte[] bytes) {
+        if(bytes.length < threshold) {
+            skippedCount.increment();
+            return bytes;
+        }
+
+        long start = System.nanoTime();
+        byte[] compressed = deflate(bytes);
+        compressNanos.add(System.nanoTime() - start);
+        compressedCount.increment();
+        uncompressedBytes.add(bytes.length);
+        compressedBytes.add(compressed.length);
+        return compressed;
+    }
+
+    byte[] decompress(byte[] bytes) {
+        if(!isCompressed(bytes)) {
+            return bytes;
+        }
+
+        long start = System.nanoTime();
+        byte[] decompressed = inflate(bytes);
+        decompressNanos.add(System.nanoTime() - start);
+        decompressedCount.increment();
+        return decompressed;
+    }
+
+    public CompressionStatistics getStatistics() {
+        return new CompressionStatistics(compressedCount.sum(),
+            skippedCount.sum(),
+            uncompressedBytes.sum(),
+            compressedBytes.sum(),
+            compressNanos.sum(),
+            decompressedCount.sum(),
+            decompressNanos.sum());
+    }
+
+    static boolean isCompressed(byte[] bytes) {
+        return bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1];
+    }
+
+    static byte[] deflate(byte[] bytes) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + HEADER_LENGTH);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(DICTIONARY_VERSION);
+        out.write(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array(), 0, Integer.BYTES);
+        byte[] buffer = new byte[4096];
+        while(!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the item of compressed bytes and any other bytes as they are.
+     */
+    static byte[] inflate(byte[] bytes) {
+        if(!isCompressed(bytes)) {
+            return bytes;
+        }
+        if(bytes[MAGIC.length] != DICTIONARY_VERSION) {
+            throw new FilesystemDaoException(new DataFormatException("Unknown compression dictionary " + bytes[MAGIC.length]));
+        }
+
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        byte[] item = new byte[ByteBuffer.wrap(bytes, MAGIC.length + 1, Integer.BYTES).getInt()];
+        try {
+            int length = 0;
+            while(length < item.length) {
+                int inflated = inflater.inflate(item, length, item.length - length);
+                if(inflated == 0) {
+                    if(!inflater.needsDictionary()) {
+                        throw new DataFormatException("Truncated compressed item");
+                    }
+                    inflater.setDictionary(DICTIONARY);
+                }
+                length += inflated;
+            }
+            return item;
+        } catch(DataFormatException ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.codec.BinaryCodec;
+import com.espressoprogrammer.library.persistence.codec.ItemCodec;
+import com.espressoprogrammer.library.persistence.codec.JsonCodec;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * On-disk format of an item file, marked by the file extension so both formats can live side by side
+ * while a folder is migrated.
+ */
+enum ItemFormat {
+    JSON("json", ".json") {
+        @Override
+        <T> ItemCodec<T> getCodec(Class<T> type) {
+            return JsonCodec.forType(type);
+        }
+    },
+    BINARY("binary", ".bin") {
+        @Override
+        <T> ItemCodec<T> getCodec(Class<T> type) {
+            return BinaryCodec.forType(type);
+        }
+    };
+
+    private final String name;
+    private final String extension;
+
+    ItemFormat(String name, String extension) {
+        this.name = name;
+        this.extension = extension;
+    }
+
+    abstract <T> ItemCodec<T> getCodec(Class<T> type);
+
+    String getExtension() {
+        return extension;
+    }
+
+    Path getPath(Path folder, String uuid) {
+        return folder.resolve(uuid + extension);
+    }
+
+    static ItemFormat fromName(String name) {
+        for(ItemFormat format : values()) {
+            if(format.name.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown item format " + name);
+    }
+
+    static Optional<ItemFormat> fromFileName(String fileName) {
+        for(ItemFormat format : values()) {
+            if(fileName.endsWith(format.extension)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+    static Optional<String> getUuid(String fileName) {
+        return fromFileName(fileName).map(format -> fileName.substring(0, fileName.length() - format.extension.length()));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.ItemIds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Where the item files sit in a storage folder: all in the folder, or fanned out into subfolders named after
+ * the first characters of the uuid so no folder holds more than a small share of a large collection.
+ * Time-ordered uuids start with their creation time, so they are fanned out by their last, random, characters.
+ * Uuids shorter than a fan-out folder name are not fanned out.
+ * <p>
+ * Item files are listed from both layouts, so a storage folder can be migrated while it is used.
+ */
+enum ItemLayout {
+    FLAT("flat") {
+        @Override
+        Path getItemFolder(Path storageFolder, String uuid) {
+            return storageFolder;
+        }
+    },
+    FANOUT("fanout") {
+        @Override
+        Path getItemFolder(Path storageFolder, String uuid) {
+            if(uuid.length() < FANOUT_FOLDER_NAME_LENGTH) {
+                return storageFolder;
+            }
+            return storageFolder.resolve(ItemIds.isTimeOrdered(uuid)
+                ? uuid.substring(uuid.length() - FANOUT_FOLDER_NAME_LENGTH)
+                : uuid.substring(0, FANOUT_FOLDER_NAME_LENGTH));
+        }
+    };
+
+    private static final int FANOUT_FOLDER_NAME_LENGTH = 2;
+
+    private final String name;
+
+    ItemLayout(String name) {
+        this.name = name;
+    }
+
+    abstract Path getItemFolder(Path storageFolder, String uuid);
+
+    Path getPath(ItemFormat format, Path storageFolder, String uuid) {
+        return format.getPath(getItemFolder(storageFolder, uuid), uuid);
+    }
+
+    static ItemLayout fromName(String name) {
+        for(ItemLayout layout : values()) {
+            if(layout.name.equalsIgnoreCase(name)) {
+                return layout;
+            }
+        }
+        throw new IllegalArgumentException("Unknown item layout " + name);
+    }
+
+    /**
+     * Lists the files of the storage folder and of its fan-out subfolders. Only names as short as a fan-out
+     * folder are checked for being one, so listing a large flat folder costs no extra file system calls.
+     * <p>
+     * The stream holds the folders open until it is closed.
+     */
+    static Stream<Path> listItemFiles(Path storageFolder) throws IOException {
+        return Files.list(storageFolder)
+            .flatMap(path -> isFanOutFolder(path) ? list(path) : Stream.of(path));
+    }
+
+    static boolean isFanOutFolder(Path path) {
+        String name = path.getFileName().toString();
+        return name.length() == FANOUT_FOLDER_NAME_LENGTH && !name.startsWith(".") && path.toFile().isDirectory();
+    }
+
+    private static Stream<Path> list(Path folder) {
+        try {
+            return Files.list(folder);
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Moves the item files of every user to the configured layout, keeping their format.
+ * <p>
+ * It runs on startup, before any DAO touches the storage, and renames each file within its storage folder. An
+ * online migration writes the new file before deleting the old one, so when both exist the file already in the
+ * configured place wins, as it does for lookups. Records of the write-ahead log name the old item paths, so
+ * nothing is moved while the log holds any.
+ */
+class LayoutMigrator {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String libraryFolder;
+    private final ItemLayout layout;
+
+    LayoutMigrator(String libraryFolder, ItemLayout layout) {
+        this.libraryFolder = libraryFolder;
+        this.layout = layout;
+    }
+
+    /**
+     * Returns the number of item files moved.
+     */
+    int migrate(List<File> userFolders) throws IOException {
+        if(WriteAheadLog.hasRecords(libraryFolder)) {
+            logger.warn("Write-ahead log of {} holds records, start once without layout migration to replay it", libraryFolder);
+            return 0;
+        }
+
+        int moved = 0;
+        for(File userFolder : userFolders) {
+            File[] storageFolders = userFolder.listFiles(file -> file.isDirectory() && !file.getName().startsWith("."));
+            if(storageFolders == null) {
+                continue;
+            }
+            for(File storageFolder : storageFolders) {
+                moved += migrate(storageFolder.toPath());
+            }
+        }
+        logger.info("Moved {} item files to the {} layout", moved, layout);
+        return moved;
+    }
+
+    private int migrate(Path storageFolder) throws IOException {
+        List<Path> paths;
+        try(Stream<Path> itemFiles = ItemLayout.listItemFiles(storageFolder)) {
+            paths = itemFiles.collect(toList());
+        }
+
+        int moved = 0;
+        for(Path path : paths) {
+            Optional<String> uuid = ItemFormat.getUuid(path.getFileName().toString());
+            if(!uuid.isPresent()) {
+                continue;
+            }
+            Path target = layout.getItemFolder(storageFolder, uuid.get()).resolve(path.getFileName());
+            if(target.equals(path)) {
+                continue;
+            }
+            if(target.toFile().exists()) {
+                Files.delete(path);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            moved++;
+        }
+
+        if(layout == ItemLayout.FLAT && moved > 0) {
+            deleteEmptyFanOutFolders(storageFolder);
+        }
+        return moved;
+    }
+
+    private void deleteEmptyFanOutFolders(Path storageFolder) throws IOException {
+        List<Path> fanOutFolders;
+        try(Stream<Path> paths = Files.list(storageFolder)) {
+            fanOutFolders = paths.filter(ItemLayout::isFanOutFolder).collect(toList());
+        }
+        for(Path fanOutFolder : fanOutFolders) {
+            try {
+                Files.delete(fanOutFolder);
+            } catch(DirectoryNotEmptyException ex) {
+                logger.warn("Fan-out folder {} still holds files", fanOutFolder);
+            }
+        }
+    }
+
+}
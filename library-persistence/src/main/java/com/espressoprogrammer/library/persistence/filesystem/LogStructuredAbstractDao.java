@@ -0,0 +1,359 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.ItemIds;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.codec.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+abstract class LogStructuredAbstractDao<T> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int ITEM_LOCK_STRIPES = 64;
+    private static final Object[] ITEM_LOCKS = new Object[ITEM_LOCK_STRIPES];
+
+    static {
+        for(int i = 0; i < ITEM_LOCK_STRIPES; i++) {
+            ITEM_LOCKS[i] = new Object();
+        }
+    }
+
+    private final JsonCodec<T> codec = JsonCodec.forType(getItemType());
+    private final VersionTracker versionTracker = new VersionTracker();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "segment-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value(value = "${filesystem.dao.log.segmentsize:8388608}")
+    long maxSegmentSize = 8 * 1024 * 1024;
+
+    @Value(value = "${filesystem.dao.log.mmap:false}")
+    boolean memoryMapped;
+
+    @Value(value = "${filesystem.dao.log.compaction.minbytes:1048576}")
+    long minCompactionBytes = 1024 * 1024;
+
+    @Value(value = "${filesystem.dao.ids.timeordered:false}")
+    boolean timeOrderedIds;
+
+    @Value(value = "${filesystem.dao.log.maxopenusers:256}")
+    int maxOpenUsers = 256;
+
+    private volatile SegmentLogCache<T> segmentLogs;
+
+    List<T> getUserItems(String user) {
+        return getUserItems(user, null);
+    }
+
+    List<T> getUserItems(String user, String searchText) {
+        try {
+            logger.debug("Look for item for user {} into {}", user, getStorageFolder(user));
+
+            try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+                return handle.getLog().readAll(t -> applySearchCriteria(t, searchText));
+            }
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    List<T> getUserItems(String user, SecondaryIndex<T> index, Collection<String> keys) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            SegmentLog<T> segmentLog = handle.getLog();
+            Path storageFolder = Paths.get(getStorageFolder(user));
+            logger.debug("Look for item for user {} into {} with {}", user, storageFolder, keys);
+
+            Set<String> uuids = new LinkedHashSet<>();
+            for(String key : keys) {
+                uuids.addAll(index.lookup(storageFolder, key, () -> getUserItems(user)));
+            }
+
+            List<T> items = new ArrayList<>();
+            for(String uuid : uuids) {
+                segmentLog.read(uuid)
+                    .filter(item -> index.matchesAny(item, keys))
+                    .ifPresent(items::add);
+            }
+            return items;
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    /**
+     * Reads one page of items in uuid order, loading only the records the page needs.
+     */
+    Page<T> getUserItems(String user, PageRequest pageRequest, Predicate<T> filter) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            SegmentLog<T> segmentLog = handle.getLog();
+            logger.debug("Look for item for user {} into {} with {}", user, getStorageFolder(user), pageRequest);
+
+            return Page.read(segmentLog.uuids(), pageRequest, uuid -> read(segmentLog, uuid), filter);
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    /**
+     * Lazily reads the live records of the user, in uuid order, that match the filter. The log stays open until
+     * the stream is closed.
+     */
+    Stream<T> streamUserItems(String user, Predicate<T> filter) {
+        SegmentLogCache.Handle<T> handle = openSegmentLog(user);
+        SegmentLog<T> segmentLog = handle.getLog();
+        logger.debug("Look for item for user {} into {}", user, getStorageFolder(user));
+
+        return segmentLog.uuids().stream()
+            .onClose(handle::close)
+            .map(uuid -> read(segmentLog, uuid))
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .filter(filter);
+    }
+
+    private Optional<T> read(SegmentLog<T> segmentLog, String uuid) {
+        try {
+            return segmentLog.read(uuid);
+        } catch(IOException ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    /**
+     * Opens the segment log of the user, loads its secondary indexes and reads every live record.
+     */
+    void warmUpUserItems(String user) {
+        warmUpUserItems(user, true);
+    }
+
+    /**
+     * Opens the segment log of the user and loads its secondary indexes, without reading the records unless
+     * an index has to be rebuilt.
+     */
+    void loadUserIndexes(String user) {
+        warmUpUserItems(user, false);
+    }
+
+    private void warmUpUserItems(String user, boolean readItems) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            SegmentLog<T> segmentLog = handle.getLog();
+            Path storageFolder = Paths.get(getStorageFolder(user));
+            logger.debug("Warm up items for user {} into {}", user, storageFolder);
+
+            for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                index.load(storageFolder, () -> getUserItems(user));
+            }
+            if(readItems) {
+                segmentLog.readAll(t -> true);
+            }
+        } catch(FilesystemDaoException ex) {
+            throw ex;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    protected abstract boolean applySearchCriteria(T t, String searchText);
+
+    protected List<SecondaryIndex<T>> getSecondaryIndexes() {
+        return Collections.emptyList();
+    }
+
+    T createUserItem(String user, T item) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            logger.debug("Add new item for user {} into {}", user, getStorageFolder(user));
+
+            SegmentLog<T> segmentLog = handle.getLog();
+            String uuid = ItemIds.newId(timeOrderedIds);
+            T persistedItem = createItem(uuid, item);
+            for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                index.add(Paths.get(getStorageFolder(user)), uuid, persistedItem, () -> getUserItems(user));
+            }
+            segmentLog.put(uuid, persistedItem);
+            versionTracker.written(user, uuid);
+            return persistedItem;
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    Optional<T> getUserItem(String user, String uuid) {
+        try {
+            logger.debug("Look for item for user {} into {} with uuid {}", user, getStorageFolder(user), uuid);
+
+            try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+                return handle.getLog().read(uuid);
+            }
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    Optional<String> updateUserItem(String user, String uuid, T item) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            logger.debug("Update item for user {} with uuid {}", user, uuid);
+
+            SegmentLog<T> segmentLog = handle.getLog();
+            synchronized(getItemLock(user, uuid)) {
+                if(segmentLog.contains(uuid)) {
+                    T persistedItem = createItem(uuid, item);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.add(Paths.get(getStorageFolder(user)), uuid, persistedItem, () -> getUserItems(user));
+                    }
+                    segmentLog.put(uuid, persistedItem);
+                    versionTracker.written(user, uuid);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.retain(Paths.get(getStorageFolder(user)), uuid, persistedItem, () -> getUserItems(user));
+                    }
+                    scheduleCompactionIfNeeded(user, segmentLog);
+                    return Optional.of(uuid);
+                }
+            }
+
+            return Optional.empty();
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    Optional<String> deleteUserItem(String user, String uuid) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            logger.debug("Delete item for user {} with uuid {}", user, uuid);
+
+            SegmentLog<T> segmentLog = handle.getLog();
+            synchronized(getItemLock(user, uuid)) {
+                if(segmentLog.delete(uuid)) {
+                    versionTracker.deleted(user, uuid);
+                    for(SecondaryIndex<T> index : getSecondaryIndexes()) {
+                        index.remove(Paths.get(getStorageFolder(user)), uuid, () -> getUserItems(user));
+                    }
+                    scheduleCompactionIfNeeded(user, segmentLog);
+                    return Optional.of(uuid);
+                }
+            }
+
+            return Optional.empty();
+        } catch(Exception ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    DataVersion getUserItemsVersion(String user) {
+        return versionTracker.getUserVersion(user);
+    }
+
+    Optional<DataVersion> getUserItemVersion(String user, String uuid) {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            if(handle.getLog().contains(uuid)) {
+                return Optional.of(versionTracker.getItemVersion(user, uuid));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    void compact(String user) throws IOException {
+        try(SegmentLogCache.Handle<T> handle = openSegmentLog(user)) {
+            handle.getLog().compact();
+        }
+    }
+
+    int getOpenSegmentLogCount() {
+        return getSegmentLogs().getOpenLogCount();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        compactor.shutdown();
+        getSegmentLogs().closeAll();
+    }
+
+    protected abstract T createItem(String uuid, T item);
+
+    protected abstract String getStorageFolder(String user);
+
+    @Autowired
+    FilesystemConfiguration filesystemConfiguration;
+
+    /**
+     * Serializes the update and delete of one item, so an update that found the item cannot put it back after a
+     * delete, together with its secondary index keys.
+     */
+    private Object getItemLock(String user, String uuid) {
+        return ITEM_LOCKS[Math.floorMod(Paths.get(getStorageFolder(user)).toAbsolutePath().normalize().resolve(uuid).hashCode(),
+            ITEM_LOCK_STRIPES)];
+    }
+
+    /**
+     * Opens the segment log of the user through the cache of open logs; the handle must be closed after use.
+     */
+    private SegmentLogCache.Handle<T> openSegmentLog(String user) {
+        try {
+            return getSegmentLogs().acquire(user);
+        } catch(IOException ex) {
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    private SegmentLogCache<T> getSegmentLogs() {
+        SegmentLogCache<T> cache = segmentLogs;
+        if(cache == null) {
+            synchronized(this) {
+                cache = segmentLogs;
+                if(cache == null) {
+                    cache = new SegmentLogCache<>(maxOpenUsers,
+                        user -> SegmentLog.open(Paths.get(getStorageFolder(user)), codec, maxSegmentSize, memoryMapped));
+                    segmentLogs = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private void scheduleCompactionIfNeeded(String user, SegmentLog<T> segmentLog) {
+        if(segmentLog.needsCompaction(minCompactionBytes)) {
+            compactor.execute(() -> {
+                try {
+                    compact(user);
+                } catch(Exception ex) {
+                    logger.error("Error on compacting items of user {}", user, ex);
+                }
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> getItemType() {
+        return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "log")
+public class LogStructuredBooksDao extends LogStructuredAbstractDao<Book> implements BooksDao {
+
+    private final SecondaryIndex<Book> isbnIndex = FilesystemBooksDao.createIsbnIndex();
+
+    @Override
+    public List<Book> getUserBooks(String user) {
+        return getUserItems(user);
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user, String searchText) {
+        return getUserItems(user, searchText);
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        return getUserItems(user, pageRequest, b -> applySearchCriteria(b, searchText));
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        return streamUserItems(user, b -> applySearchCriteria(b, searchText));
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        List<String> keys = FilesystemBooksDao.getIsbnKeys(isbn10, isbn13);
+        if(keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return getUserItems(user, isbnIndex, keys);
+    }
+
+    @Override
+    public Book createUserBook(String user, Book book) {
+        return createUserItem(user, book);
+    }
+
+    @Override
+    public Optional<Book> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid);
+    }
+
+    @Override
+    public Optional<String> updateUserBook(String user, String uuid, Book book) {
+        return updateUserItem(user, uuid, book);
+    }
+
+    @Override
+    public Optional<String> deleteUserBook(String user, String uuid) {
+        return deleteUserItem(user, uuid);
+    }
+
+    @Override
+    public DataVersion getUserBooksVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        warmUpUserItems(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        loadUserIndexes(user);
+    }
+
+    @Override
+    protected boolean applySearchCriteria(Book book, String searchText) {
+        return BooksSearch.matches(book, searchText);
+    }
+
+    @Override
+    protected List<SecondaryIndex<Book>> getSecondaryIndexes() {
+        return Collections.singletonList(isbnIndex);
+    }
+
+    @Override
+    protected Book createItem(String uuid, Book book) {
+        return FilesystemBooksDao.createBook(uuid, book);
+    }
+
+    @Override
+    protected String getStorageFolder(String user) {
+        return filesystemConfiguration.getUserFolder(user) + "/books-log";
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+@Repository
+@ConditionalOnProperty(name = "filesystem.dao.storage", havingValue = "log")
+public class LogStructuredReadingSessionsDao extends LogStructuredAbstractDao<ReadingSession> implements ReadingSessionsDao {
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user) {
+        return getUserItems(user);
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user, String bookUuid) {
+        return getUserItems(user).stream()
+            .filter(r -> bookUuid.equals(r.getBookUuid()))
+            .collect(toList());
+    }
+
+    @Override
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest) {
+        return getUserItems(user, pageRequest, r -> bookUuid.equals(r.getBookUuid()));
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        return streamUserItems(user, r -> true);
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid) {
+        return streamUserItems(user, r -> bookUuid.equals(r.getBookUuid()));
+    }
+
+    @Override
+    public ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) {
+        return createUserItem(user, readingSession);
+    }
+
+    @Override
+    public Optional<ReadingSession> getUserReadingSession(String user, String bookUuid, String uuid) {
+        return getUserItem(user, uuid);
+    }
+
+    @Override
+    public Optional<String> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession) {
+        return updateUserItem(user, uuid, readingSession);
+    }
+
+    @Override
+    public Optional<String> deleteUserReadingSession(String user, String bookUuid, String uuid) {
+        return deleteUserItem(user, uuid);
+    }
+
+    @Override
+    public DataVersion getUserReadingSessionsVersion(String user) {
+        return getUserItemsVersion(user);
+    }
+
+    @Override
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return getUserItemVersion(user, uuid);
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        warmUpUserItems(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        loadUserIndexes(user);
+    }
+
+    @Override
+    protected boolean applySearchCriteria(ReadingSession readingSession, String searchText) {
+        return true;
+    }
+
+    @Override
+    protected ReadingSession createItem(String uuid, ReadingSession readingSession) {
+        return FilesystemReadingSessionsDao.createReadingSession(uuid, readingSession);
+    }
+
+    @Override
+    protected String getStorageFolder(String user) {
+        return filesystemConfiguration.getUserFolder(user) + "/reading-sessions-log";
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Decodes and filters the item files of a full scan on a dedicated, bounded fork join pool.
+ * <p>
+ * Items are split across the pool by a parallel stream and the results keep the order of the given items,
+ * so a scan returns the same list whatever the number of threads. The pool is not the common one, so scans
+ * never compete with other parallel streams of the application.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.scan.parallel", havingValue = "true")
+class ParallelScanner {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${filesystem.dao.scan.parallelism:0}")
+    int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("filesystem-dao-scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        logger.info("Scan item files on {} threads", threads);
+    }
+
+    <S, T> List<T> scan(List<S> sources, Function<S, T> decoder, Predicate<T> filter) {
+        try {
+            return pool.submit(() -> sources.parallelStream()
+                .map(decoder)
+                .filter(filter)
+                .collect(toList()))
+                .get();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FilesystemDaoException(ex);
+        } catch(ExecutionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new FilesystemDaoException(ex);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        pool.shutdown();
+    }
+
+}
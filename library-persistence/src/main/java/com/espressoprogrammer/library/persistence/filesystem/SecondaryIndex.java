@@ -0,0 +1,383 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Persisted key to uuids index over the items of one storage folder.
+ * <p>
+ * The index is an append-only journal of <code>+ key uuid</code> and <code>- key uuid</code> lines. Keys are
+ * added before an item is written and removed only after it was written or deleted, so after a crash the
+ * index may hold stale entries but never misses one. Callers verify the items they load through it.
+ * A missing index is rebuilt from the items of the folder.
+ * <p>
+ * The entries of at most <code>maxFolders</code> folders are kept in memory; the least recently used ones are
+ * dropped and loaded again from their journal when needed. A folder is loaded, or rebuilt, by the first caller
+ * that needs it while the others wait for it, so loading one folder does not hold up the others.
+ */
+class SecondaryIndex<T> {
+    private static final String INDEX_EXTENSION = ".index";
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+    private static final char SEPARATOR = '\t';
+    private static final int DEFAULT_MAX_FOLDERS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String name;
+    private final Function<T, String> uuid;
+    private final Function<T, Collection<String>> keys;
+    private final int maxFolders;
+    private final ConcurrentMap<Path, Entries> folders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, CompletableFuture<Entries>> loadingFolders = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    SecondaryIndex(String name, Function<T, String> uuid, Function<T, Collection<String>> keys) {
+        this(name, uuid, keys, DEFAULT_MAX_FOLDERS);
+    }
+
+    SecondaryIndex(String name, Function<T, String> uuid, Function<T, Collection<String>> keys, int maxFolders) {
+        if(maxFolders <= 0) {
+            throw new IllegalArgumentException("Maximum number of index folders must be positive: " + maxFolders);
+        }
+        this.name = name;
+        this.uuid = uuid;
+        this.keys = keys;
+        this.maxFolders = maxFolders;
+    }
+
+    /**
+     * Loads the index of the folder, rebuilding it when missing, without looking anything up.
+     */
+    void load(Path folder, Supplier<List<T>> items) throws IOException {
+        getEntries(folder, items);
+    }
+
+    Set<String> lookup(Path folder, String key, Supplier<List<T>> items) throws IOException {
+        Entries entries = getEntries(folder, items);
+        synchronized(entries) {
+            return new LinkedHashSet<>(entries.uuidsByKey.getOrDefault(key, Collections.emptySet()));
+        }
+    }
+
+    /**
+     * Returns the uuids indexed under every one of the keys.
+     */
+    Set<String> lookupAll(Path folder, Collection<String> keys, Supplier<List<T>> items) throws IOException {
+        Entries entries = getEntries(folder, items);
+        synchronized(entries) {
+            List<Set<String>> postings = new ArrayList<>();
+            for(String key : keys) {
+                Set<String> uuids = entries.uuidsByKey.get(key);
+                if(uuids == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(uuids);
+            }
+            if(postings.isEmpty()) {
+                return Collections.emptySet();
+            }
+
+            postings.sort(Comparator.comparingInt(Set::size));
+            Set<String> uuids = new LinkedHashSet<>(postings.get(0));
+            for(int i = 1; i < postings.size() && !uuids.isEmpty(); i++) {
+                uuids.retainAll(postings.get(i));
+            }
+            return uuids;
+        }
+    }
+
+    boolean matches(T item, String key) {
+        return keys(item).contains(key);
+    }
+
+    boolean matchesAny(T item, Collection<String> keys) {
+        Set<String> itemKeys = keys(item);
+        return keys.stream().anyMatch(itemKeys::contains);
+    }
+
+    /**
+     * Adds the keys of an item that is about to be written.
+     */
+    void add(Path folder, String uuid, T item, Supplier<List<T>> items) throws IOException {
+        update(folder, items, entries -> {
+            List<String> addedKeys = new ArrayList<>();
+            for(String key : keys(item)) {
+                if(entries.add(key, uuid)) {
+                    addedKeys.add(key);
+                }
+            }
+            entries.append(ADD, addedKeys, uuid);
+        });
+    }
+
+    /**
+     * Drops the keys an item no longer has once it was written.
+     */
+    void retain(Path folder, String uuid, T item, Supplier<List<T>> items) throws IOException {
+        update(folder, items, entries -> {
+            Set<String> staleKeys = new HashSet<>(entries.keysByUuid.getOrDefault(uuid, Collections.emptySet()));
+            staleKeys.removeAll(keys(item));
+            remove(entries, uuid, staleKeys);
+        });
+    }
+
+    /**
+     * Drops all the keys of an item once it was deleted.
+     */
+    void remove(Path folder, String uuid, Supplier<List<T>> items) throws IOException {
+        update(folder, items, entries ->
+            remove(entries, uuid, new HashSet<>(entries.keysByUuid.getOrDefault(uuid, Collections.emptySet()))));
+    }
+
+    int getLoadedFolderCount() {
+        return folders.size();
+    }
+
+    /**
+     * Changes the entries of the folder and their journal. Entries dropped from memory meanwhile are not changed
+     * any more, since the folder may have been loaded again from the journal; the change goes to those instead.
+     */
+    private void update(Path folder, Supplier<List<T>> items, EntriesUpdate update) throws IOException {
+        while(true) {
+            Entries entries = getEntries(folder, items);
+            synchronized(entries) {
+                if(!entries.evicted) {
+                    update.apply(entries);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void remove(Entries entries, String uuid, Set<String> keys) throws IOException {
+        List<String> removedKeys = new ArrayList<>();
+        for(String key : keys) {
+            if(entries.remove(key, uuid)) {
+                removedKeys.add(key);
+            }
+        }
+        entries.append(REMOVE, removedKeys, uuid);
+        if(entries.journalLines > 2 * entries.size + 100) {
+            entries.compact();
+        }
+    }
+
+    private Set<String> keys(T item) {
+        Set<String> itemKeys = new HashSet<>(keys.apply(item));
+        itemKeys.removeIf(k -> k == null || k.isEmpty() || k.indexOf('\n') >= 0 || k.indexOf('\r') >= 0);
+        return itemKeys;
+    }
+
+    private Entries getEntries(Path folder, Supplier<List<T>> items) throws IOException {
+        Entries entries = folders.get(folder);
+        if(entries != null) {
+            entries.lastUsed = clock.incrementAndGet();
+            return entries;
+        }
+
+        CompletableFuture<Entries> loading = new CompletableFuture<>();
+        CompletableFuture<Entries> otherLoading = loadingFolders.putIfAbsent(folder, loading);
+        if(otherLoading != null) {
+            return awaitLoaded(otherLoading);
+        }
+
+        try {
+            entries = folders.get(folder);
+            if(entries == null) {
+                entries = loadEntries(folder, items);
+                synchronized(folders) {
+                    entries.lastUsed = clock.incrementAndGet();
+                    folders.put(folder, entries);
+                    evictLeastRecentlyUsed();
+                }
+            }
+            loading.complete(entries);
+            return entries;
+        } catch(IOException | RuntimeException ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loadingFolders.remove(folder, loading);
+        }
+    }
+
+    private Entries loadEntries(Path folder, Supplier<List<T>> items) throws IOException {
+        Entries entries = new Entries(folder.resolve("." + name + INDEX_EXTENSION));
+        if(!entries.load()) {
+            logger.debug("Rebuild {} index of {}", name, folder);
+            for(T item : items.get()) {
+                for(String key : keys(item)) {
+                    entries.add(key, uuid.apply(item));
+                }
+            }
+            entries.compact();
+        }
+        return entries;
+    }
+
+    private Entries awaitLoaded(CompletableFuture<Entries> loading) throws IOException {
+        try {
+            return loading.get();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted while waiting for %s index to load", name));
+        } catch(ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Drops the least recently used folders beyond the bound. The entries are marked as dropped, which waits for
+     * a change in progress on them, before they are removed, so the folder is not loaded again from its journal
+     * while they still change it.
+     */
+    private void evictLeastRecentlyUsed() {
+        while(folders.size() > maxFolders) {
+            Map.Entry<Path, Entries> eldest = Collections.min(folders.entrySet(),
+                Comparator.comparingLong(e -> e.getValue().lastUsed));
+            synchronized(eldest.getValue()) {
+                eldest.getValue().evicted = true;
+            }
+            folders.remove(eldest.getKey());
+            logger.debug("Drop {} index of {} from memory", name, eldest.getKey());
+        }
+    }
+
+    private interface EntriesUpdate {
+        void apply(Entries entries) throws IOException;
+    }
+
+    private static class Entries {
+        private final Path path;
+        private final Map<String, Set<String>> uuidsByKey = new HashMap<>();
+        private final Map<String, Set<String>> keysByUuid = new HashMap<>();
+        private int size;
+        private int journalLines;
+        private volatile long lastUsed;
+        private boolean evicted;
+
+        private Entries(Path path) {
+            this.path = path;
+        }
+
+        private boolean add(String key, String uuid) {
+            boolean added = uuidsByKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(uuid);
+            keysByUuid.computeIfAbsent(uuid, u -> new HashSet<>()).add(key);
+            if(added) {
+                size++;
+            }
+            return added;
+        }
+
+        private boolean remove(String key, String uuid) {
+            Set<String> uuids = uuidsByKey.get(key);
+            boolean removed = uuids != null && uuids.remove(uuid);
+            if(uuids != null && uuids.isEmpty()) {
+                uuidsByKey.remove(key);
+            }
+            Set<String> keys = keysByUuid.get(uuid);
+            if(keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByUuid.remove(uuid);
+            }
+            if(removed) {
+                size--;
+            }
+            return removed;
+        }
+
+        private boolean load() throws IOException {
+            try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while((line = reader.readLine()) != null) {
+                    journalLines++;
+                    int keyEnd = line.lastIndexOf(SEPARATOR);
+                    if(line.length() < 2 || line.charAt(1) != SEPARATOR || keyEnd <= 2) {
+                        continue;
+                    }
+                    String key = line.substring(2, keyEnd);
+                    String uuid = line.substring(keyEnd + 1);
+                    if(line.charAt(0) == ADD) {
+                        add(key, uuid);
+                    } else if(line.charAt(0) == REMOVE) {
+                        remove(key, uuid);
+                    }
+                }
+                return true;
+            } catch(NoSuchFileException ex) {
+                return false;
+            }
+        }
+
+        private void append(char op, List<String> keys, String uuid) throws IOException {
+            if(keys.isEmpty()) {
+                return;
+            }
+
+            try(Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for(String key : keys) {
+                    writeLine(writer, op, key, uuid);
+                }
+            }
+            journalLines += keys.size();
+        }
+
+        private void compact() throws IOException {
+            Path compactingPath = path.resolveSibling(path.getFileName() + ".compacting");
+            try(BufferedWriter writer = Files.newBufferedWriter(compactingPath, StandardCharsets.UTF_8)) {
+                for(Map.Entry<String, Set<String>> entry : uuidsByKey.entrySet()) {
+                    for(String uuid : entry.getValue()) {
+                        writeLine(writer, ADD, entry.getKey(), uuid);
+                    }
+                }
+            }
+            Files.move(compactingPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = size;
+        }
+
+        private static void writeLine(Writer writer, char op, String key, String uuid) throws IOException {
+            writer.write(op);
+            writer.write(SEPARATOR);
+            writer.write(key);
+            writer.write(SEPARATOR);
+            writer.write(uuid);
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.codec.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Append-only store for the items of one user.
+ * <p>
+ * Every put or delete is appended as a record to the active segment file and an in-memory index keeps
+ * the position of the latest record of each uuid. A record is laid out as
+ * <code>length | crc32 | op | uuid length | uuid | payload</code>, where length and crc32 cover everything
+ * after them. A torn record at the end of the log is dropped when the log is opened.
+ * <p>
+ * Compaction seals the active segment and rewrites the live records of all sealed segments into a single
+ * one, while new writes keep going to the new active segment.
+ * <p>
+ * When memory mapped, reads decode items straight from a read-only mapping of each segment. A segment is
+ * remapped only when it grew past its current mapping.
+ */
+class SegmentLog<T> implements Closeable {
+    private static final String SEGMENT_EXTENSION = ".segment";
+    private static final String COMPACTING_EXTENSION = ".compacting";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path folder;
+    private final JsonCodec<T> codec;
+    private final long maxSegmentSize;
+    private final boolean memoryMapped;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Pointer> index = new LinkedHashMap<>();
+    private final TreeMap<Long, FileChannel> segments = new TreeMap<>();
+    private final Map<Long, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+    private long activeSegment;
+    private long activeSize;
+    private long liveBytes;
+    private long garbageBytes;
+    private boolean compacting;
+
+    private SegmentLog(Path folder, JsonCodec<T> codec, long maxSegmentSize, boolean memoryMapped) {
+        this.folder = folder;
+        this.codec = codec;
+        this.maxSegmentSize = maxSegmentSize;
+        this.memoryMapped = memoryMapped;
+    }
+
+    static <T> SegmentLog<T> open(Path folder, JsonCodec<T> codec, long maxSegmentSize, boolean memoryMapped) throws IOException {
+        SegmentLog<T> segmentLog = new SegmentLog<>(folder, codec, maxSegmentSize, memoryMapped);
+        segmentLog.load();
+        return segmentLog;
+    }
+
+    List<T> readAll(Predicate<T> filter) throws IOException {
+        lock.readLock().lock();
+        try {
+            if(memoryMapped) {
+                return readAllMapped(filter);
+            }
+
+            List<T> items = new ArrayList<>();
+            for(Map.Entry<Long, FileChannel> segment : segments.entrySet()) {
+                long segmentId = segment.getKey();
+                scan(segment.getValue(), (offset, record) -> {
+                    if(record.op == PUT && isLive(record.uuid, segmentId, offset)) {
+                        T item = codec.read(record.payload);
+                        if(filter.test(item)) {
+                            items.add(item);
+                        }
+                    }
+                });
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Optional<T> read(String uuid) throws IOException {
+        lock.readLock().lock();
+        try {
+            Pointer pointer = index.get(uuid);
+            if(pointer == null) {
+                return Optional.empty();
+            }
+
+            if(memoryMapped) {
+                ByteBuffer buffer = map(pointer.segment, pointer.offset + pointer.length);
+                return Optional.of(codec.read(payload(buffer, (int) pointer.offset, pointer.length)));
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(pointer.length);
+            readFully(segments.get(pointer.segment), buffer, pointer.offset);
+            Record record = Record.decode(buffer.array(), HEADER_SIZE, pointer.length - HEADER_SIZE);
+            return Optional.of(codec.read(record.payload));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a sorted snapshot of the live uuids, without reading any record.
+     */
+    NavigableSet<String> uuids() {
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean contains(String uuid) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(String uuid, T item) throws IOException {
+        byte[] payload = codec.toBytes(item);
+        lock.writeLock().lock();
+        try {
+            append(new Record(PUT, uuid, payload));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean delete(String uuid) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if(!index.containsKey(uuid)) {
+                return false;
+            }
+            append(new Record(DELETE, uuid, new byte[0]));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean needsCompaction(long minGarbageBytes) {
+        lock.readLock().lock();
+        try {
+            return !compacting && garbageBytes >= minGarbageBytes && garbageBytes > liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void compact() throws IOException {
+        TreeMap<Long, FileChannel> inputs;
+        Map<String, Pointer> liveAtStart;
+        lock.writeLock().lock();
+        try {
+            if(compacting) {
+                return;
+            }
+            compacting = true;
+            if(activeSize > 0) {
+                openSegment(activeSegment + 1);
+            }
+            inputs = new TreeMap<>(segments.headMap(activeSegment));
+            liveAtStart = new HashMap<>(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            if(!inputs.isEmpty()) {
+                compact(inputs, liveAtStart);
+            }
+        } finally {
+            lock.writeLock().lock();
+            compacting = false;
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for(FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            segments.clear();
+            mappings.clear();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compact(TreeMap<Long, FileChannel> inputs, Map<String, Pointer> liveAtStart) throws IOException {
+        long outputSegment = inputs.lastKey();
+        Path compactingPath = folder.resolve(outputSegment + COMPACTING_EXTENSION);
+        logger.debug("Compact segments {} of {}", inputs.keySet(), folder);
+
+        Map<String, Pointer[]> moved = new HashMap<>();
+        Set<String> seenPuts = new HashSet<>();
+        try(FileChannel output = FileChannel.open(compactingPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            long[] outputSize = {0};
+            for(Map.Entry<Long, FileChannel> input : inputs.entrySet()) {
+                long segmentId = input.getKey();
+                scan(input.getValue(), (offset, record) -> {
+                    boolean keep;
+                    if(record.op == PUT) {
+                        seenPuts.add(record.uuid);
+                        keep = new Pointer(segmentId, offset, record.length()).equals(liveAtStart.get(record.uuid));
+                    } else {
+                        keep = seenPuts.contains(record.uuid);
+                    }
+                    if(keep) {
+                        ByteBuffer buffer = record.encode();
+                        int length = buffer.remaining();
+                        writeFully(output, buffer, outputSize[0]);
+                        if(record.op == PUT) {
+                            moved.put(record.uuid, new Pointer[] {liveAtStart.get(record.uuid),
+                                new Pointer(outputSegment, outputSize[0], length)});
+                        }
+                        outputSize[0] += length;
+                    }
+                });
+            }
+            output.force(true);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for(long segmentId : inputs.keySet()) {
+                segments.remove(segmentId).close();
+                mappings.remove(segmentId);
+            }
+            Files.move(compactingPath, segmentPath(outputSegment), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for(long segmentId : inputs.keySet()) {
+                if(segmentId != outputSegment) {
+                    Files.deleteIfExists(segmentPath(segmentId));
+                }
+            }
+            segments.put(outputSegment, FileChannel.open(segmentPath(outputSegment), StandardOpenOption.READ, StandardOpenOption.WRITE));
+
+            for(Map.Entry<String, Pointer[]> move : moved.entrySet()) {
+                if(move.getValue()[0].equals(index.get(move.getKey()))) {
+                    index.put(move.getKey(), move.getValue()[1]);
+                }
+            }
+            recomputeSizes();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Compacted {} into segment {}, live {} bytes, garbage {} bytes", folder, outputSegment, liveBytes, garbageBytes);
+    }
+
+    /**
+     * Decodes the live items straight from the mapped segments. Records were checked when the log was
+     * opened or written by this instance, so checksums are not verified again.
+     */
+    private List<T> readAllMapped(Predicate<T> filter) throws IOException {
+        List<T> items = new ArrayList<>();
+        for(Map.Entry<Long, FileChannel> segment : segments.entrySet()) {
+            long segmentId = segment.getKey();
+            long size = segmentId == activeSegment ? activeSize : segment.getValue().size();
+            ByteBuffer buffer = map(segmentId, size);
+            int offset = 0;
+            while(offset < size) {
+                int recordLength = HEADER_SIZE + buffer.getInt(offset);
+                if(buffer.get(offset + HEADER_SIZE) == PUT && isLive(uuid(buffer, offset), segmentId, offset)) {
+                    T item = codec.read(payload(buffer, offset, recordLength));
+                    if(filter.test(item)) {
+                        items.add(item);
+                    }
+                }
+                offset += recordLength;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns a private view over the mapping of a segment that covers at least <code>size</code> bytes.
+     */
+    private ByteBuffer map(long segmentId, long size) throws IOException {
+        MappedByteBuffer mapping = mappings.get(segmentId);
+        if(mapping == null || mapping.capacity() < size) {
+            synchronized(mappings) {
+                mapping = mappings.get(segmentId);
+                if(mapping == null || mapping.capacity() < size) {
+                    FileChannel channel = segments.get(segmentId);
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    mappings.put(segmentId, mapping);
+                }
+            }
+        }
+        return mapping.duplicate();
+    }
+
+    private static String uuid(ByteBuffer segment, int offset) {
+        int uuidOffset = offset + HEADER_SIZE + 1;
+        byte[] uuid = new byte[segment.getShort(uuidOffset)];
+        for(int i = 0; i < uuid.length; i++) {
+            uuid[i] = segment.get(uuidOffset + 2 + i);
+        }
+        return new String(uuid, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer payload(ByteBuffer segment, int offset, int recordLength) {
+        int uuidOffset = offset + HEADER_SIZE + 1;
+        ByteBuffer payload = segment.duplicate();
+        payload.limit(offset + recordLength).position(uuidOffset + 2 + segment.getShort(uuidOffset));
+        return payload;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(folder);
+        List<Long> segmentIds;
+        try(Stream<Path> paths = Files.list(folder)) {
+            segmentIds = paths
+                .map(p -> p.getFileName().toString())
+                .filter(name -> name.endsWith(COMPACTING_EXTENSION) || name.endsWith(SEGMENT_EXTENSION))
+                .filter(name -> {
+                    if(name.endsWith(COMPACTING_EXTENSION)) {
+                        folder.resolve(name).toFile().delete();
+                        return false;
+                    }
+                    return true;
+                })
+                .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())))
+                .sorted()
+                .collect(toList());
+        }
+
+        for(long segmentId : segmentIds) {
+            FileChannel channel = FileChannel.open(segmentPath(segmentId), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(segmentId, channel);
+            long validSize = scan(channel, (offset, record) -> {
+                if(record.op == PUT) {
+                    index.put(record.uuid, new Pointer(segmentId, offset, record.length()));
+                } else {
+                    index.remove(record.uuid);
+                }
+            });
+            if(validSize < channel.size()) {
+                logger.warn("Drop {} bytes of torn records at the end of segment {} of {}", channel.size() - validSize, segmentId, folder);
+                channel.truncate(validSize);
+            }
+            activeSegment = segmentId;
+            activeSize = validSize;
+        }
+
+        if(segments.isEmpty()) {
+            openSegment(1);
+        }
+        recomputeSizes();
+    }
+
+    private void append(Record record) throws IOException {
+        if(activeSize >= maxSegmentSize) {
+            openSegment(activeSegment + 1);
+        }
+
+        ByteBuffer buffer = record.encode();
+        int length = buffer.remaining();
+        writeFully(segments.get(activeSegment), buffer, activeSize);
+
+        Pointer previous = record.op == PUT
+            ? index.put(record.uuid, new Pointer(activeSegment, activeSize, length))
+            : index.remove(record.uuid);
+        if(previous != null) {
+            liveBytes -= previous.length;
+            garbageBytes += previous.length;
+        }
+        if(record.op == PUT) {
+            liveBytes += length;
+        } else {
+            garbageBytes += length;
+        }
+        activeSize += length;
+    }
+
+    private void openSegment(long segmentId) throws IOException {
+        segments.put(segmentId, FileChannel.open(segmentPath(segmentId),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE));
+        activeSegment = segmentId;
+        activeSize = 0;
+    }
+
+    private void recomputeSizes() throws IOException {
+        long totalBytes = 0;
+        for(FileChannel channel : segments.values()) {
+            totalBytes += channel.size();
+        }
+        liveBytes = index.values().stream().mapToLong(p -> p.length).sum();
+        garbageBytes = totalBytes - liveBytes;
+    }
+
+    private boolean isLive(String uuid, long segmentId, long offset) {
+        Pointer pointer = index.get(uuid);
+        return pointer != null && pointer.segment == segmentId && pointer.offset == offset;
+    }
+
+    private Path segmentPath(long segmentId) {
+        return folder.resolve(segmentId + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * Reads the records of a segment sequentially and returns the size of its valid prefix.
+     */
+    private long scan(FileChannel channel, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new ChannelInputStream(channel), READ_BUFFER_SIZE));
+        while(offset + HEADER_SIZE <= size) {
+            int bodyLength;
+            long crc;
+            byte[] body;
+            try {
+                bodyLength = in.readInt();
+                crc = in.readInt() & 0xFFFFFFFFL;
+                if(bodyLength <= 0 || offset + HEADER_SIZE + bodyLength > size) {
+                    break;
+                }
+                body = new byte[bodyLength];
+                in.readFully(body);
+            } catch(EOFException ex) {
+                break;
+            }
+            if(crc(body, 0, bodyLength) != crc) {
+                break;
+            }
+
+            visitor.visit(offset, Record.decode(body, 0, bodyLength));
+            offset += HEADER_SIZE + bodyLength;
+        }
+        return offset;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while(buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    private static long crc(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return crc32.getValue();
+    }
+
+    /**
+     * Reads a channel from its start with positional reads, so concurrent scans of the same segment
+     * do not share the channel position.
+     */
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        private ChannelInputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+            if(read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(long offset, Record record) throws IOException;
+    }
+
+    private static class Record {
+        private final byte op;
+        private final String uuid;
+        private final byte[] payload;
+
+        private Record(byte op, String uuid, byte[] payload) {
+            this.op = op;
+            this.uuid = uuid;
+            this.payload = payload;
+        }
+
+        private static Record decode(byte[] body, int offset, int length) {
+            ByteBuffer buffer = ByteBuffer.wrap(body, offset, length);
+            byte op = buffer.get();
+            byte[] uuid = new byte[buffer.getShort()];
+            buffer.get(uuid);
+            byte[] payload = new byte[buffer.remaining()];
+            buffer.get(payload);
+            return new Record(op, new String(uuid, StandardCharsets.UTF_8), payload);
+        }
+
+        private ByteBuffer encode() {
+            byte[] uuidBytes = uuid.getBytes(StandardCharsets.UTF_8);
+            int bodyLength = 1 + 2 + uuidBytes.length + payload.length;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+            buffer.putInt(bodyLength);
+            buffer.putInt(0);
+            buffer.put(op);
+            buffer.putShort((short) uuidBytes.length);
+            buffer.put(uuidBytes);
+            buffer.put(payload);
+            buffer.putInt(4, (int) crc(buffer.array(), HEADER_SIZE, bodyLength));
+            buffer.flip();
+            return buffer;
+        }
+
+        private int length() {
+            return HEADER_SIZE + 1 + 2 + uuid.getBytes(StandardCharsets.UTF_8).length + payload.length;
+        }
+    }
+
+    private static class Pointer {
+        private final long segment;
+        private final long offset;
+        private final int length;
+
+        private Pointer(long segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(o == null || getClass() != o.getClass()) return false;
+            Pointer pointer = (Pointer) o;
+            return segment == pointer.segment && offset == pointer.offset && length == pointer.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment, offset, length);
+        }
+    }
+}
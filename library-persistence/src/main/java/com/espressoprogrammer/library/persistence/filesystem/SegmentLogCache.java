@@ -0,0 +1,208 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the segment logs of at most <code>maxOpenLogs</code> users open, closing the least recently used one
+ * when the log of another user is opened, so open file descriptors do not grow with the number of users.
+ * <p>
+ * A log is used through a handle. An evicted log still in use is closed when its last handle is closed, and is
+ * reused if its user comes back before that, so the files of a user are never open in two logs at once.
+ * <p>
+ * Opening a log scans it, so it runs outside the lock of the cache; other callers for the same user wait for
+ * it, while the logs of other users are acquired and released meanwhile.
+ */
+class SegmentLogCache<T> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final int maxOpenLogs;
+    private final Opener<T> opener;
+    private final LinkedHashMap<String, Handle<T>> openLogs = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Handle<T>> evictedLogs = new HashMap<>();
+    private final Map<String, CompletableFuture<Void>> openingLogs = new HashMap<>();
+
+    SegmentLogCache(int maxOpenLogs, Opener<T> opener) {
+        if(maxOpenLogs <= 0) {
+            throw new IllegalArgumentException("Maximum number of open segment logs must be positive: " + maxOpenLogs);
+        }
+        this.maxOpenLogs = maxOpenLogs;
+        this.opener = opener;
+    }
+
+    /**
+     * Opens the log of the user, if needed, and holds it open until the handle is closed.
+     */
+    Handle<T> acquire(String user) throws IOException {
+        while(true) {
+            List<Handle<T>> closable = new ArrayList<>();
+            Handle<T> handle;
+            CompletableFuture<Void> opening;
+            synchronized(this) {
+                handle = openLogs.get(user);
+                if(handle == null) {
+                    handle = evictedLogs.remove(user);
+                }
+                if(handle != null) {
+                    install(handle, closable);
+                }
+
+                opening = openingLogs.get(user);
+                if(handle == null && opening == null) {
+                    openingLogs.put(user, new CompletableFuture<>());
+                }
+            }
+
+            if(handle != null) {
+                close(closable);
+                return handle;
+            }
+            if(opening == null) {
+                return open(user);
+            }
+            awaitOpened(opening);
+        }
+    }
+
+    int getOpenLogCount() {
+        synchronized(this) {
+            return openLogs.size() + evictedLogs.size();
+        }
+    }
+
+    /**
+     * Closes every log, in use or not; used on shutdown.
+     */
+    void closeAll() {
+        List<Handle<T>> closable;
+        synchronized(this) {
+            closable = new ArrayList<>(openLogs.values());
+            closable.addAll(evictedLogs.values());
+            openLogs.clear();
+            evictedLogs.clear();
+        }
+        close(closable);
+    }
+
+    private Handle<T> open(String user) throws IOException {
+        SegmentLog<T> log;
+        try {
+            log = opener.open(user);
+        } catch(IOException | RuntimeException ex) {
+            synchronized(this) {
+                openingLogs.remove(user).complete(null);
+            }
+            throw ex;
+        }
+
+        List<Handle<T>> closable = new ArrayList<>();
+        Handle<T> handle = new Handle<>(this, user, log);
+        synchronized(this) {
+            install(handle, closable);
+            openingLogs.remove(user).complete(null);
+        }
+        close(closable);
+        return handle;
+    }
+
+    /**
+     * Waits for another caller to open the log of the user; the caller then looks it up again, and opens it
+     * itself if that failed.
+     */
+    private static void awaitOpened(CompletableFuture<Void> opening) throws IOException {
+        try {
+            opening.get();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a segment log to open");
+        } catch(ExecutionException ex) {
+            // never completed exceptionally
+        }
+    }
+
+    /**
+     * Makes the log the most recently used one and takes a reference to it. Called with the cache locked; the
+     * evicted logs no one uses are added to <code>closable</code>, to be closed outside the lock.
+     */
+    private void install(Handle<T> handle, List<Handle<T>> closable) {
+        handle.evicted = false;
+        openLogs.put(handle.user, handle);
+        evictEldest(closable);
+        handle.references++;
+    }
+
+    private void evictEldest(List<Handle<T>> closable) {
+        Iterator<Handle<T>> iterator = openLogs.values().iterator();
+        while(openLogs.size() > maxOpenLogs && iterator.hasNext()) {
+            Handle<T> eldest = iterator.next();
+            iterator.remove();
+            eldest.evicted = true;
+            if(eldest.references == 0) {
+                closable.add(eldest);
+            } else {
+                evictedLogs.put(eldest.user, eldest);
+            }
+        }
+    }
+
+    private void release(Handle<T> handle) {
+        boolean close;
+        synchronized(this) {
+            handle.references--;
+            close = handle.evicted && handle.references == 0 && evictedLogs.remove(handle.user, handle);
+        }
+        if(close) {
+            close(Collections.singletonList(handle));
+        }
+    }
+
+    private void close(List<Handle<T>> handles) {
+        for(Handle<T> handle : handles) {
+            try {
+                handle.log.close();
+            } catch(IOException ex) {
+                logger.error("Error on closing segment log of user {}", handle.user, ex);
+            }
+        }
+    }
+
+    interface Opener<T> {
+        SegmentLog<T> open(String user) throws IOException;
+    }
+
+    static final class Handle<T> implements AutoCloseable {
+        private final SegmentLogCache<T> cache;
+        private final String user;
+        private final SegmentLog<T> log;
+        private int references;
+        private boolean evicted;
+
+        private Handle(SegmentLogCache<T> cache, String user, SegmentLog<T> log) {
+            this.cache = cache;
+            this.user = user;
+            this.log = log;
+        }
+
+        SegmentLog<T> getLog() {
+            return log;
+        }
+
+        @Override
+        public void close() {
+            cache.release(this);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Moves the user folders to the shard root they belong to, after shard roots were added or removed.
+ * <p>
+ * It runs on startup, before any DAO touches the storage. A folder is renamed when the roots share a volume;
+ * otherwise it is copied under a dot folder of the new root, renamed into place and only then deleted from the
+ * old root. Lookups prefer the new root, so a crash leaves either the old folder in use or a complete new one.
+ * A user found in both roots is left alone for the operator. Records of the write-ahead log name the old item
+ * paths, so nothing is moved while the log holds any.
+ */
+class ShardRebalancer {
+    private static final String COPY_PREFIX = ".rebalancing-";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String libraryFolder;
+    private final StorageShards shards;
+
+    ShardRebalancer(String libraryFolder, StorageShards shards) {
+        this.libraryFolder = libraryFolder;
+        this.shards = shards;
+    }
+
+    /**
+     * Returns the number of user folders moved.
+     */
+    int rebalance() throws IOException {
+        if(WriteAheadLog.hasRecords(libraryFolder)) {
+            logger.warn("Write-ahead log of {} holds records, start once without rebalancing to replay it", libraryFolder);
+            return 0;
+        }
+
+        int moved = 0;
+        for(File userFolder : shards.getUserFolders()) {
+            String user = userFolder.getName();
+            String targetRoot = shards.getTargetRoot(user);
+            if(!targetRoot.equals(userFolder.getParent()) && move(userFolder.toPath(), Paths.get(targetRoot, user))) {
+                shards.forget(user);
+                moved++;
+            }
+        }
+        logger.info("Moved {} user folders to their shard root", moved);
+        return moved;
+    }
+
+    private boolean move(Path source, Path target) throws IOException {
+        if(target.toFile().exists()) {
+            logger.warn("User folder {} is also in {}, leave both", source, target);
+            return false;
+        }
+
+        logger.info("Move user folder {} to {}", source, target);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch(AtomicMoveNotSupportedException ex) {
+            logger.debug("Copy user folder {} to another volume", source);
+        }
+
+        Path copy = target.resolveSibling(COPY_PREFIX + target.getFileName());
+        FileSystemUtils.deleteRecursively(copy);
+        FileSystemUtils.copyRecursively(source, copy);
+        Files.move(copy, target, StandardCopyOption.ATOMIC_MOVE);
+        FileSystemUtils.deleteRecursively(source);
+        return true;
+    }
+
+}
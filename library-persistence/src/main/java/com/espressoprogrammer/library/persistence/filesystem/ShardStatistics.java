@@ -0,0 +1,50 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+public class ShardStatistics {
+
+    private final String rootFolder;
+    private final long readCount;
+    private final long bytesRead;
+    private final long writeCount;
+    private final long bytesWritten;
+    private final long deleteCount;
+
+    ShardStatistics(String rootFolder, long readCount, long bytesRead, long writeCount, long bytesWritten, long deleteCount) {
+        this.rootFolder = rootFolder;
+        this.readCount = readCount;
+        this.bytesRead = bytesRead;
+        this.writeCount = writeCount;
+        this.bytesWritten = bytesWritten;
+        this.deleteCount = deleteCount;
+    }
+
+    public String getRootFolder() {
+        return rootFolder;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getDeleteCount() {
+        return deleteCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("root=%s, reads=%d, bytesRead=%d, writes=%d, bytesWritten=%d, deletes=%d",
+            rootFolder, readCount, bytesRead, writeCount, bytesWritten, deleteCount);
+    }
+}
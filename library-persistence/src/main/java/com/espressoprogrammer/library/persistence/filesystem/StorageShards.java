@@ -0,0 +1,201 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads the user folders over several root folders, usually on different volumes.
+ * <p>
+ * A user belongs to the shard root with the highest hash of the root and user names (rendezvous hashing), so
+ * the mapping survives restarts and reordering the roots, and adding a root only moves the users the new root
+ * wins. Until the rebalancer moves them, users stay readable from the root their folder is in; the root found
+ * for a user is remembered, so a user folder costs one lookup per run. The library folder is always searched
+ * for users written before sharding.
+ */
+class StorageShards {
+
+    private final List<String> roots;
+    private final List<String> shardRoots;
+    private final Map<Path, Counters> counters;
+    private final ConcurrentMap<String, String> userRoots = new ConcurrentHashMap<>();
+
+    StorageShards(String libraryFolder, List<String> shardFolders) {
+        Set<String> shardRoots = new LinkedHashSet<>();
+        for(String shardFolder : shardFolders) {
+            shardRoots.add(normalize(shardFolder));
+        }
+        if(shardRoots.isEmpty()) {
+            shardRoots.add(normalize(libraryFolder));
+        }
+        this.shardRoots = Collections.unmodifiableList(new ArrayList<>(shardRoots));
+
+        Set<String> roots = new LinkedHashSet<>();
+        roots.add(normalize(libraryFolder));
+        roots.addAll(shardRoots);
+        this.roots = Collections.unmodifiableList(new ArrayList<>(roots));
+
+        Map<Path, Counters> counters = new LinkedHashMap<>();
+        for(String root : this.roots) {
+            counters.put(Paths.get(root), new Counters());
+        }
+        this.counters = Collections.unmodifiableMap(counters);
+    }
+
+    /**
+     * Every root folder that may hold user folders, the library folder first.
+     */
+    List<String> getRoots() {
+        return roots;
+    }
+
+    /**
+     * The user folders of every root. Dot folders belong to the storage engines and shard roots may be in the
+     * library folder, so neither is a user.
+     */
+    List<File> getUserFolders() {
+        List<File> userFolders = new ArrayList<>();
+        for(String root : roots) {
+            File[] folders = new File(root).listFiles(f -> f.isDirectory()
+                && !f.getName().startsWith(".")
+                && !counters.containsKey(f.toPath()));
+            if(folders != null) {
+                userFolders.addAll(Arrays.asList(folders));
+            }
+        }
+        return userFolders;
+    }
+
+    /**
+     * The root the user belongs to, whatever root the user folder is in now.
+     */
+    String getTargetRoot(String user) {
+        String targetRoot = null;
+        long targetWeight = 0;
+        for(String root : shardRoots) {
+            long weight = weight(root, user);
+            if(targetRoot == null || weight > targetWeight) {
+                targetRoot = root;
+                targetWeight = weight;
+            }
+        }
+        return targetRoot;
+    }
+
+    String getUserFolder(String user) {
+        return userRoots.computeIfAbsent(user, this::locateUser) + "/" + user;
+    }
+
+    /**
+     * Forgets where the user folder was found, after it was moved.
+     */
+    void forget(String user) {
+        userRoots.remove(user);
+    }
+
+    void recordRead(Path path, long bytes) {
+        Counters shardCounters = getCounters(path);
+        if(shardCounters != null) {
+            shardCounters.reads.increment();
+            shardCounters.bytesRead.add(bytes);
+        }
+    }
+
+    void recordWrite(Path path, long bytes) {
+        Counters shardCounters = getCounters(path);
+        if(shardCounters != null) {
+            shardCounters.writes.increment();
+            shardCounters.bytesWritten.add(bytes);
+        }
+    }
+
+    void recordDelete(Path path) {
+        Counters shardCounters = getCounters(path);
+        if(shardCounters != null) {
+            shardCounters.deletes.increment();
+        }
+    }
+
+    List<ShardStatistics> getStatistics() {
+        List<ShardStatistics> statistics = new ArrayList<>(counters.size());
+        for(Map.Entry<Path, Counters> entry : counters.entrySet()) {
+            Counters shardCounters = entry.getValue();
+            statistics.add(new ShardStatistics(entry.getKey().toString(),
+                shardCounters.reads.sum(),
+                shardCounters.bytesRead.sum(),
+                shardCounters.writes.sum(),
+                shardCounters.bytesWritten.sum(),
+                shardCounters.deletes.sum()));
+        }
+        return statistics;
+    }
+
+    private String locateUser(String user) {
+        String targetRoot = getTargetRoot(user);
+        if(roots.size() == 1 || Paths.get(targetRoot, user).toFile().exists()) {
+            return targetRoot;
+        }
+
+        for(String root : roots) {
+            if(Paths.get(root, user).toFile().exists()) {
+                return root;
+            }
+        }
+        return targetRoot;
+    }
+
+    /**
+     * The counters of the root holding the path; the last matching root wins so nested roots count apart.
+     */
+    private Counters getCounters(Path path) {
+        Counters pathCounters = null;
+        for(Map.Entry<Path, Counters> entry : counters.entrySet()) {
+            if(path.startsWith(entry.getKey())) {
+                pathCounters = entry.getValue();
+            }
+        }
+        return pathCounters;
+    }
+
+    /**
+     * 64-bit FNV-1a of the names, mixed with the MurmurHash3 finalizer so close names get unrelated weights.
+     */
+    static long weight(String root, String user) {
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : (root + '\u0000' + user).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String normalize(String folder) {
+        return Paths.get(folder).normalize().toString();
+    }
+
+    private static class Counters {
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder deletes = new LongAdder();
+    }
+
+}
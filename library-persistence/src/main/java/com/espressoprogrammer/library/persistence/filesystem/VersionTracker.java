@@ -0,0 +1,70 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of the user collections and items written through one DAO.
+ * <p>
+ * Tags start with the creation time of the tracker, so the ones handed out before a restart never match
+ * again. Nothing is written while the process is down, so data not written since then reports the
+ * creation time as its last modified time.
+ */
+class VersionTracker {
+    private final long createdAt = System.currentTimeMillis();
+    private final String epoch = Long.toHexString(createdAt) + Long.toHexString(System.nanoTime() & 0xfffff);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String, Stamp> users = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stamp> items = new ConcurrentHashMap<>();
+
+    DataVersion getUserVersion(String user) {
+        return toVersion(users.get(user));
+    }
+
+    DataVersion getItemVersion(String user, String uuid) {
+        return toVersion(items.get(getItemKey(user, uuid)));
+    }
+
+    void written(String user, String uuid) {
+        Stamp stamp = newStamp(users.get(user));
+        users.merge(user, stamp, Stamp::latest);
+        items.merge(getItemKey(user, uuid), stamp, Stamp::latest);
+    }
+
+    void deleted(String user, String uuid) {
+        users.merge(user, newStamp(users.get(user)), Stamp::latest);
+        items.remove(getItemKey(user, uuid));
+    }
+
+    private Stamp newStamp(Stamp previous) {
+        long now = System.currentTimeMillis();
+        return new Stamp(sequence.incrementAndGet(), previous != null ? Math.max(now, previous.time) : now);
+    }
+
+    private DataVersion toVersion(Stamp stamp) {
+        return stamp != null
+            ? new DataVersion(epoch + "-" + Long.toHexString(stamp.sequence), stamp.time)
+            : new DataVersion(epoch + "-0", createdAt);
+    }
+
+    private static String getItemKey(String user, String uuid) {
+        return user + "/" + uuid;
+    }
+
+    private static class Stamp {
+        private final long sequence;
+        private final long time;
+
+        private Stamp(long sequence, long time) {
+            this.sequence = sequence;
+            this.time = time;
+        }
+
+        private static Stamp latest(Stamp s1, Stamp s2) {
+            return s1.sequence > s2.sequence ? s1 : s2;
+        }
+    }
+}
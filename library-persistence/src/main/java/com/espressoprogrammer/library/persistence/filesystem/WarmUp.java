@@ -0,0 +1,194 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Warms up, once the application started, the users whose folders changed last so their first requests don't
+ * pay for reading every item file and loading the indexes.
+ * <p>
+ * User folders of the library are walked in parallel and the <code>maxusers</code> most recently modified ones
+ * are warmed up through the DAOs on a few daemon threads, filling the DAO cache when it is enabled. The
+ * application reports ready when all of them are warmed up or when the time budget runs out, whichever comes
+ * first; users not started by then are skipped. Running warm-ups are never interrupted since the storage may
+ * share open channels between threads.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.warmup.enabled", havingValue = "true")
+public class WarmUp {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    FilesystemConfiguration filesystemConfiguration;
+
+    @Autowired
+    BooksDao booksDao;
+
+    @Autowired
+    ReadingSessionsDao readingSessionsDao;
+
+    @Value(value = "${filesystem.dao.warmup.maxusers:100}")
+    int maxUsers = 100;
+
+    @Value(value = "${filesystem.dao.warmup.threads:4}")
+    int threads = 4;
+
+    @Value(value = "${filesystem.dao.warmup.budgetmillis:30000}")
+    long budgetMillis = 30_000;
+
+    private final AtomicInteger warmedUpUsers = new AtomicInteger();
+    private final AtomicInteger failedUsers = new AtomicInteger();
+    private volatile boolean budgetExhausted;
+    private volatile boolean ready;
+    private ExecutorService executor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Whether the warm-up is over, either done or out of time.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getWarmedUpUsers() {
+        return warmedUpUsers.get();
+    }
+
+    public int getFailedUsers() {
+        return failedUsers.get();
+    }
+
+    void warmUp() {
+        long startMillis = System.currentTimeMillis();
+        long deadlineMillis = startMillis + budgetMillis;
+        try {
+            List<String> users = getRecentUsers();
+            logger.info("Warm up {} users in at most {} ms", users.size(), budgetMillis);
+
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "warm-up-user");
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<?>> futures = new ArrayList<>(users.size());
+            for(String user : users) {
+                futures.add(executor.submit(() -> warmUpUser(user)));
+            }
+            for(Future<?> future : futures) {
+                future.get(Math.max(0, deadlineMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch(TimeoutException ex) {
+            budgetExhausted = true;
+            logger.warn("Warm up ran out of its {} ms budget", budgetMillis);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException | RuntimeException ex) {
+            logger.error("Error on warming up users", ex);
+        } finally {
+            if(executor != null) {
+                executor.shutdown();
+            }
+            ready = true;
+            logger.info("Warmed up {} users, {} failed, in {} ms",
+                warmedUpUsers.get(), failedUsers.get(), System.currentTimeMillis() - startMillis);
+        }
+    }
+
+    /**
+     * User folders of the library, most recently modified first.
+     */
+    List<String> getRecentUsers() {
+        return filesystemConfiguration.getUserFolders().parallelStream()
+            .map(f -> new UserFolder(f.getName(), getLastModified(f)))
+            .sorted(Comparator.comparingLong(UserFolder::getLastModified).reversed())
+            .limit(maxUsers)
+            .map(UserFolder::getUser)
+            .collect(toList());
+    }
+
+    private void warmUpUser(String user) {
+        if(budgetExhausted) {
+            return;
+        }
+
+        try {
+            booksDao.warmUpUser(user);
+            readingSessionsDao.warmUpUser(user);
+            warmedUpUsers.incrementAndGet();
+        } catch(Exception ex) {
+            failedUsers.incrementAndGet();
+            logger.warn("Error on warming up user {}", user, ex);
+        }
+    }
+
+    /**
+     * Item folders change whenever an item is created or deleted, which follows the activity of the user
+     * closely enough without looking at the time of every item file.
+     */
+    private static long getLastModified(File userFolder) {
+        long lastModified = userFolder.lastModified();
+        File[] itemFolders = userFolder.listFiles(File::isDirectory);
+        if(itemFolders != null) {
+            for(File itemFolder : itemFolders) {
+                lastModified = Math.max(lastModified, itemFolder.lastModified());
+            }
+        }
+        return lastModified;
+    }
+
+    @PreDestroy
+    void close() {
+        budgetExhausted = true;
+        if(executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static class UserFolder {
+        private final String user;
+        private final long lastModified;
+
+        UserFolder(String user, long lastModified) {
+            this.user = user;
+            this.lastModified = lastModified;
+        }
+
+        String getUser() {
+            return user;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+
+}
@@ -0,0 +1,374 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Write-ahead log of the item files written and deleted by the filesystem DAOs.
+ * <p>
+ * Every mutation is appended to the log and forced to disk before the item file is touched. Concurrent
+ * writers share the fsync: the first one waiting for its record forces every record appended so far while
+ * the others wait for it. Item files are written without forcing them and become durable at the next
+ * checkpoint, which rolls the log over, forces the files written since the previous checkpoint and drops
+ * the old log. Logs left behind by a crash are replayed on startup.
+ * <p>
+ * Record layout: <code>int bodyLength | int crc32(body) | body</code> where body is
+ * <code>byte op | short pathLength | path | content</code>.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.wal.enabled", havingValue = "true")
+class WriteAheadLog {
+    private static final String LOG_FOLDER = ".wal";
+    private static final String LOG_EXTENSION = ".wal";
+    private static final int HEADER_SIZE = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int STRIPES = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition forced = appendLock.newCondition();
+    private final Object[] stripes = new Object[STRIPES];
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "write-ahead-log-checkpointer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value(value = "${filesystem.dao.wal.checkpointsize:16777216}")
+    long checkpointSize = 16 * 1024 * 1024;
+
+    @Autowired
+    FilesystemConfiguration filesystemConfiguration;
+
+    private Path folder;
+    private long logId;
+    private FileChannel channel;
+    private long size;
+    private long appendedSequence;
+    private long forcedSequence;
+    private boolean forcing;
+    private long forceCount;
+    private Set<Path> dirtyPaths = ConcurrentHashMap.newKeySet();
+
+    WriteAheadLog() {
+        for(int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        folder = Paths.get(filesystemConfiguration.getLibraryFolder(), LOG_FOLDER);
+        Files.createDirectories(folder);
+
+        List<Long> logIds = getLogIds();
+        Set<Path> replayedPaths = new HashSet<>();
+        for(long id : logIds) {
+            replay(getLogPath(id), replayedPaths);
+        }
+        force(replayedPaths);
+        for(long id : logIds) {
+            Files.delete(getLogPath(id));
+        }
+        if(!replayedPaths.isEmpty()) {
+            logger.info("Replayed {} item files from the write-ahead log {}", replayedPaths.size(), folder);
+        }
+
+        logId = logIds.isEmpty() ? 0 : logIds.get(logIds.size() - 1) + 1;
+        channel = openLog(logId);
+    }
+
+    /**
+     * Whether the library folder holds log records not applied yet. They name item paths, so whatever moves
+     * item files before the log is opened must leave them alone until it was replayed.
+     */
+    static boolean hasRecords(String libraryFolder) throws IOException {
+        Path folder = Paths.get(libraryFolder, LOG_FOLDER);
+        if(!folder.toFile().isDirectory()) {
+            return false;
+        }
+
+        try(Stream<Path> logs = Files.list(folder)) {
+            return logs.anyMatch(log -> log.toFile().length() > 0);
+        }
+    }
+
+    void write(Path path, byte[] content) throws IOException {
+        log(PUT, path, content);
+    }
+
+    void delete(Path path) throws IOException {
+        log(DELETE, path, new byte[0]);
+    }
+
+    long getForceCount() {
+        appendLock.lock();
+        try {
+            return forceCount;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void log(byte op, Path path, byte[] content) throws IOException {
+        Path target = path.toAbsolutePath().normalize();
+        ByteBuffer record = encode(op, target, content);
+
+        boolean checkpointNeeded;
+        checkpointLock.readLock().lock();
+        try {
+            synchronized(stripes[(target.hashCode() & Integer.MAX_VALUE) % STRIPES]) {
+                long sequence = append(record);
+                awaitForced(sequence);
+                apply(op, target, content);
+                dirtyPaths.add(target);
+            }
+            checkpointNeeded = getSize() >= checkpointSize;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+
+        if(checkpointNeeded && checkpointScheduled.compareAndSet(false, true)) {
+            checkpointer.execute(() -> {
+                try {
+                    checkpoint();
+                } catch(Exception ex) {
+                    logger.error("Error on checkpointing the write-ahead log {}", folder, ex);
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private long append(ByteBuffer record) throws IOException {
+        appendLock.lock();
+        try {
+            while(record.hasRemaining()) {
+                size += channel.write(record);
+            }
+            return ++appendedSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence is on disk, forcing the log when nobody else does.
+     */
+    private void awaitForced(long sequence) throws IOException {
+        appendLock.lock();
+        try {
+            while(forcedSequence < sequence) {
+                if(forcing) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+
+                forcing = true;
+                long target = appendedSequence;
+                FileChannel logChannel = channel;
+                appendLock.unlock();
+                try {
+                    logChannel.force(false);
+                } finally {
+                    appendLock.lock();
+                    forcing = false;
+                    forced.signalAll();
+                }
+                forcedSequence = Math.max(forcedSequence, target);
+                forceCount++;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long getSize() {
+        appendLock.lock();
+        try {
+            return size;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    synchronized void checkpoint() throws IOException {
+        Set<Path> checkpointPaths;
+        FileChannel checkpointChannel;
+        long checkpointLogId;
+        checkpointLock.writeLock().lock();
+        try {
+            checkpointPaths = dirtyPaths;
+            checkpointChannel = channel;
+            checkpointLogId = logId;
+
+            dirtyPaths = ConcurrentHashMap.newKeySet();
+            logId++;
+            channel = openLog(logId);
+            size = 0;
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+
+        logger.debug("Checkpoint {} item files of the write-ahead log {}", checkpointPaths.size(), folder);
+        force(checkpointPaths);
+        checkpointChannel.close();
+        Files.delete(getLogPath(checkpointLogId));
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        checkpointer.shutdown();
+        checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        checkpoint();
+        channel.close();
+    }
+
+    private static ByteBuffer encode(byte op, Path path, byte[] content) {
+        byte[] pathBytes = path.toString().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 1 + 2 + pathBytes.length + content.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(op);
+        record.putShort((short) pathBytes.length);
+        record.put(pathBytes);
+        record.put(content);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private void replay(Path log, Set<Path> replayedPaths) throws IOException {
+        try(FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(logChannel)))) {
+            while(true) {
+                byte[] body;
+                int crc;
+                try {
+                    int bodyLength = in.readInt();
+                    crc = in.readInt();
+                    if(bodyLength < 3 || bodyLength > logChannel.size()) {
+                        logger.warn("Ignore the corrupted tail of the write-ahead log {}", log);
+                        return;
+                    }
+                    body = new byte[bodyLength];
+                    in.readFully(body);
+                } catch(EOFException ex) {
+                    return;
+                }
+
+                CRC32 actualCrc = new CRC32();
+                actualCrc.update(body);
+                if((int) actualCrc.getValue() != crc) {
+                    logger.warn("Ignore the torn tail of the write-ahead log {}", log);
+                    return;
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                byte op = buffer.get();
+                byte[] pathBytes = new byte[buffer.getShort()];
+                buffer.get(pathBytes);
+                byte[] content = new byte[buffer.remaining()];
+                buffer.get(content);
+
+                Path target = Paths.get(new String(pathBytes, StandardCharsets.UTF_8));
+                Files.createDirectories(target.getParent());
+                apply(op, target, content);
+                replayedPaths.add(target);
+            }
+        }
+    }
+
+    private static void apply(byte op, Path target, byte[] content) throws IOException {
+        if(op == PUT) {
+            Files.write(target, content);
+        } else if(op == DELETE) {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    private void force(Set<Path> paths) throws IOException {
+        Set<Path> folders = new HashSet<>();
+        for(Path path : paths) {
+            if(Files.exists(path)) {
+                try(FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    fileChannel.force(true);
+                }
+            }
+            folders.add(path.getParent());
+        }
+        for(Path parent : folders) {
+            try(FileChannel folderChannel = FileChannel.open(parent, StandardOpenOption.READ)) {
+                folderChannel.force(true);
+            } catch(IOException ex) {
+                logger.debug("Folder {} cannot be forced on this platform", parent);
+            }
+        }
+    }
+
+    private List<Long> getLogIds() throws IOException {
+        try(Stream<Path> paths = Files.list(folder)) {
+            return paths
+                .map(p -> p.getFileName().toString())
+                .filter(name -> name.endsWith(LOG_EXTENSION))
+                .map(name -> Long.parseLong(name.substring(0, name.length() - LOG_EXTENSION.length())))
+                .sorted()
+                .collect(toList());
+        }
+    }
+
+    private Path getLogPath(long id) {
+        return folder.resolve(id + LOG_EXTENSION);
+    }
+
+    private FileChannel openLog(long id) throws IOException {
+        return FileChannel.open(getLogPath(id),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+/**
+ * An update or a delete of one item waiting to be written.
+ */
+final class PendingWrite<T> {
+    private final String user;
+    private final String parentUuid;
+    private final String uuid;
+    private final T item;
+    private final long sequence;
+    private final long firstEnqueuedMillis;
+    private final long enqueuedMillis;
+    private int attempts;
+
+    PendingWrite(String user, String parentUuid, String uuid, T item, long sequence, long enqueuedMillis) {
+        this(user, parentUuid, uuid, item, sequence, enqueuedMillis, enqueuedMillis);
+    }
+
+    private PendingWrite(String user, String parentUuid, String uuid, T item, long sequence,
+                         long firstEnqueuedMillis, long enqueuedMillis) {
+        this.user = user;
+        this.parentUuid = parentUuid;
+        this.uuid = uuid;
+        this.item = item;
+        this.sequence = sequence;
+        this.firstEnqueuedMillis = firstEnqueuedMillis;
+        this.enqueuedMillis = enqueuedMillis;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    /**
+     * The uuid of the item this one belongs to, like the book of a reading session, when the DAO needs it.
+     */
+    String getParentUuid() {
+        return parentUuid;
+    }
+
+    String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * The new item, or null for a delete.
+     */
+    T getItem() {
+        return item;
+    }
+
+    boolean isDelete() {
+        return item == null;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * When the oldest change of the item that is not written yet was queued.
+     */
+    long getFirstEnqueuedMillis() {
+        return firstEnqueuedMillis;
+    }
+
+    /**
+     * When the latest change of the item was queued.
+     */
+    long getEnqueuedMillis() {
+        return enqueuedMillis;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * This change replaced by a newer one of the same item, keeping when the first one was queued so the lag covers it.
+     */
+    PendingWrite<T> coalesce(PendingWrite<T> newer) {
+        return new PendingWrite<>(user, newer.parentUuid, uuid, newer.item, newer.sequence,
+            firstEnqueuedMillis, newer.enqueuedMillis);
+    }
+
+    void incrementAttempts() {
+        attempts++;
+    }
+
+}
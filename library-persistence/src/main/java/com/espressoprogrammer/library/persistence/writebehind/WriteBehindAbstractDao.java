@@ -0,0 +1,180 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Acknowledges updates and deletes once they are queued and lets reads see the queued changes on top of the
+ * storage. Creates are written right away since the storage gives the uuid of a new item.
+ * <p>
+ * The queued changes of a user are read before the storage, so a change written in between is seen either way.
+ * An update or a delete checks that the item exists and queues the change under the lock of the item, so a
+ * change acknowledged meanwhile is not overridden.
+ */
+abstract class WriteBehindAbstractDao<T> implements AutoCloseable {
+
+    /**
+     * Tells apart the version tags of queued changes of different runs.
+     */
+    private static final String RUN_TAG = Long.toHexString(System.currentTimeMillis());
+    private static final int ITEM_LOCK_STRIPES = 64;
+
+    private final Object[] itemLocks = new Object[ITEM_LOCK_STRIPES];
+
+    private final WriteBehindQueue<T> queue;
+
+    WriteBehindAbstractDao(String name, int capacity, int batchSize, long flushMillis) {
+        this.queue = new WriteBehindQueue<>(name, capacity, batchSize, flushMillis, this::write);
+        for(int i = 0; i < ITEM_LOCK_STRIPES; i++) {
+            itemLocks[i] = new Object();
+        }
+    }
+
+    public WriteBehindStatistics getStatistics() {
+        return queue.getStatistics();
+    }
+
+    /**
+     * Writes the queued changes; later changes are written right away.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        queue.close();
+    }
+
+    protected abstract String getUuid(T item);
+
+    /**
+     * Writes one queued change to the storage.
+     */
+    protected abstract void write(PendingWrite<T> write);
+
+    List<T> getUserItems(String user, Predicate<T> filter, Supplier<List<T>> loader) {
+        Map<String, PendingWrite<T>> writes = queue.getUserWrites(user);
+        List<T> items = loader.get();
+        if(writes.isEmpty()) {
+            return items;
+        }
+
+        List<T> userItems = new ArrayList<>(items.size());
+        for(T item : items) {
+            if(!writes.containsKey(getUuid(item))) {
+                userItems.add(item);
+            }
+        }
+        for(PendingWrite<T> write : writes.values()) {
+            if(!write.isDelete() && filter.test(write.getItem())) {
+                userItems.add(write.getItem());
+            }
+        }
+        return userItems;
+    }
+
+    Stream<T> streamUserItems(String user, Predicate<T> filter, Supplier<Stream<T>> loader) {
+        Map<String, PendingWrite<T>> writes = queue.getUserWrites(user);
+        Stream<T> items = loader.get();
+        if(writes.isEmpty()) {
+            return items;
+        }
+
+        return Stream.concat(items.filter(item -> !writes.containsKey(getUuid(item))),
+            writes.values().stream()
+                .filter(write -> !write.isDelete())
+                .map(PendingWrite::getItem)
+                .filter(filter));
+    }
+
+    /**
+     * Lets the storage read the page unless the user has queued changes, which may move items in or out of it.
+     */
+    Page<T> getUserItems(String user,
+                         PageRequest pageRequest,
+                         Predicate<T> filter,
+                         Supplier<List<T>> itemsLoader,
+                         Supplier<Page<T>> pageLoader) {
+        if(queue.getUserWrites(user).isEmpty()) {
+            return pageLoader.get();
+        }
+
+        TreeMap<String, T> userItems = new TreeMap<>();
+        for(T item : getUserItems(user, filter, itemsLoader)) {
+            userItems.put(getUuid(item), item);
+        }
+        return Page.read(userItems.navigableKeySet(),
+            pageRequest,
+            uuid -> Optional.ofNullable(userItems.get(uuid)),
+            item -> true);
+    }
+
+    Optional<T> getUserItem(String user, String uuid, Supplier<Optional<T>> loader) {
+        Optional<PendingWrite<T>> write = queue.getWrite(user, uuid);
+        if(write.isPresent()) {
+            return Optional.ofNullable(write.get().getItem());
+        }
+
+        return loader.get();
+    }
+
+    Optional<String> updateUserItem(String user, String parentUuid, String uuid, T item, Supplier<Optional<T>> loader) {
+        return putIfPresent(user, parentUuid, uuid, item, loader);
+    }
+
+    Optional<String> deleteUserItem(String user, String parentUuid, String uuid, Supplier<Optional<T>> loader) {
+        return putIfPresent(user, parentUuid, uuid, null, loader);
+    }
+
+    /**
+     * The storage version, changed by the latest queued change of the user if any.
+     */
+    DataVersion getUserItemsVersion(String user, Supplier<DataVersion> loader) {
+        Map<String, PendingWrite<T>> writes = queue.getUserWrites(user);
+        DataVersion version = loader.get();
+        if(writes.isEmpty()) {
+            return version;
+        }
+
+        PendingWrite<T> latest = writes.values().stream()
+            .max((w1, w2) -> Long.compare(w1.getSequence(), w2.getSequence()))
+            .get();
+        return version.combine(getVersion(latest));
+    }
+
+    Optional<DataVersion> getUserItemVersion(String user, String uuid, Supplier<Optional<DataVersion>> loader) {
+        Optional<PendingWrite<T>> write = queue.getWrite(user, uuid);
+        if(write.isPresent()) {
+            return write.get().isDelete() ? Optional.empty() : Optional.of(getVersion(write.get()));
+        }
+
+        return loader.get();
+    }
+
+    private Optional<String> putIfPresent(String user, String parentUuid, String uuid, T item, Supplier<Optional<T>> loader) {
+        synchronized(getItemLock(user, uuid)) {
+            if(!getUserItem(user, uuid, loader).isPresent()) {
+                return Optional.empty();
+            }
+
+            queue.put(user, parentUuid, uuid, item);
+            return Optional.of(uuid);
+        }
+    }
+
+    private Object getItemLock(String user, String uuid) {
+        return itemLocks[Math.floorMod(user.hashCode() * 31 + uuid.hashCode(), ITEM_LOCK_STRIPES)];
+    }
+
+    private static DataVersion getVersion(PendingWrite<?> write) {
+        return new DataVersion("w" + RUN_TAG + "-" + Long.toHexString(write.getSequence()), write.getEnqueuedMillis());
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class WriteBehindBooksDao extends WriteBehindAbstractDao<Book> implements BooksDao {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final BooksDao booksDao;
+
+    public WriteBehindBooksDao(BooksDao booksDao, int capacity, int batchSize, long flushMillis) {
+        super("books", capacity, batchSize, flushMillis);
+        this.booksDao = booksDao;
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user) {
+        return getUserItems(user, b -> true, () -> booksDao.getUserBooks(user));
+    }
+
+    @Override
+    public List<Book> getUserBooks(String user, String searchText) {
+        return getUserItems(user,
+            b -> BooksSearch.matches(b, searchText),
+            () -> booksDao.getUserBooks(user, searchText));
+    }
+
+    @Override
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest) {
+        return getUserItems(user,
+            pageRequest,
+            b -> BooksSearch.matches(b, searchText),
+            () -> booksDao.getUserBooks(user, searchText),
+            () -> booksDao.getUserBooks(user, searchText, pageRequest));
+    }
+
+    @Override
+    public Stream<Book> streamUserBooks(String user, String searchText) {
+        return streamUserItems(user,
+            b -> BooksSearch.matches(b, searchText),
+            () -> booksDao.streamUserBooks(user, searchText));
+    }
+
+    @Override
+    public List<Book> getUserBooksByIsbn(String user, String isbn10, String isbn13) {
+        return getUserItems(user,
+            b -> BooksSearch.matchesIsbn(b, isbn10, isbn13),
+            () -> booksDao.getUserBooksByIsbn(user, isbn10, isbn13));
+    }
+
+    @Override
+    public Book createUserBook(String user, Book book) {
+        return booksDao.createUserBook(user, book);
+    }
+
+    @Override
+    public List<Book> createUserBooks(String user, List<Book> books) {
+        return booksDao.createUserBooks(user, books);
+    }
+
+    @Override
+    public Optional<Book> getUserBook(String user, String uuid) {
+        return getUserItem(user, uuid, () -> booksDao.getUserBook(user, uuid));
+    }
+
+    @Override
+    public Optional<String> updateUserBook(String user, String uuid, Book book) {
+        return updateUserItem(user, null, uuid, createBook(uuid, book), () -> booksDao.getUserBook(user, uuid));
+    }
+
+    @Override
+    public Optional<String> deleteUserBook(String user, String uuid) {
+        return deleteUserItem(user, null, uuid, () -> booksDao.getUserBook(user, uuid));
+    }
+
+    @Override
+    public DataVersion getUserBooksVersion(String user) {
+        return getUserItemsVersion(user, () -> booksDao.getUserBooksVersion(user));
+    }
+
+    @Override
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return getUserItemVersion(user, uuid, () -> booksDao.getUserBookVersion(user, uuid));
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        booksDao.warmUpUser(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        booksDao.warmUpUserStorage(user);
+    }
+
+    @Override
+    protected String getUuid(Book book) {
+        return book.getUuid();
+    }
+
+    @Override
+    protected void write(PendingWrite<Book> write) {
+        Optional<String> uuid = write.isDelete()
+            ? booksDao.deleteUserBook(write.getUser(), write.getUuid())
+            : booksDao.updateUserBook(write.getUser(), write.getUuid(), write.getItem());
+        if(!uuid.isPresent()) {
+            logger.warn("Book of user {} with uuid {} is gone before being written", write.getUser(), write.getUuid());
+        }
+    }
+
+    private static Book createBook(String uuid, Book book) {
+        return new Book(uuid,
+            book.getIsbn10(),
+            book.getIsbn13(),
+            book.getTitle(),
+            new ArrayList<>(book.getAuthors()),
+            book.getImage(),
+            book.getPages());
+    }
+
+}
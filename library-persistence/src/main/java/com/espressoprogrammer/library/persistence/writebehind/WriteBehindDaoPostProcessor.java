@@ -0,0 +1,67 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+/**
+ * Queues the updates and deletes of the configured DAOs when <code>filesystem.dao.writebehind.enabled</code> is set.
+ * <p>
+ * Runs after the other DAO post processors so the write-behind DAO is the outermost one. The DAOs are handed to
+ * {@link WriteBehindQueues}, which drains them on shutdown before the storages they write to are closed.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.writebehind.enabled", havingValue = "true")
+class WriteBehindDaoPostProcessor implements BeanPostProcessor, BeanFactoryAware, Ordered {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${filesystem.dao.writebehind.capacity:10000}")
+    private int capacity;
+
+    @Value(value = "${filesystem.dao.writebehind.batchsize:100}")
+    private int batchSize;
+
+    @Value(value = "${filesystem.dao.writebehind.flushmillis:200}")
+    private long flushMillis;
+
+    private BeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if(bean instanceof BooksDao && !(bean instanceof WriteBehindBooksDao)) {
+            logger.info("Write books behind through a queue of {} changes, flushed every {} changes or {} ms",
+                capacity, batchSize, flushMillis);
+            return register(new WriteBehindBooksDao((BooksDao) bean, capacity, batchSize, flushMillis));
+        }
+        if(bean instanceof ReadingSessionsDao && !(bean instanceof WriteBehindReadingSessionsDao)) {
+            logger.info("Write reading sessions behind through a queue of {} changes, flushed every {} changes or {} ms",
+                capacity, batchSize, flushMillis);
+            return register(new WriteBehindReadingSessionsDao((ReadingSessionsDao) bean, capacity, batchSize, flushMillis));
+        }
+        return bean;
+    }
+
+    private <D extends WriteBehindAbstractDao<?>> D register(D dao) {
+        beanFactory.getBean(WriteBehindQueues.class).register(dao);
+        return dao;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+}
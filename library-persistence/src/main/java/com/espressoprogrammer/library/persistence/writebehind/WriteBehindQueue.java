@@ -0,0 +1,284 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of item changes written in the background, in the order they were first queued.
+ * <p>
+ * A change of an item that is still queued replaces the queued one, so an item updated many times is written
+ * once. The writer takes a batch when <code>batchSize</code> changes are queued or when the oldest one waited
+ * <code>flushMillis</code>; a change stays queued, and visible to readers, until it is written. A failed write
+ * is retried a few times before being dropped. Closing the queue writes everything still queued; changes put
+ * after that, for instance by requests served while the application shuts down, are written right away.
+ */
+class WriteBehindQueue<T> implements AutoCloseable {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final String name;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushMillis;
+    private final Consumer<PendingWrite<T>> writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<String, PendingWrite<T>> writes = new LinkedHashMap<>();
+    private final Map<String, Map<String, PendingWrite<T>>> userWrites = new HashMap<>();
+    private long sequence;
+    private long enqueuedCount;
+    private long coalescedCount;
+    private long writtenCount;
+    private long failedCount;
+    private boolean closed;
+
+    private final ExecutorService writerExecutor;
+
+    WriteBehindQueue(String name, int capacity, int batchSize, long flushMillis, Consumer<PendingWrite<T>> writer) {
+        if(capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Write-behind capacity and batch size must be positive");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.flushMillis = flushMillis;
+        this.writer = writer;
+        this.writerExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writerExecutor.execute(this::writeBatches);
+    }
+
+    /**
+     * Queues an update, or a delete when the item is null, waiting while the queue is full.
+     */
+    void put(String user, String parentUuid, String uuid, T item) {
+        String key = getKey(user, uuid);
+        PendingWrite<T> write;
+        lock.lock();
+        try {
+            PendingWrite<T> previous = writes.get(key);
+            while(previous == null && writes.size() >= capacity && !closed) {
+                notFull.await();
+                previous = writes.get(key);
+            }
+            write = new PendingWrite<>(user, parentUuid, uuid, item, ++sequence, System.currentTimeMillis());
+            if(closed) {
+                awaitDrained();
+            } else {
+                if(previous != null) {
+                    write = previous.coalesce(write);
+                    coalescedCount++;
+                }
+                writes.put(key, write);
+                userWrites.computeIfAbsent(user, u -> new HashMap<>()).put(uuid, write);
+                enqueuedCount++;
+                if(writes.size() >= batchSize) {
+                    notEmpty.signal();
+                }
+                return;
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while waiting for write-behind queue of %s", name), ex);
+        } finally {
+            lock.unlock();
+        }
+
+        writer.accept(write);
+    }
+
+    Optional<PendingWrite<T>> getWrite(String user, String uuid) {
+        lock.lock();
+        try {
+            Map<String, PendingWrite<T>> itemWrites = userWrites.get(user);
+            return itemWrites != null ? Optional.ofNullable(itemWrites.get(uuid)) : Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy of the changes of the user that are not written yet, by item uuid.
+     */
+    Map<String, PendingWrite<T>> getUserWrites(String user) {
+        lock.lock();
+        try {
+            Map<String, PendingWrite<T>> itemWrites = userWrites.get(user);
+            return itemWrites != null ? new HashMap<>(itemWrites) : Collections.emptyMap();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    WriteBehindStatistics getStatistics() {
+        lock.lock();
+        try {
+            Iterator<PendingWrite<T>> iterator = writes.values().iterator();
+            long lagMillis = iterator.hasNext()
+                ? Math.max(0, System.currentTimeMillis() - iterator.next().getFirstEnqueuedMillis())
+                : 0;
+            return new WriteBehindStatistics(writes.size(), lagMillis, enqueuedCount, coalescedCount, writtenCount, failedCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting changes and waits until the queued ones are written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        writerExecutor.shutdown();
+        while(!writerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.info("Wait for write-behind queue of {} to drain: {}", name, getStatistics());
+        }
+        logger.info("Write-behind queue of {} is drained: {}", name, getStatistics());
+    }
+
+    /**
+     * Waits until the writer wrote what was queued before closing, so a change written right away does not race
+     * an older queued change of the same item.
+     */
+    private void awaitDrained() throws InterruptedException {
+        while(!writes.isEmpty()) {
+            notFull.await();
+        }
+    }
+
+    private void writeBatches() {
+        List<PendingWrite<T>> batch;
+        while((batch = nextBatch()) != null) {
+            boolean failed = false;
+            for(PendingWrite<T> write : batch) {
+                failed |= !write(write);
+            }
+            if(failed) {
+                backOff();
+            }
+        }
+    }
+
+    /**
+     * Waits for a full batch or for the oldest change to wait long enough; null once closed and drained.
+     */
+    private List<PendingWrite<T>> nextBatch() {
+        lock.lock();
+        try {
+            while(!closed && writes.size() < batchSize) {
+                try {
+                    if(writes.isEmpty()) {
+                        notEmpty.await();
+                    } else {
+                        long waitMillis = writes.values().iterator().next().getFirstEnqueuedMillis()
+                            + flushMillis - System.currentTimeMillis();
+                        if(waitMillis <= 0) {
+                            break;
+                        }
+                        notEmpty.await(waitMillis, TimeUnit.MILLISECONDS);
+                    }
+                } catch(InterruptedException ex) {
+                    logger.debug("Write-behind writer of {} interrupted while waiting", name);
+                }
+            }
+            if(writes.isEmpty()) {
+                return null;
+            }
+
+            List<PendingWrite<T>> batch = new ArrayList<>(Math.min(batchSize, writes.size()));
+            Iterator<PendingWrite<T>> iterator = writes.values().iterator();
+            while(iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean write(PendingWrite<T> write) {
+        try {
+            writer.accept(write);
+            complete(write, true);
+            return true;
+        } catch(RuntimeException ex) {
+            write.incrementAttempts();
+            if(write.getAttempts() < MAX_ATTEMPTS) {
+                logger.warn("Error on writing {} of user {} with uuid {}, retry it", name, write.getUser(), write.getUuid(), ex);
+            } else {
+                logger.error("Error on writing {} of user {} with uuid {}, drop it", name, write.getUser(), write.getUuid(), ex);
+                complete(write, false);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Forgets a written change unless a newer change of the same item was queued meanwhile.
+     */
+    private void complete(PendingWrite<T> write, boolean written) {
+        lock.lock();
+        try {
+            if(written) {
+                writtenCount++;
+            } else {
+                failedCount++;
+            }
+
+            String key = getKey(write.getUser(), write.getUuid());
+            if(writes.get(key) == write) {
+                writes.remove(key);
+                Map<String, PendingWrite<T>> itemWrites = userWrites.get(write.getUser());
+                itemWrites.remove(write.getUuid());
+                if(itemWrites.isEmpty()) {
+                    userWrites.remove(write.getUser());
+                }
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(Math.max(flushMillis, 10));
+        } catch(InterruptedException ex) {
+            logger.debug("Write-behind writer of {} interrupted while backing off", name);
+        }
+    }
+
+    private static String getKey(String user, String uuid) {
+        return user + '\u0000' + uuid;
+    }
+
+}
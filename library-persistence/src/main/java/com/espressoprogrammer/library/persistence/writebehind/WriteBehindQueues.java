@@ -0,0 +1,55 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Drains the queues of the write-behind DAOs when the context stops.
+ * <p>
+ * The write-behind DAOs replace the storage DAO beans, so Spring runs the destroy callbacks of the storage DAOs,
+ * not theirs. Stopping runs before any bean is destroyed, so the queues are written while the storages are still
+ * open.
+ */
+@Component
+@ConditionalOnProperty(name = "filesystem.dao.writebehind.enabled", havingValue = "true")
+class WriteBehindQueues implements SmartLifecycle {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<WriteBehindAbstractDao<?>> daos = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    void register(WriteBehindAbstractDao<?> dao) {
+        daos.add(dao);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for(WriteBehindAbstractDao<?> dao : daos) {
+            try {
+                dao.close();
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while draining write-behind queue", ex);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class WriteBehindReadingSessionsDao extends WriteBehindAbstractDao<ReadingSession> implements ReadingSessionsDao {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ReadingSessionsDao readingSessionsDao;
+
+    public WriteBehindReadingSessionsDao(ReadingSessionsDao readingSessionsDao, int capacity, int batchSize, long flushMillis) {
+        super("reading sessions", capacity, batchSize, flushMillis);
+        this.readingSessionsDao = readingSessionsDao;
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user) {
+        return getUserItems(user, r -> true, () -> readingSessionsDao.getUserReadingSessions(user));
+    }
+
+    @Override
+    public List<ReadingSession> getUserReadingSessions(String user, String bookUuid) {
+        return getUserItems(user,
+            r -> bookUuid.equals(r.getBookUuid()),
+            () -> readingSessionsDao.getUserReadingSessions(user, bookUuid));
+    }
+
+    @Override
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest) {
+        return getUserItems(user,
+            pageRequest,
+            r -> bookUuid.equals(r.getBookUuid()),
+            () -> readingSessionsDao.getUserReadingSessions(user, bookUuid),
+            () -> readingSessionsDao.getUserReadingSessions(user, bookUuid, pageRequest));
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        return streamUserItems(user, r -> true, () -> readingSessionsDao.streamUserReadingSessions(user));
+    }
+
+    @Override
+    public Stream<ReadingSession> streamUserReadingSessions(String user, String bookUuid) {
+        return streamUserItems(user,
+            r -> bookUuid.equals(r.getBookUuid()),
+            () -> readingSessionsDao.streamUserReadingSessions(user, bookUuid));
+    }
+
+    @Override
+    public ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) {
+        return readingSessionsDao.createUserReadingSession(user, bookUuid, readingSession);
+    }
+
+    @Override
+    public Optional<ReadingSession> getUserReadingSession(String user, String bookUuid, String uuid) {
+        return getUserItem(user, uuid, () -> readingSessionsDao.getUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public Optional<String> updateUserReadingSession(String user, String bookUuid, String uuid, ReadingSession readingSession) {
+        return updateUserItem(user,
+            bookUuid,
+            uuid,
+            createReadingSession(uuid, readingSession),
+            () -> readingSessionsDao.getUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public Optional<String> deleteUserReadingSession(String user, String bookUuid, String uuid) {
+        return deleteUserItem(user,
+            bookUuid,
+            uuid,
+            () -> readingSessionsDao.getUserReadingSession(user, bookUuid, uuid));
+    }
+
+    @Override
+    public DataVersion getUserReadingSessionsVersion(String user) {
+        return getUserItemsVersion(user, () -> readingSessionsDao.getUserReadingSessionsVersion(user));
+    }
+
+    @Override
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return getUserItemVersion(user, uuid, () -> readingSessionsDao.getUserReadingSessionVersion(user, bookUuid, uuid));
+    }
+
+    @Override
+    public void warmUpUser(String user) {
+        readingSessionsDao.warmUpUser(user);
+    }
+
+    @Override
+    public void warmUpUserStorage(String user) {
+        readingSessionsDao.warmUpUserStorage(user);
+    }
+
+    @Override
+    protected String getUuid(ReadingSession readingSession) {
+        return readingSession.getUuid();
+    }
+
+    @Override
+    protected void write(PendingWrite<ReadingSession> write) {
+        Optional<String> uuid = write.isDelete()
+            ? readingSessionsDao.deleteUserReadingSession(write.getUser(), write.getParentUuid(), write.getUuid())
+            : readingSessionsDao.updateUserReadingSession(write.getUser(), write.getParentUuid(), write.getUuid(), write.getItem());
+        if(!uuid.isPresent()) {
+            logger.warn("Reading session of user {} with uuid {} is gone before being written", write.getUser(), write.getUuid());
+        }
+    }
+
+    private static ReadingSession createReadingSession(String uuid, ReadingSession readingSession) {
+        return new ReadingSession(uuid,
+            readingSession.getBookUuid(),
+            readingSession.getDeadline(),
+            new ArrayList<>(readingSession.getDateReadingSessions()));
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+public class WriteBehindStatistics {
+
+    private final long depth;
+    private final long lagMillis;
+    private final long enqueuedCount;
+    private final long coalescedCount;
+    private final long writtenCount;
+    private final long failedCount;
+
+    WriteBehindStatistics(long depth, long lagMillis, long enqueuedCount, long coalescedCount, long writtenCount, long failedCount) {
+        this.depth = depth;
+        this.lagMillis = lagMillis;
+        this.enqueuedCount = enqueuedCount;
+        this.coalescedCount = coalescedCount;
+        this.writtenCount = writtenCount;
+        this.failedCount = failedCount;
+    }
+
+    /**
+     * Changes waiting to be written.
+     */
+    public long getDepth() {
+        return depth;
+    }
+
+    /**
+     * Age of the oldest change waiting to be written.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount;
+    }
+
+    /**
+     * Changes replaced by a newer change of the same item before being written.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * Changes dropped after failing to be written.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth=%d, lag=%dms, enqueued=%d, coalesced=%d, written=%d, failed=%d",
+            depth, lagMillis, enqueuedCount, coalescedCount, writtenCount, failedCount);
+    }
+}
@@ -0,0 +1,37 @@
+package com.espressoprogrammer.library.persistence;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ItemIdsTest {
+
+    @Test
+    public void makeTimeOrderedIds() throws Exception {
+        long millis = System.currentTimeMillis() + 60000;
+        List<String> uuids = new ArrayList<>();
+        for(int i = 0; i < 5000; i++) {
+            uuids.add(ItemIds.newTimeOrderedId(millis));
+        }
+        uuids.add(ItemIds.newTimeOrderedId(millis - 1000));
+
+        assertThat(uuids).isSorted().doesNotHaveDuplicates();
+        assertThat(uuids).allMatch(ItemIds::isTimeOrdered);
+        UUID uuid = UUID.fromString(uuids.get(0));
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(uuid.getMostSignificantBits() >>> 16).isEqualTo(millis);
+    }
+
+    @Test
+    public void tellRandomIdsApart() throws Exception {
+        assertThat(ItemIds.isTimeOrdered(ItemIds.newId(false))).isFalse();
+        assertThat(ItemIds.isTimeOrdered(ItemIds.newId(true))).isTrue();
+        assertThat(ItemIds.isTimeOrdered("uuid-1")).isFalse();
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.espressoprogrammer.library.persistence.cache;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingBooksDaoTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+    private static final String JANE_DOE_USER = "janedoe";
+
+    private static final Book BOOK_1 = new Book("uuid-1",
+        "isbn10-1",
+        "isbn13-1",
+        "Title 1",
+        Arrays.asList("First1 Last1"),
+        "image-1",
+        100);
+    private static final Book BOOK_2 = new Book("uuid-2",
+        "isbn10-2",
+        "isbn13-2",
+        "Title 2",
+        Arrays.asList("First21 Last21", "First22 Last22"),
+        "image-2",
+        200);
+
+    @Mock
+    private BooksDao booksDao;
+
+    private CachingBooksDao cachingBooksDao;
+
+    @Before
+    public void init() {
+        cachingBooksDao = new CachingBooksDao(booksDao, 1, 1024 * 1024);
+    }
+
+    @Test
+    public void getUserBooksFromMemory() {
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1, BOOK_2));
+
+        assertThat(cachingBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(BOOK_1, BOOK_2);
+        assertThat(cachingBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(BOOK_1, BOOK_2);
+        assertThat(cachingBooksDao.getUserBooks(JOHN_DOE_USER, "First21")).containsExactly(BOOK_2);
+        assertThat(cachingBooksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).contains(BOOK_1);
+        assertThat(cachingBooksDao.getUserBook(JOHN_DOE_USER, "missing")).isEmpty();
+
+        verify(booksDao, times(1)).getUserBooks(JOHN_DOE_USER);
+        verify(booksDao, never()).getUserBook(JOHN_DOE_USER, "uuid-1");
+        assertThat(cachingBooksDao.getStatistics().getMissCount()).isEqualTo(1);
+        assertThat(cachingBooksDao.getStatistics().getHitCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void warmUpUserReadsBooksOnce() {
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1, BOOK_2));
+
+        cachingBooksDao.warmUpUser(JOHN_DOE_USER);
+
+        assertThat(cachingBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(BOOK_1, BOOK_2);
+        verify(booksDao).warmUpUserStorage(JOHN_DOE_USER);
+        verify(booksDao, never()).warmUpUser(JOHN_DOE_USER);
+        verify(booksDao, times(1)).getUserBooks(JOHN_DOE_USER);
+    }
+
+    @Test
+    public void getUserBookOfNotCachedUser() {
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).thenReturn(Optional.of(BOOK_1));
+
+        assertThat(cachingBooksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).contains(BOOK_1);
+
+        verify(booksDao, never()).getUserBooks(JOHN_DOE_USER);
+    }
+
+    @Test
+    public void getUserBooksByIsbn() {
+        when(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-2", null)).thenReturn(Arrays.asList(BOOK_2));
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1, BOOK_2));
+
+        assertThat(cachingBooksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-2", null)).containsExactly(BOOK_2);
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+        assertThat(cachingBooksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2")).containsExactly(BOOK_1, BOOK_2);
+
+        verify(booksDao, times(1)).getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-2", null);
+        verify(booksDao, never()).getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2");
+    }
+
+    @Test
+    public void pageCachedUserBooks() {
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_2, BOOK_1));
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+
+        Page<Book> page = cachingBooksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 1, true));
+
+        assertThat(page.getItems()).containsExactly(BOOK_1);
+        assertThat(page.getNextCursor()).isEqualTo("uuid-1");
+        assertThat(page.getTotalCount()).isEqualTo(2);
+        verify(booksDao, never()).getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 1, true));
+    }
+
+    @Test
+    public void pageUserBooksOfNotCachedUser() {
+        PageRequest pageRequest = new PageRequest("uuid-1", 1, false);
+        Page<Book> page = new Page<>(Collections.singletonList(BOOK_2), null, null);
+        when(booksDao.getUserBooks(JOHN_DOE_USER, null, pageRequest)).thenReturn(page);
+
+        assertThat(cachingBooksDao.getUserBooks(JOHN_DOE_USER, null, pageRequest)).isSameAs(page);
+        verify(booksDao, never()).getUserBooks(JOHN_DOE_USER);
+    }
+
+    @Test
+    public void invalidateOnWrite() {
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1));
+        when(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", BOOK_1)).thenReturn(Optional.of("uuid-1"));
+
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+        cachingBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", BOOK_1);
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+
+        verify(booksDao, times(2)).getUserBooks(JOHN_DOE_USER);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedUser() {
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1));
+        when(booksDao.getUserBooks(JANE_DOE_USER)).thenReturn(Arrays.asList(BOOK_2));
+
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+        cachingBooksDao.getUserBooks(JANE_DOE_USER);
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+
+        verify(booksDao, times(2)).getUserBooks(JOHN_DOE_USER);
+        assertThat(cachingBooksDao.getStatistics().getEvictionCount()).isEqualTo(2);
+        assertThat(cachingBooksDao.getStatistics().getUserCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void skipUsersOverTheHeapLimit() {
+        cachingBooksDao = new CachingBooksDao(booksDao, 10, 10);
+        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(BOOK_1));
+
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+        cachingBooksDao.getUserBooks(JOHN_DOE_USER);
+
+        verify(booksDao, times(2)).getUserBooks(JOHN_DOE_USER);
+        assertThat(cachingBooksDao.getStatistics().getWeight()).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.espressoprogrammer.library.persistence.codec;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.DateReadingSession;
+import com.espressoprogrammer.library.dto.ReadingSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BinaryCodecTest {
+
+    private Path folder;
+
+    @Before
+    public void init() throws Exception {
+        folder = Files.createTempDirectory("library-codec-");
+    }
+
+    @After
+    public void clear() throws Exception {
+        Files.walk(folder)
+            .sorted((p1, p2) -> p2.compareTo(p1))
+            .forEach(p -> p.toFile().delete());
+    }
+
+    @Test
+    public void sameCodecForSameType() {
+        assertThat(BinaryCodec.forType(Book.class)).isSameAs(BinaryCodec.forType(Book.class));
+        assertThat(BinaryCodec.forType(Book.class).getType()).isEqualTo(Book.class);
+    }
+
+    @Test
+    public void writeAndReadBookFile() throws Exception {
+        Book book = new Book("uuid-1",
+            "isbn10-1",
+            null,
+            "Title 1 - Ünïcödé",
+            Arrays.asList("First1 Last1", "First2 Last2"),
+            "image-1",
+            -100);
+        Path path = folder.resolve("uuid-1.bin");
+
+        BinaryCodec<Book> codec = BinaryCodec.forType(Book.class);
+        codec.write(path, book);
+
+        assertThat(codec.read(path)).isEqualTo(book);
+        assertThat(Files.size(path)).isLessThan(JsonCodec.forType(Book.class).toBytes(book).length);
+    }
+
+    @Test
+    public void writeAndReadReadingSessionBytes() throws Exception {
+        ReadingSession readingSession = new ReadingSession("uuid-1",
+            "book-uuid-1",
+            "2017-01-31",
+            Arrays.asList(new DateReadingSession("2017-01-01", 101, "bookmark-101"),
+                new DateReadingSession("2017-01-02", 202, "bookmark-202")));
+
+        BinaryCodec<ReadingSession> codec = BinaryCodec.forType(ReadingSession.class);
+
+        assertThat(codec.read(codec.toBytes(readingSession))).isEqualTo(readingSession);
+    }
+
+    @Test
+    public void rejectJsonBytes() throws Exception {
+        byte[] json = JsonCodec.forType(Book.class).toBytes(new Book("uuid-1", null, null, "Title", Arrays.asList("A"), null, 1));
+
+        assertThatThrownBy(() -> BinaryCodec.forType(Book.class).read(json)).isInstanceOf(IOException.class);
+    }
+
+}
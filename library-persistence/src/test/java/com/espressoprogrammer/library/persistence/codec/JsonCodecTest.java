@@ -0,0 +1,87 @@
+package com.espressoprogrammer.library.persistence.codec;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.DateReadingSession;
+import com.espressoprogrammer.library.dto.ReadingSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonCodecTest {
+
+    private Path folder;
+
+    @Before
+    public void init() throws Exception {
+        folder = Files.createTempDirectory("library-codec-");
+    }
+
+    @After
+    public void clear() throws Exception {
+        Files.walk(folder)
+            .sorted((p1, p2) -> p2.compareTo(p1))
+            .forEach(p -> p.toFile().delete());
+    }
+
+    @Test
+    public void sameCodecForSameType() {
+        assertThat(JsonCodec.forType(Book.class)).isSameAs(JsonCodec.forType(Book.class));
+        assertThat(JsonCodec.forType(Book.class).getType()).isEqualTo(Book.class);
+    }
+
+    @Test
+    public void writeAndReadBookFile() throws Exception {
+        Book book = new Book("uuid-1",
+            "isbn10-1",
+            "isbn13-1",
+            "Title 1 - Ünïcödé",
+            Arrays.asList("First1 Last1"),
+            "image-1",
+            100);
+        Path path = folder.resolve("uuid-1.json");
+
+        JsonCodec<Book> codec = JsonCodec.forType(Book.class);
+        codec.write(path, book);
+
+        assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).contains("Title 1 - Ünïcödé");
+        assertThat(codec.read(path)).isEqualTo(book);
+    }
+
+    @Test
+    public void overwriteShorterContent() throws Exception {
+        JsonCodec<Book> codec = JsonCodec.forType(Book.class);
+        Path path = folder.resolve("uuid-1.json");
+        codec.write(path, new Book("uuid-1", null, null, "A very long title that will be replaced", Arrays.asList("A"), null, 1));
+
+        Book book = new Book("uuid-1", null, null, "Short", Arrays.asList("A"), null, 1);
+        codec.write(path, book);
+
+        assertThat(codec.read(path)).isEqualTo(book);
+    }
+
+    @Test
+    public void writeAndReadReadingSessionBytes() throws Exception {
+        ReadingSession readingSession = new ReadingSession("uuid-1",
+            "book-uuid-1",
+            "2017-01-31",
+            Arrays.asList(new DateReadingSession("2017-01-01", 101, "bookmark-101")));
+
+        JsonCodec<ReadingSession> codec = JsonCodec.forType(ReadingSession.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(out, readingSession);
+        out.write('\n');
+
+        assertThat(out.toByteArray()).endsWith(new byte[] {'}', '\n'});
+        assertThat(codec.read(codec.toBytes(readingSession))).isEqualTo(readingSession);
+        assertThat(codec.read(out.toByteArray(), 0, out.size() - 1)).isEqualTo(readingSession);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.Book;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncFilesystemBooksDaoTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Mock
+    private FilesystemConfiguration filesystemConfiguration;
+
+    private FilesystemBooksDao booksDao;
+    private AsyncFileReader asyncFileReader;
+    private AsyncFilesystemBooksDao asyncBooksDao;
+
+    @Before
+    public void init() throws Exception {
+        when(filesystemConfiguration.getLibraryFolder()).thenReturn(System.getProperty(TMPDIR)
+            + "/library-"
+            + System.nanoTime());
+        lenient().when(filesystemConfiguration.getUserFolder(anyString()))
+            .thenAnswer(invocation -> filesystemConfiguration.getLibraryFolder() + "/" + invocation.getArgument(0));
+
+        booksDao = new FilesystemBooksDao();
+        booksDao.filesystemConfiguration = filesystemConfiguration;
+        asyncFileReader = new AsyncFileReader();
+        asyncFileReader.threads = 2;
+        asyncFileReader.init();
+        asyncBooksDao = new AsyncFilesystemBooksDao();
+        asyncBooksDao.booksDao = booksDao;
+        asyncBooksDao.asyncFileReader = asyncFileReader;
+        asyncBooksDao.filesystemConfiguration = filesystemConfiguration;
+    }
+
+    @After
+    public void clear() throws Exception {
+        asyncFileReader.close();
+        FileSystemUtils.deleteRecursively(new File(filesystemConfiguration.getLibraryFolder()));
+    }
+
+    @Test
+    public void readUserBookThroughAsyncChannel() throws Exception {
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+
+        assertThat(asyncBooksDao.getUserBook(JOHN_DOE_USER, book.getUuid()).get(10, TimeUnit.SECONDS)).contains(book);
+        assertThat(asyncBooksDao.getUserBook(JOHN_DOE_USER, "missing-uuid").get(10, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    public void writeUserBooksOnIoThreads() throws Exception {
+        Book book1 = asyncBooksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json")).get(10, TimeUnit.SECONDS);
+        Book book2 = asyncBooksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json")).get(10, TimeUnit.SECONDS);
+
+        assertThat(asyncBooksDao.deleteUserBook(JOHN_DOE_USER, book1.getUuid()).get(10, TimeUnit.SECONDS))
+            .contains(book1.getUuid());
+        assertThat(asyncBooksDao.getUserBooks(JOHN_DOE_USER, "Title").get(10, TimeUnit.SECONDS)).containsExactly(book2);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book1.getUuid())).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void delegateReadsOfOtherStorages() throws Exception {
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        asyncBooksDao.storage = "log";
+
+        assertThat(asyncBooksDao.getUserBook(JOHN_DOE_USER, book.getUuid()).get(10, TimeUnit.SECONDS)).contains(book);
+    }
+
+}
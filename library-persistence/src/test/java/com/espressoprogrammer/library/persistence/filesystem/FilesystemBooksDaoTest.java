@@ -1,6 +1,10 @@
 package com.espressoprogrammer.library.persistence.filesystem;
 
 import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksSearch;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,13 +18,26 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.copyBook;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -39,6 +56,8 @@ public class FilesystemBooksDaoTest {
         when(filesystemConfiguration.getLibraryFolder()).thenReturn(System.getProperty(TMPDIR)
             + "/library-"
             + System.nanoTime());
+        lenient().when(filesystemConfiguration.getUserFolder(anyString()))
+            .thenAnswer(invocation -> filesystemConfiguration.getLibraryFolder() + "/" + invocation.getArgument(0));
     }
 
     @After
@@ -175,6 +194,146 @@ public class FilesystemBooksDaoTest {
         assertThat(books).isEmpty();
     }
 
+    @Test
+    public void searchUserBooksByShortText() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "2")).containsExactly(book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "ti")).containsOnly(book1, book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "")).containsOnly(book1, book2);
+    }
+
+    @Test
+    public void searchUserBooksIgnoringCase() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "TITLE")).containsOnly(book1, book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "last21 first22")).containsExactly(book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "title 3")).isEmpty();
+    }
+
+    @Test
+    public void searchUserBooksAfterUpdateAndDelete() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        Book updatedBook1 = book1.copy(book1.getUuid(),
+            book1.getIsbn10(),
+            book1.getIsbn13(),
+            "Renamed",
+            book1.getAuthors(),
+            book1.getImage(),
+            book1.getPages());
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1);
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "Title")).isEmpty();
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "rename")).containsExactly(updatedBook1);
+    }
+
+    @Test
+    public void rebuildMissingTrigramIndex() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Files.delete(Paths.get(getUserBooksFolder(JOHN_DOE_USER), ".trigram.index"));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+
+        FilesystemBooksDao reloadedBooksDao = new FilesystemBooksDao();
+        reloadedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        assertThat(reloadedBooksDao.getUserBooks(JOHN_DOE_USER, "Title"))
+            .hasSize(2)
+            .contains(book1);
+    }
+
+    @Test
+    public void scanUserBooksInParallel() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            books.add(booksDao.createUserBook(JOHN_DOE_USER, getTestBook(i % 2 == 0 ? "uuid-1.json" : "uuid-2.json")));
+        }
+        books.sort(Comparator.comparing(Book::getUuid));
+
+        ParallelScanner parallelScanner = new ParallelScanner();
+        parallelScanner.parallelism = 4;
+        parallelScanner.init();
+        booksDao.parallelScanner = parallelScanner;
+        try {
+            assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactlyInAnyOrderElementsOf(books);
+            assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "")).containsExactlyElementsOf(books);
+            assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "2")).containsExactlyElementsOf(books.stream()
+                .filter(b -> BooksSearch.matches(b, "2"))
+                .collect(toList()));
+        } finally {
+            parallelScanner.close();
+        }
+    }
+
+    @Test
+    public void streamUserBooks() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        try(Stream<Book> books = booksDao.streamUserBooks(JOHN_DOE_USER, null)) {
+            assertThat(books).containsOnly(book1, book2);
+        }
+        try(Stream<Book> books = booksDao.streamUserBooks(JOHN_DOE_USER, "title 2")) {
+            assertThat(books.findFirst()).contains(book2);
+        }
+        try(Stream<Book> books = booksDao.streamUserBooks(JOHN_DOE_USER, "Missing")) {
+            assertThat(books.findFirst()).isEmpty();
+        }
+    }
+
+    @Test
+    public void pageUserBooks() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json")));
+        books.add(booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json")));
+        books.add(booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json")));
+        books.sort(Comparator.comparing(Book::getUuid));
+
+        Page<Book> firstPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 2, true));
+        assertThat(firstPage.getItems()).containsExactly(books.get(0), books.get(1));
+        assertThat(firstPage.getNextCursor()).isEqualTo(books.get(1).getUuid());
+        assertThat(firstPage.getTotalCount()).isEqualTo(3);
+
+        Page<Book> lastPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(firstPage.getNextCursor(), 2, false));
+        assertThat(lastPage.getItems()).containsExactly(books.get(2));
+        assertThat(lastPage.getNextCursor()).isNull();
+        assertThat(lastPage.getTotalCount()).isNull();
+    }
+
+    @Test
+    public void pageTimeOrderedUserBooksNewestFirst() throws Exception {
+        booksDao.timeOrderedIds = true;
+        booksDao.layout = "fanout";
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            books.add(booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json")));
+        }
+        assertThat(books).extracting(Book::getUuid).isSorted();
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), books.get(0).getUuid().substring(34))).isDirectory();
+
+        Page<Book> firstPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 3, false, true));
+        assertThat(firstPage.getItems()).containsExactly(books.get(4), books.get(3), books.get(2));
+
+        Page<Book> lastPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(firstPage.getNextCursor(), 3, false, true));
+        assertThat(lastPage.getItems()).containsExactly(books.get(1), books.get(0));
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void pageSearchedUserBooks() throws Exception {
+        booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        Page<Book> page = booksDao.getUserBooks(JOHN_DOE_USER, "title 2", new PageRequest(null, 1, true));
+        assertThat(page.getItems()).containsExactly(book2);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.getTotalCount()).isEqualTo(1);
+    }
+
     @Test
     public void createUserBook() throws Exception {
         List<Book> books = booksDao.getUserBooks(JOHN_DOE_USER);
@@ -307,6 +466,251 @@ public class FilesystemBooksDaoTest {
         assertThat(optionalBook.isPresent()).isFalse();
     }
 
+    @Test
+    public void getUserBooksByIsbn() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        Book book3 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-3.json"));
+
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", null)).containsExactly(book1);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, null, "isbn13-2")).containsExactly(book2);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-3", "isbn13-1")).containsOnly(book1, book3);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-1")).containsExactly(book1);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-4", "")).isEmpty();
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, null, null)).isEmpty();
+    }
+
+    @Test
+    public void getUserBooksByIsbnAfterUpdateAndDelete() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        Book updatedBook1 = book1.copy(book1.getUuid(),
+            "isbn10-5",
+            book1.getIsbn13(),
+            book1.getTitle(),
+            book1.getAuthors(),
+            book1.getImage(),
+            book1.getPages());
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1);
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", null)).isEmpty();
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-5", null)).containsExactly(updatedBook1);
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-2", "isbn13-2")).isEmpty();
+    }
+
+    @Test
+    public void rebuildMissingIsbnIndex() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Files.delete(Paths.get(getUserBooksFolder(JOHN_DOE_USER), ".isbn.index"));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+
+        FilesystemBooksDao reloadedBooksDao = new FilesystemBooksDao();
+        reloadedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        assertThat(reloadedBooksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2"))
+            .hasSize(2)
+            .contains(book1);
+    }
+
+    @Test
+    public void reloadDroppedIndexFoldersFromJournal() throws Exception {
+        SecondaryIndex<Book> isbnIndex = new SecondaryIndex<>("isbn", Book::getUuid,
+            b -> FilesystemBooksDao.getIsbnKeys(b.getIsbn10(), b.getIsbn13()), 1);
+        Path johnDoeFolder = Files.createDirectories(Paths.get(getUserBooksFolder(JOHN_DOE_USER)));
+        Path janeDoeFolder = Files.createDirectories(Paths.get(getUserBooksFolder("janedoe")));
+        Book book1 = getTestBook("uuid-1.json");
+        Book book2 = getTestBook("uuid-2.json");
+
+        isbnIndex.add(johnDoeFolder, "uuid-1", book1, ArrayList::new);
+        isbnIndex.add(janeDoeFolder, "uuid-2", book2, ArrayList::new);
+        assertThat(isbnIndex.getLoadedFolderCount()).isEqualTo(1);
+
+        isbnIndex.remove(janeDoeFolder, "uuid-2", ArrayList::new);
+        String isbn1Key = FilesystemBooksDao.getIsbnKeys(book1.getIsbn10(), null).get(0);
+        String isbn2Key = FilesystemBooksDao.getIsbnKeys(book2.getIsbn10(), null).get(0);
+        assertThat(isbnIndex.lookup(johnDoeFolder, isbn1Key, ArrayList::new)).containsExactly("uuid-1");
+        assertThat(isbnIndex.lookup(janeDoeFolder, isbn2Key, ArrayList::new)).isEmpty();
+        assertThat(isbnIndex.getLoadedFolderCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadIndexFoldersWhileAnotherOneIsRebuilt() throws Exception {
+        SecondaryIndex<Book> isbnIndex = FilesystemBooksDao.createIsbnIndex();
+        Path johnDoeFolder = Files.createDirectories(Paths.get(getUserBooksFolder(JOHN_DOE_USER)));
+        Path janeDoeFolder = Files.createDirectories(Paths.get(getUserBooksFolder("janedoe")));
+        Book book1 = getTestBook("uuid-1.json");
+        String isbn1Key = FilesystemBooksDao.getIsbnKeys(book1.getIsbn10(), null).get(0);
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Set<String>> johnDoeUuids = executor.submit(() -> isbnIndex.lookup(johnDoeFolder, isbn1Key, () -> {
+                rebuilding.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.singletonList(book1);
+            }));
+            rebuilding.await();
+            Future<Set<String>> otherJohnDoeUuids = executor.submit(() ->
+                isbnIndex.lookup(johnDoeFolder, isbn1Key, ArrayList::new));
+
+            assertThat(executor.submit(() -> isbnIndex.lookup(janeDoeFolder, isbn1Key, ArrayList::new))
+                .get(10, TimeUnit.SECONDS)).isEmpty();
+            assertThat(johnDoeUuids.isDone()).isFalse();
+
+            release.countDown();
+            assertThat(johnDoeUuids.get(10, TimeUnit.SECONDS)).containsExactly(book1.getUuid());
+            assertThat(otherJohnDoeUuids.get(10, TimeUnit.SECONDS)).containsExactly(book1.getUuid());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void changeVersionsOnWrite() throws Exception {
+        DataVersion initialBooksVersion = booksDao.getUserBooksVersion(JOHN_DOE_USER);
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER)).isEqualTo(initialBooksVersion);
+
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        DataVersion booksVersion = booksDao.getUserBooksVersion(JOHN_DOE_USER);
+        DataVersion book1Version = booksDao.getUserBookVersion(JOHN_DOE_USER, book1.getUuid()).get();
+        assertThat(booksVersion.getTag()).isNotEqualTo(initialBooksVersion.getTag());
+        assertThat(booksVersion.getLastModified()).isGreaterThanOrEqualTo(initialBooksVersion.getLastModified());
+
+        booksDao.updateUserBook(JOHN_DOE_USER, book2.getUuid(), getTestBook("uuid-3.json"));
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER)).isNotEqualTo(booksVersion);
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, book1.getUuid())).contains(book1Version);
+
+        booksDao.deleteUserBook(JOHN_DOE_USER, book1.getUuid());
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, book1.getUuid())).isEmpty();
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, "missing-uuid")).isEmpty();
+    }
+
+    @Test
+    public void writeUserBooksInBinaryFormat() throws Exception {
+        booksDao.format = "binary";
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), book.getUuid() + ".bin")).exists();
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).contains(book);
+
+        booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), getTestBook("uuid-2.json"));
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid()).get().getTitle()).isEqualTo("Title 2");
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "title 2")).hasSize(1);
+    }
+
+    @Test
+    public void readAndUpdateJsonUserBooksInBinaryFormat() throws Exception {
+        createBooksFolder(JOHN_DOE_USER);
+        copyBook("uuid-1.json", getUserBooksFolder(JOHN_DOE_USER));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+        booksDao.format = "binary";
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).hasSize(2);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1").get().getTitle()).isEqualTo("Title 1");
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, "uuid-1")).isPresent();
+
+        booksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", getTestBook("uuid-3.json"));
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uuid-1.json")).doesNotExist();
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uuid-1.bin")).exists();
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).hasSize(2);
+
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, "uuid-2")).contains("uuid-2");
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).extracting(Book::getUuid).containsExactly("uuid-1");
+    }
+
+    @Test
+    public void migrateUserBooks() throws Exception {
+        createBooksFolder(JOHN_DOE_USER);
+        copyBook("uuid-1.json", getUserBooksFolder(JOHN_DOE_USER));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+        List<Book> books = booksDao.getUserBooks(JOHN_DOE_USER);
+        DataVersion booksVersion = booksDao.getUserBooksVersion(JOHN_DOE_USER);
+        booksDao.format = "binary";
+
+        assertThat(booksDao.migrateUserItems(JOHN_DOE_USER)).isEqualTo(2);
+        assertThat(booksDao.migrateUserItems(JOHN_DOE_USER)).isEqualTo(0);
+
+        try(Stream<Path> paths = Files.list(Paths.get(getUserBooksFolder(JOHN_DOE_USER)))) {
+            assertThat(paths.map(p -> p.getFileName().toString()).sorted().collect(toList()))
+                .containsExactly("uuid-1.bin", "uuid-2.bin");
+        }
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactlyInAnyOrderElementsOf(books);
+        assertThat(booksDao.getUserBooksVersion(JOHN_DOE_USER)).isEqualTo(booksVersion);
+    }
+
+    @Test
+    public void writeUserBooksInFanOutLayout() throws Exception {
+        booksDao.layout = "fanout";
+        Book book = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), book.getUuid().substring(0, 2), book.getUuid() + ".json"))
+            .exists();
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).contains(book);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book);
+
+        booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), getTestBook("uuid-2.json"));
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "title 2")).hasSize(1);
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid())).contains(book.getUuid());
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).isEmpty();
+    }
+
+    @Test
+    public void getMissingUserBookWithShortUuid() throws Exception {
+        booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, "x")).isEmpty();
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, "x")).isEmpty();
+
+        booksDao.layout = "fanout";
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, "x")).isEmpty();
+        assertThat(booksDao.getUserBookVersion(JOHN_DOE_USER, "x")).isEmpty();
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, "x")).isEmpty();
+    }
+
+    @Test
+    public void migrateUserBooksToFanOutLayout() throws Exception {
+        createBooksFolder(JOHN_DOE_USER);
+        copyBook("uuid-1.json", getUserBooksFolder(JOHN_DOE_USER));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+        List<Book> books = booksDao.getUserBooks(JOHN_DOE_USER);
+        booksDao.layout = "fanout";
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).isPresent();
+
+        assertThat(booksDao.migrateUserItems(JOHN_DOE_USER)).isEqualTo(2);
+        assertThat(booksDao.migrateUserItems(JOHN_DOE_USER)).isEqualTo(0);
+
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uuid-1.json")).doesNotExist();
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uu", "uuid-1.json")).exists();
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactlyInAnyOrderElementsOf(books);
+    }
+
+    @Test
+    public void migrateUserBooksLayoutOffline() throws Exception {
+        createBooksFolder(JOHN_DOE_USER);
+        copyBook("uuid-1.json", getUserBooksFolder(JOHN_DOE_USER));
+        copyBook("uuid-2.json", getUserBooksFolder(JOHN_DOE_USER));
+        List<Book> books = booksDao.getUserBooks(JOHN_DOE_USER);
+        List<File> userFolders = Arrays.asList(new File(filesystemConfiguration.getLibraryFolder(), JOHN_DOE_USER));
+
+        LayoutMigrator fanOutMigrator = new LayoutMigrator(filesystemConfiguration.getLibraryFolder(), ItemLayout.FANOUT);
+        assertThat(fanOutMigrator.migrate(userFolders)).isEqualTo(2);
+        assertThat(fanOutMigrator.migrate(userFolders)).isEqualTo(0);
+        booksDao.layout = "fanout";
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uu", "uuid-2.json")).exists();
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactlyInAnyOrderElementsOf(books);
+
+        LayoutMigrator flatMigrator = new LayoutMigrator(filesystemConfiguration.getLibraryFolder(), ItemLayout.FLAT);
+        assertThat(flatMigrator.migrate(userFolders)).isEqualTo(2);
+        booksDao.layout = "flat";
+        assertThat(Paths.get(getUserBooksFolder(JOHN_DOE_USER), "uu")).doesNotExist();
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactlyInAnyOrderElementsOf(books);
+    }
+
     private void createBooksFolder(String user) throws Exception {
         Path path = Paths.get(getUserBooksFolder(user));
         if(!path.toFile().exists()) {
@@ -15,13 +15,20 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.copyReadingSession;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReadingSession;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -41,6 +48,8 @@ public class FilesystemReadingSessionsDaoTest {
         when(filesystemConfiguration.getLibraryFolder()).thenReturn(System.getProperty(TMPDIR)
             + "/library-"
             + System.nanoTime());
+        lenient().when(filesystemConfiguration.getUserFolder(anyString()))
+            .thenAnswer(invocation -> filesystemConfiguration.getLibraryFolder() + "/" + invocation.getArgument(0));
     }
 
     @After
@@ -100,6 +109,17 @@ public class FilesystemReadingSessionsDaoTest {
             );
     }
 
+    @Test
+    public void streamAllUserReadingSessions() throws Exception {
+        ReadingSession readingSession1 = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER, BOOK_UUID, getTestReadingSession("uuid-1.json"));
+        ReadingSession readingSession2 = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER, "book-uuid-2",
+            getTestReadingSession("uuid-1.json").copy(null, "book-uuid-2", null, Collections.emptyList()));
+
+        try(Stream<ReadingSession> readingSessions = readingSessionsDao.streamUserReadingSessions(JOHN_DOE_USER)) {
+            assertThat(readingSessions.collect(toList())).containsExactlyInAnyOrder(readingSession1, readingSession2);
+        }
+    }
+
     @Test
     public void createUserReadingSession() throws Exception {
         List<ReadingSession> readingSessions = readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID);
@@ -239,6 +259,106 @@ public class FilesystemReadingSessionsDaoTest {
         assertThat(optionalReadingSession.isPresent()).isFalse();
     }
 
+    @Test
+    public void getUserReadingSessionsOfOneBook() throws Exception {
+        ReadingSession readingSession1 = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            BOOK_UUID,
+            getTestReadingSession("uuid-1.json"));
+        ReadingSession readingSession2 = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            "book-uuid-2",
+            new ReadingSession(null, "book-uuid-2", null, Collections.emptyList()));
+
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).containsExactly(readingSession1);
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, "book-uuid-2")).containsExactly(readingSession2);
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER)).hasSize(2);
+
+        ReadingSession movedReadingSession = new ReadingSession(readingSession2.getUuid(), BOOK_UUID, null, Collections.emptyList());
+        readingSessionsDao.updateUserReadingSession(JOHN_DOE_USER, BOOK_UUID, readingSession2.getUuid(), movedReadingSession);
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).containsOnly(readingSession1, movedReadingSession);
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, "book-uuid-2")).isEmpty();
+
+        readingSessionsDao.deleteUserReadingSession(JOHN_DOE_USER, BOOK_UUID, readingSession1.getUuid());
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).containsExactly(movedReadingSession);
+    }
+
+    @Test
+    public void reloadBookUuidIndex() throws Exception {
+        ReadingSession readingSession = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            BOOK_UUID,
+            getTestReadingSession("uuid-1.json"));
+        assertThat(Paths.get(getUserReadingSessionsFolder(JOHN_DOE_USER), ".book-uuid.index").toFile().exists()).isTrue();
+
+        FilesystemReadingSessionsDao reloadedReadingSessionsDao = new FilesystemReadingSessionsDao();
+        reloadedReadingSessionsDao.filesystemConfiguration = filesystemConfiguration;
+        assertThat(reloadedReadingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).containsExactly(readingSession);
+    }
+
+    @Test
+    public void rebuildMissingBookUuidIndex() throws Exception {
+        ReadingSession readingSession = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            BOOK_UUID,
+            getTestReadingSession("uuid-1.json"));
+        Files.delete(Paths.get(getUserReadingSessionsFolder(JOHN_DOE_USER), ".book-uuid.index"));
+        copyReadingSession("uuid-2.json", getUserReadingSessionsFolder(JOHN_DOE_USER));
+
+        FilesystemReadingSessionsDao reloadedReadingSessionsDao = new FilesystemReadingSessionsDao();
+        reloadedReadingSessionsDao.filesystemConfiguration = filesystemConfiguration;
+        assertThat(reloadedReadingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID))
+            .hasSize(2)
+            .contains(readingSession);
+    }
+
+    @Test
+    public void compressLongUserReadingSessions() throws Exception {
+        ItemCompressor itemCompressor = new ItemCompressor();
+        itemCompressor.threshold = 1024;
+        readingSessionsDao.itemCompressor = itemCompressor;
+
+        ReadingSession shortReadingSession = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            BOOK_UUID,
+            getTestReadingSession("uuid-1.json"));
+        ReadingSession longReadingSession = readingSessionsDao.createUserReadingSession(JOHN_DOE_USER,
+            BOOK_UUID,
+            new ReadingSession(null, BOOK_UUID, "2018-12-31", getDateReadingSessions(365)));
+
+        Path shortPath = Paths.get(getUserReadingSessionsFolder(JOHN_DOE_USER), shortReadingSession.getUuid() + ".json");
+        Path longPath = Paths.get(getUserReadingSessionsFolder(JOHN_DOE_USER), longReadingSession.getUuid() + ".json");
+        assertThat(ItemCompressor.isCompressed(Files.readAllBytes(shortPath))).isFalse();
+        assertThat(ItemCompressor.isCompressed(Files.readAllBytes(longPath))).isTrue();
+        assertThat(readingSessionsDao.getUserReadingSession(JOHN_DOE_USER, BOOK_UUID, longReadingSession.getUuid()))
+            .contains(longReadingSession);
+
+        CompressionStatistics statistics = itemCompressor.getStatistics();
+        assertThat(statistics.getCompressedCount()).isEqualTo(1);
+        assertThat(statistics.getSkippedCount()).isEqualTo(1);
+        assertThat(statistics.getCompressionRatio()).isLessThan(0.2);
+        assertThat(statistics.getCompressNanos()).isPositive();
+        assertThat(statistics.getDecompressedCount()).isEqualTo(1);
+
+        readingSessionsDao.itemCompressor = null;
+        assertThat(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID))
+            .containsExactlyInAnyOrder(shortReadingSession, longReadingSession);
+    }
+
+    private List<DateReadingSession> getDateReadingSessions(int days) {
+        List<DateReadingSession> dateReadingSessions = new ArrayList<>();
+        LocalDate date = LocalDate.parse("2018-01-01");
+        for(int day = 0; day < days; day++) {
+            dateReadingSessions.add(new DateReadingSession(date.plusDays(day).toString(), day + 1, "bookmark-" + day));
+        }
+        return dateReadingSessions;
+    }
+
+    @Test
+    public void warmUpUserBuildsIndexes() throws Exception {
+        createReadingSessionsFolder(JOHN_DOE_USER);
+        copyReadingSession("uuid-1.json", getUserReadingSessionsFolder(JOHN_DOE_USER));
+
+        readingSessionsDao.warmUpUser(JOHN_DOE_USER);
+
+        assertThat(Paths.get(getUserReadingSessionsFolder(JOHN_DOE_USER), ".book-uuid.index")).exists();
+    }
+
     private void createReadingSessionsFolder(String user) throws Exception {
         Path path = Paths.get(getUserReadingSessionsFolder(user));
         if(!path.toFile().exists()) {
@@ -0,0 +1,342 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LogStructuredBooksDaoTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Mock
+    private FilesystemConfiguration filesystemConfiguration;
+
+    @InjectMocks
+    private LogStructuredBooksDao booksDao;
+
+    @Before
+    public void init() throws Exception {
+        when(filesystemConfiguration.getLibraryFolder()).thenReturn(System.getProperty(TMPDIR)
+            + "/library-"
+            + System.nanoTime());
+        lenient().when(filesystemConfiguration.getUserFolder(anyString()))
+            .thenAnswer(invocation -> filesystemConfiguration.getLibraryFolder() + "/" + invocation.getArgument(0));
+    }
+
+    @After
+    public void clear() throws Exception {
+        booksDao.close();
+        deleteLibraryFolder();
+    }
+
+    @Test
+    public void getNoUserBooks() throws Exception {
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).isEmpty();
+    }
+
+    @Test
+    public void getUserBooksByIsbn() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2")).containsOnly(book1, book2);
+
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+        booksDao.close();
+
+        LogStructuredBooksDao reopenedBooksDao = new LogStructuredBooksDao();
+        reopenedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        try {
+            assertThat(reopenedBooksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2")).containsExactly(book1);
+        } finally {
+            reopenedBooksDao.close();
+        }
+    }
+
+    @Test
+    public void createAndSearchUserBooks() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book1, book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "First21")).containsExactly(book2);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "Missing")).isEmpty();
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book1.getUuid())).contains(book1);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, "missing-uuid")).isEmpty();
+    }
+
+    @Test
+    public void pageUserBooks() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        List<Book> books = book1.getUuid().compareTo(book2.getUuid()) < 0
+            ? Arrays.asList(book1, book2)
+            : Arrays.asList(book2, book1);
+
+        Page<Book> firstPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 1, true));
+        assertThat(firstPage.getItems()).containsExactly(books.get(0));
+        assertThat(firstPage.getTotalCount()).isEqualTo(2);
+
+        Page<Book> lastPage = booksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(firstPage.getNextCursor(), 1, false));
+        assertThat(lastPage.getItems()).containsExactly(books.get(1));
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void updateAndDeleteUserBooks() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        Book updatedBook1 = updatedBook(book1);
+
+        assertThat(booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1)).contains(book1.getUuid());
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid())).contains(book2.getUuid());
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book2.getUuid())).isEmpty();
+        assertThat(booksDao.updateUserBook(JOHN_DOE_USER, book2.getUuid(), book2)).isEmpty();
+        assertThat(booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid())).isEmpty();
+    }
+
+    @Test
+    public void reopenUserBooks() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        Book updatedBook1 = updatedBook(book1);
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1);
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+        booksDao.close();
+
+        LogStructuredBooksDao reopenedBooksDao = new LogStructuredBooksDao();
+        reopenedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        try {
+            assertThat(reopenedBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1);
+        } finally {
+            reopenedBooksDao.close();
+        }
+    }
+
+    @Test
+    public void dropTornRecordOnReopen() throws Exception {
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        booksDao.close();
+
+        Path segment = getSegments().get(0);
+        try(RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        LogStructuredBooksDao reopenedBooksDao = new LogStructuredBooksDao();
+        reopenedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        try {
+            assertThat(reopenedBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book1);
+            Book book3 = reopenedBooksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-3.json"));
+            assertThat(reopenedBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book1, book3);
+        } finally {
+            reopenedBooksDao.close();
+        }
+    }
+
+    @Test
+    public void compactUserBooks() throws Exception {
+        booksDao.maxSegmentSize = 512;
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        Book updatedBook1 = book1;
+        for(int i = 0; i < 10; i++) {
+            updatedBook1 = updatedBook(updatedBook1);
+            booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1);
+        }
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+        assertThat(getSegments().size()).isGreaterThan(1);
+        long sizeBeforeCompaction = getSegmentsSize();
+
+        booksDao.compact(JOHN_DOE_USER);
+        Book book3 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-3.json"));
+
+        assertThat(getSegmentsSize()).isLessThan(sizeBeforeCompaction);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1, book3);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book1.getUuid())).contains(updatedBook1);
+
+        booksDao.close();
+        LogStructuredBooksDao reopenedBooksDao = new LogStructuredBooksDao();
+        reopenedBooksDao.filesystemConfiguration = filesystemConfiguration;
+        try {
+            assertThat(reopenedBooksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1, book3);
+        } finally {
+            reopenedBooksDao.close();
+        }
+    }
+
+    @Test
+    public void doNotBringBackBooksDeletedDuringUpdate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for(int i = 0; i < 100; i++) {
+                Book book = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> update = executor.submit(() -> {
+                    start.await();
+                    return booksDao.updateUserBook(JOHN_DOE_USER, book.getUuid(), getTestBook("uuid-2.json"));
+                });
+                Future<?> delete = executor.submit(() -> {
+                    start.await();
+                    return booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid());
+                });
+                start.countDown();
+                update.get();
+                delete.get();
+
+                assertThat(booksDao.getUserBook(JOHN_DOE_USER, book.getUuid())).isEmpty();
+            }
+            assertThat(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, "isbn10-1", "isbn13-2")).isEmpty();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void closeLeastRecentlyUsedSegmentLogs() throws Exception {
+        booksDao.maxOpenUsers = 1;
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook("janedoe", getTestBook("uuid-2.json"));
+        assertThat(booksDao.getOpenSegmentLogCount()).isEqualTo(1);
+
+        try(Stream<Book> books = booksDao.streamUserBooks(JOHN_DOE_USER, null)) {
+            assertThat(booksDao.getUserBook("janedoe", book2.getUuid())).contains(book2);
+            assertThat(booksDao.getOpenSegmentLogCount()).isEqualTo(2);
+            assertThat(books).containsExactly(book1);
+        }
+        assertThat(booksDao.getOpenSegmentLogCount()).isEqualTo(1);
+
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book1.getUuid())).contains(book1);
+        assertThat(booksDao.getUserBooks("janedoe")).containsExactly(book2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void acquireOpenSegmentLogsWhileAnotherOneOpens() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SegmentLog<Book> janeDoeLog = mock(SegmentLog.class);
+        SegmentLogCache<Book> segmentLogs = new SegmentLogCache<>(2, user -> {
+            if("janedoe".equals(user)) {
+                opening.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+                return janeDoeLog;
+            }
+            return mock(SegmentLog.class);
+        });
+        segmentLogs.acquire(JOHN_DOE_USER).close();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<SegmentLogCache.Handle<Book>> janeDoeHandle = executor.submit(() -> segmentLogs.acquire("janedoe"));
+            opening.await();
+            Future<SegmentLogCache.Handle<Book>> otherJaneDoeHandle = executor.submit(() -> segmentLogs.acquire("janedoe"));
+
+            executor.submit(() -> {
+                segmentLogs.acquire(JOHN_DOE_USER).close();
+                segmentLogs.acquire("alice").close();
+                return null;
+            }).get(10, TimeUnit.SECONDS);
+            assertThat(janeDoeHandle.isDone()).isFalse();
+
+            release.countDown();
+            assertThat(janeDoeHandle.get(10, TimeUnit.SECONDS).getLog()).isSameAs(janeDoeLog);
+            assertThat(otherJaneDoeHandle.get(10, TimeUnit.SECONDS).getLog()).isSameAs(janeDoeLog);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void readMemoryMappedUserBooks() throws Exception {
+        booksDao.memoryMapped = true;
+        booksDao.maxSegmentSize = 512;
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(book1);
+
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        Book updatedBook1 = updatedBook(book1);
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), updatedBook1);
+        Book book3 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-3.json"));
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+
+        assertThat(getSegments().size()).isGreaterThan(1);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1, book3);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER, "Title 3")).containsExactly(book3);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book1.getUuid())).contains(updatedBook1);
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book2.getUuid())).isEmpty();
+
+        booksDao.compact(JOHN_DOE_USER);
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER)).containsExactly(updatedBook1, book3);
+    }
+
+    private Book updatedBook(Book book) {
+        return new Book(book.getUuid(),
+            book.getIsbn10(),
+            book.getIsbn13(),
+            "Updated " + book.getTitle(),
+            book.getAuthors(),
+            book.getImage(),
+            book.getPages());
+    }
+
+    private List<Path> getSegments() throws Exception {
+        try(Stream<Path> paths = Files.list(Paths.get(filesystemConfiguration.getLibraryFolder(), JOHN_DOE_USER, "books-log"))) {
+            return paths.filter(p -> p.toString().endsWith(".segment")).sorted().collect(toList());
+        }
+    }
+
+    private long getSegmentsSize() throws Exception {
+        long size = 0;
+        for(Path segment : getSegments()) {
+            size += Files.size(segment);
+        }
+        return size;
+    }
+
+    private void deleteLibraryFolder() {
+        FileSystemUtils.deleteRecursively(new File(filesystemConfiguration.getLibraryFolder()));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StorageShardsTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    private String libraryFolder;
+
+    @Before
+    public void init() {
+        libraryFolder = System.getProperty(TMPDIR) + "/library-" + System.nanoTime();
+    }
+
+    @After
+    public void clear() {
+        FileSystemUtils.deleteRecursively(new File(libraryFolder));
+    }
+
+    @Test
+    public void spreadUsersStably() {
+        List<String> roots = Arrays.asList(libraryFolder + "/shard-1", libraryFolder + "/shard-2", libraryFolder + "/shard-3");
+        StorageShards shards = new StorageShards(libraryFolder, roots);
+        List<String> reversedRoots = Arrays.asList(roots.get(2), roots.get(1), roots.get(0));
+        StorageShards reorderedShards = new StorageShards(libraryFolder, reversedRoots);
+
+        Map<String, Integer> users = new HashMap<>();
+        for(int i = 0; i < 3000; i++) {
+            String user = "user-" + i;
+            assertThat(reorderedShards.getTargetRoot(user)).isEqualTo(shards.getTargetRoot(user));
+            users.merge(shards.getTargetRoot(user), 1, Integer::sum);
+        }
+
+        assertThat(users).hasSize(3);
+        assertThat(users.values()).allMatch(count -> count > 800 && count < 1200);
+    }
+
+    @Test
+    public void moveOnlyUsersOfAddedRoot() {
+        List<String> roots = Arrays.asList(libraryFolder + "/shard-1", libraryFolder + "/shard-2");
+        StorageShards shards = new StorageShards(libraryFolder, roots);
+        String addedRoot = libraryFolder + "/shard-3";
+        StorageShards moreShards = new StorageShards(libraryFolder, Arrays.asList(roots.get(0), roots.get(1), addedRoot));
+
+        int moved = 0;
+        for(int i = 0; i < 3000; i++) {
+            String user = "user-" + i;
+            String targetRoot = moreShards.getTargetRoot(user);
+            if(!targetRoot.equals(shards.getTargetRoot(user))) {
+                assertThat(targetRoot).isEqualTo(Paths.get(addedRoot).toString());
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(800, 1200);
+    }
+
+    @Test
+    public void findUsersUntilRebalanced() throws Exception {
+        Path userFolder = Paths.get(libraryFolder, JOHN_DOE_USER, "books");
+        Files.createDirectories(userFolder);
+        Files.write(userFolder.resolve("uuid-1.json"), "{}".getBytes());
+        List<String> roots = Arrays.asList(libraryFolder + "/shard-1", libraryFolder + "/shard-2");
+        StorageShards shards = new StorageShards(libraryFolder, roots);
+
+        assertThat(shards.getUserFolder(JOHN_DOE_USER)).isEqualTo(Paths.get(libraryFolder) + "/" + JOHN_DOE_USER);
+
+        assertThat(new ShardRebalancer(libraryFolder, shards).rebalance()).isEqualTo(1);
+
+        String targetRoot = shards.getTargetRoot(JOHN_DOE_USER);
+        assertThat(shards.getUserFolder(JOHN_DOE_USER)).isEqualTo(targetRoot + "/" + JOHN_DOE_USER);
+        assertThat(Paths.get(targetRoot, JOHN_DOE_USER, "books", "uuid-1.json")).exists();
+        assertThat(Paths.get(libraryFolder, JOHN_DOE_USER)).doesNotExist();
+        assertThat(new ShardRebalancer(libraryFolder, shards).rebalance()).isEqualTo(0);
+    }
+
+    @Test
+    public void doNotRebalanceWithWriteAheadLogRecords() throws Exception {
+        Files.createDirectories(Paths.get(libraryFolder, JOHN_DOE_USER));
+        Files.createDirectories(Paths.get(libraryFolder, ".wal"));
+        Files.write(Paths.get(libraryFolder, ".wal", "0.wal"), new byte[] {1});
+        StorageShards shards = new StorageShards(libraryFolder, Collections.singletonList(libraryFolder + "/shard-1"));
+
+        assertThat(new ShardRebalancer(libraryFolder, shards).rebalance()).isEqualTo(0);
+        assertThat(Paths.get(libraryFolder, JOHN_DOE_USER)).exists();
+    }
+
+    @Test
+    public void recordInputOutputPerShard() {
+        List<String> roots = Arrays.asList(libraryFolder + "/shard-1", libraryFolder + "/shard-2");
+        StorageShards shards = new StorageShards(libraryFolder, roots);
+
+        shards.recordRead(Paths.get(roots.get(0), JOHN_DOE_USER, "books", "uuid-1.json"), 100);
+        shards.recordWrite(Paths.get(roots.get(1), JOHN_DOE_USER, "books", "uuid-1.json"), 200);
+        shards.recordDelete(Paths.get(roots.get(1), JOHN_DOE_USER, "books", "uuid-2.json"));
+
+        List<ShardStatistics> statistics = shards.getStatistics();
+        assertThat(statistics).hasSize(3);
+        assertThat(statistics.get(1).getReadCount()).isEqualTo(1);
+        assertThat(statistics.get(1).getBytesRead()).isEqualTo(100);
+        assertThat(statistics.get(2).getWriteCount()).isEqualTo(1);
+        assertThat(statistics.get(2).getBytesWritten()).isEqualTo(200);
+        assertThat(statistics.get(2).getDeleteCount()).isEqualTo(1);
+        assertThat(statistics.get(0).getReadCount()).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+
+    @Mock
+    private FilesystemConfiguration filesystemConfiguration;
+
+    @Mock
+    private BooksDao booksDao;
+
+    @Mock
+    private ReadingSessionsDao readingSessionsDao;
+
+    @InjectMocks
+    private WarmUp warmUp;
+
+    private String libraryFolder;
+
+    @Before
+    public void init() {
+        libraryFolder = System.getProperty(TMPDIR) + "/library-" + System.nanoTime();
+        when(filesystemConfiguration.getUserFolders()).thenAnswer(invocation -> Arrays.asList(new File(libraryFolder)
+            .listFiles(f -> f.isDirectory() && !f.getName().startsWith("."))));
+    }
+
+    @After
+    public void clear() {
+        warmUp.close();
+        FileSystemUtils.deleteRecursively(new File(libraryFolder));
+    }
+
+    @Test
+    public void warmUpMostRecentUsers() {
+        createUserFolder("janedoe", 1_000_000);
+        createUserFolder("johndoe", 3_000_000);
+        createUserFolder("alice", 2_000_000);
+        createUserFolder(".lsm", 4_000_000);
+        warmUp.maxUsers = 2;
+
+        assertThat(warmUp.getRecentUsers()).containsExactly("johndoe", "alice");
+
+        warmUp.warmUp();
+
+        assertThat(warmUp.isReady()).isTrue();
+        assertThat(warmUp.getWarmedUpUsers()).isEqualTo(2);
+        verify(booksDao).warmUpUser("johndoe");
+        verify(readingSessionsDao).warmUpUser("johndoe");
+        verify(booksDao).warmUpUser("alice");
+        verify(booksDao, never()).warmUpUser("janedoe");
+        verify(booksDao, never()).warmUpUser(".lsm");
+    }
+
+    @Test
+    public void reportReadyWhenBudgetRunsOut() throws Exception {
+        createUserFolder("johndoe", 1_000_000);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(booksDao).warmUpUser("johndoe");
+        warmUp.budgetMillis = 50;
+
+        warmUp.warmUp();
+
+        assertThat(warmUp.isReady()).isTrue();
+        assertThat(warmUp.getWarmedUpUsers()).isEqualTo(0);
+        release.countDown();
+    }
+
+    private void createUserFolder(String user, long lastModified) {
+        File booksFolder = new File(libraryFolder + "/" + user + "/books");
+        assertThat(booksFolder.mkdirs()).isTrue();
+        assertThat(booksFolder.setLastModified(lastModified)).isTrue();
+        assertThat(booksFolder.getParentFile().setLastModified(lastModified)).isTrue();
+    }
+
+}
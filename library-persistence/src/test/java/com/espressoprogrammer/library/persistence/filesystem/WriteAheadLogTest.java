@@ -0,0 +1,166 @@
+package com.espressoprogrammer.library.persistence.filesystem;
+
+import com.espressoprogrammer.library.dto.Book;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WriteAheadLogTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Mock
+    private FilesystemConfiguration filesystemConfiguration;
+
+    private WriteAheadLog writeAheadLog;
+
+    @Before
+    public void init() throws Exception {
+        when(filesystemConfiguration.getLibraryFolder()).thenReturn(System.getProperty(TMPDIR)
+            + "/library-"
+            + System.nanoTime());
+        lenient().when(filesystemConfiguration.getUserFolder(anyString()))
+            .thenAnswer(invocation -> filesystemConfiguration.getLibraryFolder() + "/" + invocation.getArgument(0));
+        writeAheadLog = openWriteAheadLog();
+    }
+
+    @After
+    public void clear() throws Exception {
+        writeAheadLog.close();
+        FileSystemUtils.deleteRecursively(new File(filesystemConfiguration.getLibraryFolder()));
+    }
+
+    @Test
+    public void writeUserBooksThroughLog() throws Exception {
+        FilesystemBooksDao booksDao = new FilesystemBooksDao();
+        booksDao.filesystemConfiguration = filesystemConfiguration;
+        booksDao.writeAheadLog = writeAheadLog;
+
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), getTestBook("uuid-3.json"));
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+
+        assertThat(booksDao.getUserBooks(JOHN_DOE_USER))
+            .containsExactly(FilesystemBooksDao.createBook(book1.getUuid(), getTestBook("uuid-3.json")));
+        assertThat(booksDao.getUserBook(JOHN_DOE_USER, book2.getUuid())).isEqualTo(Optional.empty());
+        assertThat(writeAheadLog.getForceCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void replayLogAfterCrash() throws Exception {
+        Path item1 = getItemPath("item-1.json");
+        Path item2 = getItemPath("item-2.json");
+        Files.createDirectories(item1.getParent());
+        writeAheadLog.write(item1, "item 1".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.write(item2, "item 2".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.write(item1, "item 1 updated".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.delete(item2);
+
+        List<Path> logs = getLogs();
+        List<byte[]> logsContent = new ArrayList<>();
+        for(Path log : logs) {
+            logsContent.add(Files.readAllBytes(log));
+        }
+        writeAheadLog.close();
+
+        FileSystemUtils.deleteRecursively(item1.getParent().toFile());
+        Files.createDirectories(item1.getParent());
+        Files.write(item2, "stale item 2".getBytes(StandardCharsets.UTF_8));
+        for(int i = 0; i < logs.size(); i++) {
+            Files.write(logs.get(i), logsContent.get(i));
+        }
+        Files.write(logs.get(logs.size() - 1), new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        writeAheadLog = openWriteAheadLog();
+        assertThat(new String(Files.readAllBytes(item1), StandardCharsets.UTF_8)).isEqualTo("item 1 updated");
+        assertThat(item2.toFile().exists()).isFalse();
+        assertThat(getLogs()).hasSize(1);
+    }
+
+    @Test
+    public void groupCommitConcurrentWrites() throws Exception {
+        Files.createDirectories(getItemPath("item.json").getParent());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for(int i = 0; i < 400; i++) {
+                Path item = getItemPath("item-" + i + ".json");
+                byte[] content = ("item " + i).getBytes(StandardCharsets.UTF_8);
+                writes.add(executor.submit(() -> {
+                    writeAheadLog.write(item, content);
+                    return null;
+                }));
+            }
+            for(Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for(int i = 0; i < 400; i++) {
+            assertThat(new String(Files.readAllBytes(getItemPath("item-" + i + ".json")), StandardCharsets.UTF_8))
+                .isEqualTo("item " + i);
+        }
+        assertThat(writeAheadLog.getForceCount()).isBetween(1L, 400L);
+    }
+
+    @Test
+    public void checkpointDropsAppliedLog() throws Exception {
+        Path item = getItemPath("item-1.json");
+        Files.createDirectories(item.getParent());
+        for(int i = 0; i < 10; i++) {
+            writeAheadLog.write(item, ("item 1 version " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        writeAheadLog.checkpoint();
+
+        assertThat(getLogs()).hasSize(1);
+        assertThat(Files.size(getLogs().get(0))).isZero();
+        assertThat(new String(Files.readAllBytes(item), StandardCharsets.UTF_8)).isEqualTo("item 1 version 9");
+    }
+
+    private WriteAheadLog openWriteAheadLog() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog();
+        writeAheadLog.filesystemConfiguration = filesystemConfiguration;
+        writeAheadLog.open();
+        return writeAheadLog;
+    }
+
+    private Path getItemPath(String fileName) {
+        return Paths.get(filesystemConfiguration.getLibraryFolder(), JOHN_DOE_USER, "items", fileName);
+    }
+
+    private List<Path> getLogs() throws Exception {
+        try(Stream<Path> paths = Files.list(Paths.get(filesystemConfiguration.getLibraryFolder(), ".wal"))) {
+            return paths.sorted().collect(toList());
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WriteBehindBooksDaoTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    private static final Book BOOK_1 = new Book("uuid-1",
+        "isbn10-1",
+        "isbn13-1",
+        "Title 1",
+        Arrays.asList("First1 Last1"),
+        "image-1",
+        100);
+    private static final Book BOOK_2 = new Book("uuid-2",
+        "isbn10-2",
+        "isbn13-2",
+        "Title 2",
+        Arrays.asList("First21 Last21", "First22 Last22"),
+        "image-2",
+        200);
+
+    @Mock
+    private BooksDao booksDao;
+
+    private WriteBehindBooksDao writeBehindBooksDao;
+
+    @After
+    public void close() throws Exception {
+        writeBehindBooksDao.close();
+    }
+
+    @Test
+    public void readQueuedUpdatesAndWriteTheLatestOnClose() throws Exception {
+        writeBehindBooksDao = new WriteBehindBooksDao(booksDao, 10, 10, 60_000);
+        Book firstUpdate = createBook(BOOK_1, "Title 1 revised");
+        Book secondUpdate = createBook(BOOK_1, "Title 1 final");
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).thenReturn(Optional.of(BOOK_1));
+        when(booksDao.getUserBooks(JOHN_DOE_USER, "final")).thenReturn(Arrays.asList());
+        when(booksDao.getUserBooksVersion(JOHN_DOE_USER)).thenReturn(new DataVersion("1", 1000));
+        when(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", secondUpdate)).thenReturn(Optional.of("uuid-1"));
+
+        assertThat(writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", firstUpdate)).contains("uuid-1");
+        assertThat(writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", secondUpdate)).contains("uuid-1");
+
+        assertThat(writeBehindBooksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).contains(secondUpdate);
+        assertThat(writeBehindBooksDao.getUserBooks(JOHN_DOE_USER, "final")).containsExactly(secondUpdate);
+        assertThat(writeBehindBooksDao.getUserBooksVersion(JOHN_DOE_USER).getTag()).startsWith("1.w");
+        verify(booksDao, never()).updateUserBook(anyString(), anyString(), any());
+        WriteBehindStatistics statistics = writeBehindBooksDao.getStatistics();
+        assertThat(statistics.getDepth()).isEqualTo(1);
+        assertThat(statistics.getEnqueuedCount()).isEqualTo(2);
+        assertThat(statistics.getCoalescedCount()).isEqualTo(1);
+
+        writeBehindBooksDao.close();
+
+        verify(booksDao).updateUserBook(JOHN_DOE_USER, "uuid-1", secondUpdate);
+        statistics = writeBehindBooksDao.getStatistics();
+        assertThat(statistics.getDepth()).isEqualTo(0);
+        assertThat(statistics.getWrittenCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void hideQueuedDeletes() throws Exception {
+        writeBehindBooksDao = new WriteBehindBooksDao(booksDao, 10, 10, 60_000);
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).thenReturn(Optional.of(BOOK_1));
+        when(booksDao.getUserBooks(JOHN_DOE_USER, null)).thenReturn(Arrays.asList(BOOK_1, BOOK_2));
+        when(booksDao.deleteUserBook(JOHN_DOE_USER, "uuid-1")).thenReturn(Optional.of("uuid-1"));
+
+        assertThat(writeBehindBooksDao.deleteUserBook(JOHN_DOE_USER, "uuid-1")).contains("uuid-1");
+
+        Page<Book> page = writeBehindBooksDao.getUserBooks(JOHN_DOE_USER, null, new PageRequest(null, 10, true));
+        assertThat(page.getItems()).containsExactly(BOOK_2);
+        assertThat(page.getTotalCount()).isEqualTo(1);
+        assertThat(writeBehindBooksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).isEmpty();
+        assertThat(writeBehindBooksDao.getUserBookVersion(JOHN_DOE_USER, "uuid-1")).isEmpty();
+
+        writeBehindBooksDao.close();
+
+        verify(booksDao).deleteUserBook(JOHN_DOE_USER, "uuid-1");
+    }
+
+    @Test
+    public void doNotBringBackBooksDeletedDuringUpdate() throws Exception {
+        writeBehindBooksDao = new WriteBehindBooksDao(booksDao, 10, 10, 60_000);
+        CountDownLatch checking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).thenAnswer(invocation -> {
+            if(reads.getAndIncrement() == 0) {
+                checking.countDown();
+                release.await();
+            }
+            return Optional.of(BOOK_1);
+        });
+
+        CompletableFuture<Optional<String>> update = CompletableFuture.supplyAsync(() ->
+            writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", createBook(BOOK_1, "Title 1 revised")));
+        checking.await();
+        CompletableFuture<Optional<String>> delete = CompletableFuture.supplyAsync(() ->
+            writeBehindBooksDao.deleteUserBook(JOHN_DOE_USER, "uuid-1"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(update.get(10, TimeUnit.SECONDS)).contains("uuid-1");
+        assertThat(delete.get(10, TimeUnit.SECONDS)).contains("uuid-1");
+        assertThat(writeBehindBooksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).isEmpty();
+    }
+
+    @Test
+    public void doNotQueueChangesOfMissingBooks() {
+        writeBehindBooksDao = new WriteBehindBooksDao(booksDao, 10, 10, 60_000);
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-3")).thenReturn(Optional.empty());
+
+        assertThat(writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-3", BOOK_1)).isEmpty();
+        assertThat(writeBehindBooksDao.deleteUserBook(JOHN_DOE_USER, "uuid-3")).isEmpty();
+        assertThat(writeBehindBooksDao.getStatistics().getDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void writeFullBatches() {
+        writeBehindBooksDao = new WriteBehindBooksDao(booksDao, 10, 2, 60_000);
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-1")).thenReturn(Optional.of(BOOK_1));
+        when(booksDao.getUserBook(JOHN_DOE_USER, "uuid-2")).thenReturn(Optional.of(BOOK_2));
+        when(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", BOOK_1)).thenReturn(Optional.of("uuid-1"));
+        when(booksDao.updateUserBook(JOHN_DOE_USER, "uuid-2", BOOK_2)).thenReturn(Optional.of("uuid-2"));
+
+        writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-1", BOOK_1);
+        writeBehindBooksDao.updateUserBook(JOHN_DOE_USER, "uuid-2", BOOK_2);
+
+        verify(booksDao, timeout(5000)).updateUserBook(JOHN_DOE_USER, "uuid-1", BOOK_1);
+        verify(booksDao, timeout(5000)).updateUserBook(JOHN_DOE_USER, "uuid-2", BOOK_2);
+    }
+
+    private static Book createBook(Book book, String title) {
+        return new Book(book.getUuid(),
+            book.getIsbn10(),
+            book.getIsbn13(),
+            title,
+            book.getAuthors(),
+            book.getImage(),
+            book.getPages());
+    }
+
+}
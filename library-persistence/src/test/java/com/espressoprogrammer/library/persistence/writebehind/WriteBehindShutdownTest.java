@@ -0,0 +1,73 @@
+package com.espressoprogrammer.library.persistence.writebehind;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.persistence.BooksDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteBehindShutdownTest {
+    private static final String TMPDIR = "java.io.tmpdir";
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    private String libraryFolder;
+
+    @Before
+    public void init() {
+        libraryFolder = System.getProperty(TMPDIR) + "/library-" + System.nanoTime();
+    }
+
+    @After
+    public void clear() {
+        FileSystemUtils.deleteRecursively(new File(libraryFolder));
+    }
+
+    @Test
+    public void drainQueuedChangesWhenContextCloses() throws Exception {
+        AnnotationConfigApplicationContext context = createContext();
+        BooksDao booksDao = context.getBean(BooksDao.class);
+        assertThat(booksDao).isInstanceOf(WriteBehindBooksDao.class);
+
+        Book book1 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-1.json"));
+        Book book2 = booksDao.createUserBook(JOHN_DOE_USER, getTestBook("uuid-2.json"));
+        booksDao.updateUserBook(JOHN_DOE_USER, book1.getUuid(), getTestBook("uuid-3.json"));
+        booksDao.deleteUserBook(JOHN_DOE_USER, book2.getUuid());
+        assertThat(((WriteBehindBooksDao) booksDao).getStatistics().getDepth()).isEqualTo(2);
+
+        context.close();
+
+        Path booksFolder = Paths.get(libraryFolder, JOHN_DOE_USER, "books");
+        assertThat(new String(Files.readAllBytes(booksFolder.resolve(book1.getUuid() + ".json")), "UTF-8"))
+            .contains("Title 3");
+        assertThat(booksFolder.resolve(book2.getUuid() + ".json")).doesNotExist();
+    }
+
+    private AnnotationConfigApplicationContext createContext() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("filesystem.dao.rootfolder", libraryFolder);
+        properties.put("filesystem.dao.writebehind.enabled", "true");
+        properties.put("filesystem.dao.writebehind.flushmillis", "60000");
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(PropertySourcesPlaceholderConfigurer.class);
+        context.scan("com.espressoprogrammer.library.persistence");
+        context.refresh();
+        return context;
+    }
+
+}
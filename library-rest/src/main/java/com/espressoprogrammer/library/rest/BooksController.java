@@ -1,13 +1,21 @@
 package com.espressoprogrammer.library.rest;
 
 import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.BookImportResult;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.service.BooksService;
 import com.espressoprogrammer.library.service.BooksException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,25 +25,59 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class BooksController {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     @Autowired
     private BooksService booksService;
 
     @Autowired
     private HttpStatusConverter httpStatusConverter;
 
+    @Autowired
+    private NotModifiedChecker notModifiedChecker;
+
+    @Autowired
+    private Pagination pagination;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping(value = "/users/{user}/books")
     public ResponseEntity<List<Book>> getUserBooks(@PathVariable("user") String user,
-                                                   @RequestParam(value = "searchText", required = false) String searchText)  {
+                                                   @RequestParam(value = "searchText", required = false) String searchText,
+                                                   @RequestParam(value = "limit", required = false) Integer limit,
+                                                   @RequestParam(value = "cursor", required = false) String cursor,
+                                                   @RequestParam(value = "totalCount", defaultValue = "false") boolean totalCount,
+                                                   WebRequest webRequest)  {
         try {
             logger.debug("Look for books for user {}", user);
 
+            if(!pagination.isValid(limit)) {
+                return new ResponseEntity(HttpStatus.BAD_REQUEST);
+            }
+
+            if(notModifiedChecker.isNotModified(webRequest, booksService.getUserBooksVersion(user))) {
+                return null;
+            }
+
+            Optional<PageRequest> pageRequest = pagination.getPageRequest(limit, cursor, totalCount);
+            if(pageRequest.isPresent()) {
+                Page<Book> page = booksService.getUserBooks(user, searchText, pageRequest.get());
+                return new ResponseEntity<>(page.getItems(), pagination.getHeaders(page), HttpStatus.OK);
+            }
+
             List<Book> userBooks = booksService.getUserBooks(user, searchText);
             return new ResponseEntity<>(userBooks, HttpStatus.OK);
         } catch (Exception ex) {
@@ -63,20 +105,48 @@ public class BooksController {
         }
     }
 
+    /**
+     * Imports a JSON array or an NDJSON stream of books, parsing them one at a time as the service consumes them.
+     */
+    @PostMapping(value = "/users/{user}/books/import",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<List<BookImportResult>> importUserBooks(@PathVariable("user") String user,
+                                                                  InputStream body)  {
+        try(MappingIterator<Book> books = objectMapper.readerFor(Book.class).readValues(body)) {
+            logger.debug("Import books for user {}", user);
+
+            List<BookImportResult> results = booksService.importUserBooks(user, books);
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        } catch (Exception ex) {
+            logger.error("Error on importing books", ex);
+            return new ResponseEntity(isMalformed(ex) ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GetMapping(value = "/users/{user}/books/{uuid}")
-    public ResponseEntity<Book> getUserBook(@PathVariable("user") String user,
-                                            @PathVariable("uuid") String uuid)  {
+    public CompletableFuture<ResponseEntity<Book>> getUserBook(@PathVariable("user") String user,
+                                                               @PathVariable("uuid") String uuid,
+                                                               WebRequest webRequest)  {
         try {
             logger.debug("Look for book for user {} with uuid {} ", user, uuid);
 
-            Book book = booksService.getUserBook(user, uuid);
-            return new ResponseEntity(book, HttpStatus.OK);
-        } catch (BooksException ex) {
-            logger.error("Error on looking for books", ex);
-            return new ResponseEntity(httpStatusConverter.from(ex));
+            if(notModifiedChecker.isNotModified(webRequest, booksService.getUserBookVersion(user, uuid))) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return booksService.getUserBookAsync(user, uuid)
+                .thenApply(book -> new ResponseEntity<>(book, HttpStatus.OK))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    logger.error("Error on looking for books", cause);
+                    if(cause instanceof BooksException) {
+                        return new ResponseEntity<>(httpStatusConverter.from((BooksException) cause));
+                    }
+                    return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+                });
         } catch (Exception ex) {
             logger.error("Error on looking for books", ex);
-            return new ResponseEntity(HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
@@ -116,4 +186,13 @@ public class BooksController {
         }
     }
 
+    /**
+     * Malformed books surface while iterating, wrapped in runtime exceptions.
+     */
+    private static boolean isMalformed(Exception ex) {
+        return ex instanceof JsonProcessingException
+            || ex instanceof RuntimeJsonMappingException
+            || ex.getCause() instanceof JsonProcessingException;
+    }
+
 }
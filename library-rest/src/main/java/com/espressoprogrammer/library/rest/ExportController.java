@@ -0,0 +1,95 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.service.BooksService;
+import com.espressoprogrammer.library.service.ReadingSessionsService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exports the library of a user as NDJSON, one <code>{"type": ..., "item": ...}</code> line per book and then per
+ * reading session.
+ * <p>
+ * Items are read lazily from the storage and written as they are read; the generator buffers only a few KB
+ * and writes block while the client is slow to read, so memory stays the same whatever the library size.
+ */
+@RestController
+public class ExportController {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String BOOK_TYPE = "book";
+    static final String READING_SESSION_TYPE = "reading-session";
+
+    private static final int FLUSH_ITEMS = 100;
+
+    @Autowired
+    private BooksService booksService;
+
+    @Autowired
+    private ReadingSessionsService readingSessionsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping(value = "/users/{user}/export", produces = BooksController.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUser(@PathVariable("user") String user) {
+        logger.debug("Export library for user {}", user);
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentType(MediaType.parseMediaType(BooksController.APPLICATION_NDJSON_VALUE));
+        httpHeaders.set(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"%s.ndjson\"", user));
+        return new ResponseEntity<>(out -> export(user, out), httpHeaders, HttpStatus.OK);
+    }
+
+    private void export(String user, OutputStream out) throws IOException {
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // lines are separated by the newline written after each item, not by the default space
+            generator.setRootValueSeparator(null);
+
+            try(Stream<Book> books = booksService.streamUserBooks(user)) {
+                writeItems(generator, BOOK_TYPE, books.iterator());
+            }
+            try(Stream<ReadingSession> readingSessions = readingSessionsService.streamUserReadingSessions(user)) {
+                writeItems(generator, READING_SESSION_TYPE, readingSessions.iterator());
+            }
+        } catch(IOException | UncheckedIOException ex) {
+            logger.error("Error on exporting library", ex);
+            throw ex;
+        }
+    }
+
+    private void writeItems(JsonGenerator generator, String type, Iterator<?> items) throws IOException {
+        int count = 0;
+        while(items.hasNext()) {
+            generator.writeStartObject();
+            generator.writeStringField("type", type);
+            generator.writeObjectField("item", items.next());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if(++count % FLUSH_ITEMS == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.persistence.DataVersion;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+
+/**
+ * Answers conditional GET requests from the data version alone, before the data is loaded.
+ * <p>
+ * When the request is not a match, ETag and Last-Modified are still added to the response so the client can
+ * send them back next time.
+ */
+@Service
+public class NotModifiedChecker {
+
+    public boolean isNotModified(WebRequest webRequest, DataVersion version) {
+        return version != null && webRequest.checkNotModified(version.getTag(), version.getLastModified());
+    }
+
+    public boolean isNotModified(WebRequest webRequest, Optional<DataVersion> version) {
+        return version != null && version.isPresent() && isNotModified(webRequest, version.get());
+    }
+
+}
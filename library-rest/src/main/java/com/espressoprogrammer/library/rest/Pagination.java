@@ -0,0 +1,55 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Optional;
+
+/**
+ * Maps the limit and cursor query parameters to a page request and the page back to response headers.
+ * <p>
+ * Requests without limit and cursor are not paged. The next page is linked from the <code>Link</code> header
+ * and the total count, when asked for, is sent in the <code>X-Total-Count</code> header.
+ */
+@Service
+public class Pagination {
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    @Value(value = "${rest.page.defaultlimit:50}")
+    int defaultLimit = 50;
+
+    @Value(value = "${rest.page.maxlimit:1000}")
+    int maxLimit = 1000;
+
+    public boolean isValid(Integer limit) {
+        return limit == null || limit > 0;
+    }
+
+    public Optional<PageRequest> getPageRequest(Integer limit, String cursor, boolean totalCount) {
+        if(limit == null && cursor == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new PageRequest(cursor, Math.min(limit != null ? limit : defaultLimit, maxLimit), totalCount));
+    }
+
+    public HttpHeaders getHeaders(Page<?> page) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if(page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.getNextCursor())
+                .build()
+                .toUriString();
+            httpHeaders.add(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next));
+        }
+        if(page.getTotalCount() != null) {
+            httpHeaders.add(TOTAL_COUNT_HEADER, String.valueOf(page.getTotalCount()));
+        }
+        return httpHeaders;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.persistence.filesystem.WarmUp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Tells load balancers whether to send traffic: not before the startup warm-up is over, when it is enabled.
+ */
+@RestController
+public class ReadinessController {
+
+    @Autowired(required = false)
+    private WarmUp warmUp;
+
+    @GetMapping("/readiness")
+    public ResponseEntity<Void> getReadiness() {
+        if(warmUp != null && !warmUp.isReady()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+}
@@ -3,6 +3,8 @@ package com.espressoprogrammer.library.rest;
 import com.espressoprogrammer.library.dto.DateReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSessionProgress;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.service.BooksException;
 import com.espressoprogrammer.library.service.ReadingSessionsException;
 import com.espressoprogrammer.library.service.ReadingSessionsService;
@@ -18,9 +20,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 public class ReadingSessionsController {
@@ -32,12 +37,36 @@ public class ReadingSessionsController {
     @Autowired
     private HttpStatusConverter httpStatusConverter;
 
+    @Autowired
+    private NotModifiedChecker notModifiedChecker;
+
+    @Autowired
+    private Pagination pagination;
+
     @GetMapping(value = "/users/{user}/books/{bookUuid}/reading-sessions")
     public ResponseEntity<List<ReadingSession>> getUserReadingSessions(@PathVariable("user") String user,
-                                                                       @PathVariable("bookUuid") String bookUuid)  {
+                                                                       @PathVariable("bookUuid") String bookUuid,
+                                                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                                       @RequestParam(value = "totalCount", defaultValue = "false") boolean totalCount,
+                                                                       WebRequest webRequest)  {
         try {
             logger.debug("Look for reading sessions for user {}", user);
 
+            if(!pagination.isValid(limit)) {
+                return new ResponseEntity(HttpStatus.BAD_REQUEST);
+            }
+
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionsVersion(user, bookUuid))) {
+                return null;
+            }
+
+            Optional<PageRequest> pageRequest = pagination.getPageRequest(limit, cursor, totalCount);
+            if(pageRequest.isPresent()) {
+                Page<ReadingSession> page = readingSessionsService.getUserReadingSessions(user, bookUuid, pageRequest.get());
+                return new ResponseEntity<>(page.getItems(), pagination.getHeaders(page), HttpStatus.OK);
+            }
+
             List<ReadingSession> userReadingSessions = readingSessionsService.getUserReadingSessions(user, bookUuid);
             return new ResponseEntity<>(userReadingSessions, HttpStatus.OK);
         } catch (Exception ex) {
@@ -48,10 +77,15 @@ public class ReadingSessionsController {
 
     @GetMapping(value = "/users/{user}/books/{bookUuid}/current-reading-session")
     public ResponseEntity<ReadingSession> getUserCurrentReadingSession(@PathVariable("user") String user,
-                                                                       @PathVariable("bookUuid") String bookUuid)  {
+                                                                       @PathVariable("bookUuid") String bookUuid,
+                                                                       WebRequest webRequest)  {
         try {
             logger.debug("Look for current reading sessions for user {}", user);
 
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionsVersion(user, bookUuid))) {
+                return null;
+            }
+
             ReadingSession currentReadingSession = readingSessionsService.getUserCurrentReadingSession(user, bookUuid);
             return new ResponseEntity<>(currentReadingSession, HttpStatus.OK);
         } catch (BooksException ex) {
@@ -95,10 +129,15 @@ public class ReadingSessionsController {
     @GetMapping(value = "/users/{user}/books/{bookUuid}/reading-sessions/{uuid}")
     public ResponseEntity<ReadingSession> getUserReadingSession(@PathVariable("user") String user,
                                                                 @PathVariable("bookUuid") String bookUuid,
-                                                                @PathVariable("uuid") String uuid)  {
+                                                                @PathVariable("uuid") String uuid,
+                                                                WebRequest webRequest)  {
         try {
             logger.debug("Look for reading session for user {} with uuid {} ", user, uuid);
 
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionVersion(user, bookUuid, uuid))) {
+                return null;
+            }
+
             ReadingSession readingSession = readingSessionsService.getUserReadingSession(user, bookUuid, uuid);
             return new ResponseEntity(readingSession, HttpStatus.OK);
         } catch (ReadingSessionsException ex) {
@@ -132,10 +171,15 @@ public class ReadingSessionsController {
     @GetMapping(value = "/users/{user}/books/{bookUuid}/reading-sessions/{uuid}/date-reading-sessions")
     public ResponseEntity<List<DateReadingSession>> getDateReadingSessions(@PathVariable("user") String user,
                                                                            @PathVariable("bookUuid") String bookUuid,
-                                                                           @PathVariable("uuid") String uuid)  {
+                                                                           @PathVariable("uuid") String uuid,
+                                                                           WebRequest webRequest)  {
         try {
             logger.debug("Look for date reading sessions for user {} with uuid {}", user, uuid);
 
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionVersion(user, bookUuid, uuid))) {
+                return null;
+            }
+
             ReadingSession optionalReadingSession = readingSessionsService.getUserReadingSession(user, bookUuid, uuid);
             return new ResponseEntity<>(optionalReadingSession.getDateReadingSessions(), HttpStatus.OK);
         } catch (ReadingSessionsException ex) {
@@ -174,10 +218,15 @@ public class ReadingSessionsController {
     public ResponseEntity<DateReadingSession> getDateReadingSession(@PathVariable("user") String user,
                                                                     @PathVariable("bookUuid") String bookUuid,
                                                                     @PathVariable("uuid") String uuid,
-                                                                    @PathVariable("date") String date)  {
+                                                                    @PathVariable("date") String date,
+                                                                    WebRequest webRequest)  {
         try {
             logger.debug("Look for date reading session for user {} with uuid {} and date {}", user, uuid, date);
 
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionVersion(user, bookUuid, uuid))) {
+                return null;
+            }
+
             DateReadingSession dateReadingSession = readingSessionsService.getDateReadingSession(user, bookUuid, uuid, date);
             return new ResponseEntity<>(dateReadingSession, HttpStatus.OK);
         } catch (ReadingSessionsException ex) {
@@ -233,10 +282,15 @@ public class ReadingSessionsController {
     @GetMapping(value = "/users/{user}/books/{bookUuid}/reading-sessions/{uuid}/progress")
     public ResponseEntity<ReadingSessionProgress> getUserReadingSessionProgress(@PathVariable("user") String user,
                                                                                 @PathVariable("bookUuid") String bookUuid,
-                                                                                @PathVariable("uuid") String uuid)  {
+                                                                                @PathVariable("uuid") String uuid,
+                                                                                WebRequest webRequest)  {
         try {
             logger.debug("Look for reading session progress for user {} with uuid {} ", user, uuid);
 
+            if(notModifiedChecker.isNotModified(webRequest, readingSessionsService.getUserReadingSessionProgressVersion(user, bookUuid, uuid))) {
+                return null;
+            }
+
             ReadingSessionProgress readingSessionProgress = readingSessionsService.getUserReadingSessionProgress(user, bookUuid, uuid);
             return new ResponseEntity<>(readingSessionProgress, HttpStatus.OK);
         } catch (BooksException ex) {
@@ -1,6 +1,10 @@
 package com.espressoprogrammer.library.rest;
 
 import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.BookImportResult;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.service.BooksService;
 import com.espressoprogrammer.library.service.BooksException;
 import com.espressoprogrammer.library.service.BooksException.Reason;
@@ -8,6 +12,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -16,22 +21,37 @@ import org.springframework.http.MediaType;
 import org.springframework.restdocs.JUnitRestDocumentation;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBookJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
+import static org.springframework.restdocs.headers.HeaderDocumentation.requestHeaders;
 import static org.springframework.restdocs.headers.HeaderDocumentation.responseHeaders;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.documentationConfiguration;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.*;
 import static org.springframework.restdocs.payload.PayloadDocumentation.*;
 import static org.springframework.restdocs.request.RequestDocumentation.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @RunWith(SpringRunner.class)
@@ -90,6 +110,46 @@ public class BooksControllerTest {
                 )));
     }
 
+    @Test
+    public void getUserBooksPage() throws Exception {
+        Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
+        PageRequest pageRequest = new PageRequest("0a3b7c0e-2c1e-4f3a-9a51-6a4a58e6d1c2", 1, true);
+        when(booksService.getUserBooks(eq(JOHN_DOE_USER), eq(null), any(PageRequest.class)))
+            .thenReturn(new Page<>(Collections.singletonList(book), book.getUuid(), 2L));
+
+        this.mockMvc.perform(get("/users/{user}/books?limit={limit}&cursor={cursor}&totalCount={totalCount}",
+                JOHN_DOE_USER, pageRequest.getLimit(), pageRequest.getCursor(), pageRequest.isTotalCount()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].uuid", is(book.getUuid())))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=" + book.getUuid())))
+            .andExpect(header().string(Pagination.TOTAL_COUNT_HEADER, "2"))
+            .andDo(document("{class-name}/{method-name}",
+                pathParameters(
+                    parameterWithName("user").description("User id")),
+                requestParameters(
+                    parameterWithName("limit")
+                        .description("Maximum number of books returned, books are sorted by uuid"),
+                    parameterWithName("cursor")
+                        .description("Uuid of the last book of the previous page (Optional)").optional(),
+                    parameterWithName("totalCount")
+                        .description("When true, the total number of books is returned (Optional)").optional()),
+                responseHeaders(
+                    headerWithName(HttpHeaders.LINK).description("Link to the next page, missing on the last page"),
+                    headerWithName(Pagination.TOTAL_COUNT_HEADER).description("Total number of books, when asked for"))));
+
+        ArgumentCaptor<PageRequest> captor = ArgumentCaptor.forClass(PageRequest.class);
+        verify(booksService).getUserBooks(eq(JOHN_DOE_USER), eq(null), captor.capture());
+        assertThat(captor.getValue().getCursor()).isEqualTo(pageRequest.getCursor());
+        assertThat(captor.getValue().getLimit()).isEqualTo(pageRequest.getLimit());
+        assertThat(captor.getValue().isTotalCount()).isTrue();
+    }
+
+    @Test
+    public void getUserBooksPageWithInvalidLimit() throws Exception {
+        this.mockMvc.perform(get("/users/{user}/books?limit={limit}", JOHN_DOE_USER, 0))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void createUserBook() throws Exception {
         Book bookRequest = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695-request.json");
@@ -148,13 +208,62 @@ public class BooksControllerTest {
             .andDo(document("{class-name}/{method-name}"));
     }
 
+    @Test
+    public void importUserBooks() throws Exception {
+        when(booksService.importUserBooks(eq(JOHN_DOE_USER), any())).thenAnswer(invocation -> readImportResults(invocation.getArgument(1)));
+
+        this.mockMvc.perform(post("/users/{user}/books/import", JOHN_DOE_USER)
+                .content("[" + getTestBookJson("1e4014b1-a551-4310-9f30-590c3140b695-request.json") + ","
+                    + getTestBookJson("1e4014b1-a551-4310-9f30-590c3140b695-invalid-request.json") + "]")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].index", is(0)))
+            .andExpect(jsonPath("$[0].uuid", is("uuid-0")))
+            .andExpect(jsonPath("$[1].index", is(1)))
+            .andExpect(jsonPath("$[1].error", is(Reason.BOOK_INVALID.name())))
+            .andDo(document("{class-name}/{method-name}",
+                pathParameters(parameterWithName("user").description("User id")),
+                responseFields(
+                    fieldWithPath("[].index").description("Position of the book in the request"),
+                    fieldWithPath("[].uuid").description("UUID of the imported book (missing on error)").optional(),
+                    fieldWithPath("[].error").description("Reason the book was not imported: BOOK_INVALID or BOOK_ALREADY_EXISTS (missing on success)").optional()
+                )));
+    }
+
+    @Test
+    public void importUserBooksNdjson() throws Exception {
+        when(booksService.importUserBooks(eq(JOHN_DOE_USER), any())).thenAnswer(invocation -> readImportResults(invocation.getArgument(1)));
+
+        String book = getTestBookJson("1e4014b1-a551-4310-9f30-590c3140b695-request.json").replaceAll("\\s*\\n\\s*", "");
+        this.mockMvc.perform(post("/users/{user}/books/import", JOHN_DOE_USER)
+                .content(book + "\n" + book + "\n" + book + "\n")
+                .contentType(BooksController.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()", is(3)))
+            .andExpect(jsonPath("$[2].uuid", is("uuid-2")))
+            .andDo(document("{class-name}/{method-name}"));
+    }
+
+    @Test
+    public void importMalformedUserBooks() throws Exception {
+        when(booksService.importUserBooks(eq(JOHN_DOE_USER), any())).thenAnswer(invocation -> readImportResults(invocation.getArgument(1)));
+
+        this.mockMvc.perform(post("/users/{user}/books/import", JOHN_DOE_USER)
+                .content("[{\"title\": \"Title\", \"pages\": 100}, {\"title\": ")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getUserBook() throws Exception {
         String uuid = "1e4014b1-a551-4310-9f30-590c3140b695";
         Book book = getTestBook(uuid + ".json");
-        when(booksService.getUserBook(JOHN_DOE_USER, uuid)).thenReturn(book);
+        when(booksService.getUserBookAsync(JOHN_DOE_USER, uuid)).thenReturn(CompletableFuture.completedFuture(book));
 
-        this.mockMvc.perform(get("/users/{user}/books/{uuid}", JOHN_DOE_USER, uuid))
+        MvcResult mvcResult = this.mockMvc.perform(get("/users/{user}/books/{uuid}", JOHN_DOE_USER, uuid))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("uuid", is("1e4014b1-a551-4310-9f30-590c3140b695")))
@@ -179,12 +288,49 @@ public class BooksControllerTest {
                 )));
     }
 
+    @Test
+    public void getNotModifiedUserBook() throws Exception {
+        String uuid = "1e4014b1-a551-4310-9f30-590c3140b695";
+        when(booksService.getUserBookVersion(JOHN_DOE_USER, uuid)).thenReturn(Optional.of(new DataVersion("16b1f2c3a4-3", 1546300800000L)));
+
+        this.mockMvc.perform(get("/users/{user}/books/{uuid}", JOHN_DOE_USER, uuid)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"16b1f2c3a4-3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"16b1f2c3a4-3\""))
+            .andDo(document("{class-name}/{method-name}",
+                requestHeaders(
+                    headerWithName(HttpHeaders.IF_NONE_MATCH).description("ETag of the book returned by a previous request"))));
+
+        verify(booksService, never()).getUserBookAsync(JOHN_DOE_USER, uuid);
+    }
+
+    @Test
+    public void getModifiedUserBooks() throws Exception {
+        when(booksService.getUserBooksVersion(JOHN_DOE_USER)).thenReturn(new DataVersion("16b1f2c3a4-4", 1546300800000L));
+        when(booksService.getUserBooks(JOHN_DOE_USER, null)).thenReturn(new ArrayList<>());
+
+        this.mockMvc.perform(get("/users/{user}/books", JOHN_DOE_USER)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"16b1f2c3a4-3\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"16b1f2c3a4-4\""))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+
+        this.mockMvc.perform(get("/users/{user}/books", JOHN_DOE_USER)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 01 Jan 2019 00:00:00 GMT"))
+            .andExpect(status().isNotModified());
+    }
+
     @Test
     public void getMissingUserBook() throws Exception {
         String uuid = "missing-uuid-1";
-        when(booksService.getUserBook(JOHN_DOE_USER, uuid)).thenThrow(new BooksException(Reason.BOOK_NOT_FOUND));
-
-        this.mockMvc.perform(get("/users/{user}/books/{uuid}", JOHN_DOE_USER, uuid))
+        CompletableFuture<Book> missingBook = new CompletableFuture<>();
+        missingBook.completeExceptionally(new CompletionException(new BooksException(Reason.BOOK_NOT_FOUND)));
+        when(booksService.getUserBookAsync(JOHN_DOE_USER, uuid)).thenReturn(missingBook);
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/users/{user}/books/{uuid}", JOHN_DOE_USER, uuid))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
             .andExpect(status().isNotFound())
             .andDo(document("{class-name}/{method-name}"));
     }
@@ -285,4 +431,15 @@ public class BooksControllerTest {
                 .andDo(document("{class-name}/{method-name}"));
     }
 
+    private static List<BookImportResult> readImportResults(Iterator<Book> books) {
+        List<BookImportResult> results = new ArrayList<>();
+        for(int index = 0; books.hasNext(); index++) {
+            Book book = books.next();
+            results.add(book.getPages() <= 0
+                ? new BookImportResult(index, null, Reason.BOOK_INVALID.name())
+                : new BookImportResult(index, "uuid-" + index, null));
+        }
+        return results;
+    }
+
 }
@@ -0,0 +1,93 @@
+package com.espressoprogrammer.library.rest;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBookJson;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "filesystem.dao.rootfolder=${java.io.tmpdir}/library-write-behind-test",
+    "filesystem.dao.writebehind.enabled=true",
+    "filesystem.dao.writebehind.flushmillis=60000"})
+public class BooksWriteBehindTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context).build();
+    }
+
+    @AfterClass
+    public static void clear() {
+        FileSystemUtils.deleteRecursively(new File(System.getProperty("java.io.tmpdir"), "library-write-behind-test"));
+    }
+
+    @Test
+    public void getUserBookAfterUpdate() throws Exception {
+        String location = createUserBook();
+        this.mockMvc.perform(put(location)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(getTestBookJson("uuid-2.json")))
+            .andExpect(status().isNoContent());
+
+        MvcResult mvcResult = this.mockMvc.perform(get(location))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("title", is("Title 2")));
+    }
+
+    @Test
+    public void getUserBookAfterDelete() throws Exception {
+        String location = createUserBook();
+        this.mockMvc.perform(delete(location))
+            .andExpect(status().isNoContent());
+
+        MvcResult mvcResult = this.mockMvc.perform(get(location))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isNotFound());
+    }
+
+    private String createUserBook() throws Exception {
+        return this.mockMvc.perform(post("/users/{user}/books", JOHN_DOE_USER)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(getTestBookJson("uuid-1.json")))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.LOCATION);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.service.BooksService;
+import com.espressoprogrammer.library.service.ReadingSessionsService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.restdocs.JUnitRestDocumentation;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
+import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReadingSession;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.documentationConfiguration;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
+import static org.springframework.restdocs.request.RequestDocumentation.pathParameters;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment= SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ExportControllerTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    @Rule
+    public JUnitRestDocumentation restDocumentation = new JUnitRestDocumentation("target/generated-snippets");
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private BooksService booksService;
+
+    @MockBean
+    private ReadingSessionsService readingSessionsService;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp(){
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+            .apply(documentationConfiguration(this.restDocumentation))
+            .build();
+    }
+
+    @Test
+    public void exportUser() throws Exception {
+        Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
+        ReadingSession readingSession = getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695-one-reading.json");
+        AtomicBoolean booksClosed = new AtomicBoolean();
+        AtomicBoolean readingSessionsClosed = new AtomicBoolean();
+        when(booksService.streamUserBooks(JOHN_DOE_USER))
+            .thenReturn(Stream.of(book).onClose(() -> booksClosed.set(true)));
+        when(readingSessionsService.streamUserReadingSessions(JOHN_DOE_USER))
+            .thenReturn(Stream.of(readingSession).onClose(() -> readingSessionsClosed.set(true)));
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/users/{user}/export", JOHN_DOE_USER))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String[] lines = this.mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(BooksController.APPLICATION_NDJSON_VALUE))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"johndoe.ndjson\""))
+            .andDo(document("{class-name}/{method-name}",
+                pathParameters(parameterWithName("user").description("User id"))))
+            .andReturn()
+            .getResponse()
+            .getContentAsString()
+            .split("\n");
+
+        assertThat(lines).hasSize(2).allMatch(line -> line.startsWith("{"));
+        JsonNode bookLine = objectMapper.readTree(lines[0]);
+        assertThat(bookLine.get("type").asText()).isEqualTo(ExportController.BOOK_TYPE);
+        assertThat(objectMapper.treeToValue(bookLine.get("item"), Book.class)).isEqualTo(book);
+        JsonNode readingSessionLine = objectMapper.readTree(lines[1]);
+        assertThat(readingSessionLine.get("type").asText()).isEqualTo(ExportController.READING_SESSION_TYPE);
+        assertThat(objectMapper.treeToValue(readingSessionLine.get("item"), ReadingSession.class)).isEqualTo(readingSession);
+        assertThat(booksClosed).isTrue();
+        assertThat(readingSessionsClosed).isTrue();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.espressoprogrammer.library.rest;
+
+import com.espressoprogrammer.library.persistence.filesystem.WarmUp;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.restdocs.JUnitRestDocumentation;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
+import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.documentationConfiguration;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment= SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReadinessControllerTest {
+
+    @Rule
+    public JUnitRestDocumentation restDocumentation = new JUnitRestDocumentation("target/generated-snippets");
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @MockBean
+    private WarmUp warmUp;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp(){
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+            .apply(documentationConfiguration(this.restDocumentation))
+            .build();
+    }
+
+    @Test
+    public void getReadiness() throws Exception {
+        when(warmUp.isReady()).thenReturn(true);
+
+        this.mockMvc.perform(get("/readiness"))
+            .andExpect(status().isOk())
+            .andDo(document("{class-name}/{method-name}"));
+    }
+
+    @Test
+    public void getReadinessDuringWarmUp() throws Exception {
+        when(warmUp.isReady()).thenReturn(false);
+
+        this.mockMvc.perform(get("/readiness"))
+            .andExpect(status().isServiceUnavailable())
+            .andDo(document("{class-name}/{method-name}"));
+    }
+
+}
@@ -3,6 +3,7 @@ package com.espressoprogrammer.library.rest;
 import com.espressoprogrammer.library.dto.DateReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSessionProgress;
+import com.espressoprogrammer.library.persistence.DataVersion;
 import com.espressoprogrammer.library.service.ReadingSessionsException;
 import com.espressoprogrammer.library.service.ReadingSessionsService;
 import org.junit.Before;
@@ -22,6 +23,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Optional;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestDateReadingSession;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestDateReadingSessionJson;
@@ -29,6 +31,8 @@ import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReading
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReadingSessionJson;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReadingSessionProgress;
 import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.restdocs.headers.HeaderDocumentation.headerWithName;
 import static org.springframework.restdocs.headers.HeaderDocumentation.responseHeaders;
@@ -102,6 +106,33 @@ public class ReadingSessionsControllerTest {
                 )));
     }
 
+    @Test
+    public void getNotModifiedUserReadingSessions() throws Exception {
+        when(readingSessionsService.getUserReadingSessionsVersion(JOHN_DOE_USER, BOOK_UUID))
+            .thenReturn(new DataVersion("16b1f2c3a4-3.16b1f2c3a4-1", 1546300800000L));
+
+        this.mockMvc.perform(get("/users/{user}/books/{bookUuid}/reading-sessions", JOHN_DOE_USER, BOOK_UUID)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"16b1f2c3a4-3.16b1f2c3a4-1\""))
+            .andExpect(status().isNotModified());
+
+        verify(readingSessionsService, never()).getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID);
+    }
+
+    @Test
+    public void getModifiedUserReadingSessionProgress() throws Exception {
+        String uuid = "1e4014b1-a551-4310-9f30-590c3140b695";
+        when(readingSessionsService.getUserReadingSessionProgressVersion(JOHN_DOE_USER, BOOK_UUID, uuid))
+            .thenReturn(Optional.of(new DataVersion("16b1f2c3a4-3.16b1f2c3a4-1.2019-01-02", -1)));
+        when(readingSessionsService.getUserReadingSessionProgress(JOHN_DOE_USER, BOOK_UUID, uuid))
+            .thenReturn(getTestReadingSessionProgress(uuid + "-one-reading-progress.json"));
+
+        this.mockMvc.perform(get("/users/{user}/books/{bookUuid}/reading-sessions/{uuid}/progress", JOHN_DOE_USER, BOOK_UUID, uuid)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"16b1f2c3a4-3.16b1f2c3a4-1.2019-01-01\""))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"16b1f2c3a4-3.16b1f2c3a4-1.2019-01-02\""))
+            .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
     @Test
     public void getUserCurrentReadingSession() throws Exception {
         ReadingSession readingSession = getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695.json");
@@ -6,7 +6,8 @@ public class BooksException extends Exception {
         BOOK_ALREADY_EXISTS,
         BOOK_NOT_FOUND,
         BOOK_HAS_READING_SESSION,
-        BOOK_INVALID
+        BOOK_INVALID,
+        BOOK_IMPORT_FAILED
     }
 
     private Reason reason;
@@ -1,36 +1,73 @@
 package com.espressoprogrammer.library.service;
 
 import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.BookImportResult;
 import com.espressoprogrammer.library.dto.ReadingSession;
+import com.espressoprogrammer.library.persistence.AsyncBooksDao;
 import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
 import com.espressoprogrammer.library.service.BooksException.Reason;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import static org.springframework.util.StringUtils.isEmpty;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 @Service
 public class BooksService {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    private static final String ISBN10_KEY_PREFIX = "isbn10:";
+    private static final String ISBN13_KEY_PREFIX = "isbn13:";
+
     @Autowired
     private BooksDao booksDao;
 
     @Autowired
     private ReadingSessionsDao readingSessionsDao;
 
+    @Autowired
+    private AsyncBooksDao asyncBooksDao;
+
+    @Value(value = "${service.books.importbatchsize:500}")
+    int importBatchSize = 500;
+
     public List<Book> getUserBooks(String user, String searchText)  {
         logger.debug("Look for books for user {}", user);
 
         return booksDao.getUserBooks(user, searchText);
     }
 
+    public Page<Book> getUserBooks(String user, String searchText, PageRequest pageRequest)  {
+        logger.debug("Look for books for user {} with {}", user, pageRequest);
+
+        return booksDao.getUserBooks(user, searchText, pageRequest);
+    }
+
+    /**
+     * Lazily reads all the user books. The stream must be closed to release the storage.
+     */
+    public Stream<Book> streamUserBooks(String user) {
+        logger.debug("Stream books for user {}", user);
+
+        return booksDao.streamUserBooks(user, null);
+    }
+
     public Book createUserBook(String user, Book book) throws BooksException {
         logger.debug("Add new book for user {}", user);
 
@@ -45,6 +82,46 @@ public class BooksService {
         return booksDao.createUserBook(user, book);
     }
 
+    /**
+     * Imports the books as they are read, validating them and checking for duplicates against the ISBNs of the
+     * user library, read once, and of the books imported before; the accepted books are persisted in batches.
+     * Returns one result per book, in the order they were read. A batch that cannot be persisted fails only its
+     * own books; the books of the other batches are still imported.
+     */
+    public List<BookImportResult> importUserBooks(String user, Iterator<Book> books) {
+        logger.debug("Import books for user {}", user);
+
+        Set<String> isbns = new HashSet<>();
+        try(Stream<Book> userBooks = booksDao.streamUserBooks(user, null)) {
+            userBooks.forEach(b -> addIsbns(isbns, b));
+        }
+
+        List<BookImportResult> results = new ArrayList<>();
+        List<Integer> batchIndexes = new ArrayList<>();
+        List<Book> batch = new ArrayList<>();
+        for(int index = 0; books.hasNext(); index++) {
+            Book book = books.next();
+            if(!isValidBook(book)) {
+                results.add(new BookImportResult(index, null, Reason.BOOK_INVALID.name()));
+            } else if(hasIsbn(isbns, book)) {
+                results.add(new BookImportResult(index, null, Reason.BOOK_ALREADY_EXISTS.name()));
+            } else {
+                addIsbns(isbns, book);
+                results.add(null);
+                batchIndexes.add(index);
+                batch.add(book);
+                if(batch.size() >= importBatchSize) {
+                    importBatch(user, batchIndexes, batch, results, isbns);
+                    batchIndexes = new ArrayList<>();
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        importBatch(user, batchIndexes, batch, results, isbns);
+
+        return results;
+    }
+
     public Book getUserBook(String user, String uuid) throws BooksException {
         logger.debug("Look for book for user {} with uuid {} ", user, uuid);
 
@@ -56,6 +133,17 @@ public class BooksService {
         return optionalBook.get();
     }
 
+    /**
+     * Looks for the book without blocking; the future fails with a {@link BooksException} when it is missing.
+     */
+    public CompletableFuture<Book> getUserBookAsync(String user, String uuid) {
+        logger.debug("Look for book async for user {} with uuid {} ", user, uuid);
+
+        return asyncBooksDao.getUserBook(user, uuid)
+            .thenApply(optionalBook -> optionalBook.orElseThrow(() ->
+                new CompletionException(new BooksException(Reason.BOOK_NOT_FOUND))));
+    }
+
     public String updateUserBook(String user, String uuid, Book book) throws BooksException {
         logger.debug("Update book for user {} with uuid {} ", user, uuid);
 
@@ -78,11 +166,12 @@ public class BooksService {
     public String deleteUserBook(String user, String uuid) throws BooksException {
         logger.debug("Delete book for user {} with uuid {}", user, uuid);
 
-        List<ReadingSession> userReadingSessions = readingSessionsDao.getUserReadingSessions(user, uuid);
-        for(ReadingSession userReadingSession : userReadingSessions) {
-            if(!userReadingSession.getDateReadingSessions().isEmpty()) {
-                throw new BooksException(Reason.BOOK_HAS_READING_SESSION);
-            }
+        boolean hasDateReadingSessions;
+        try(Stream<ReadingSession> userReadingSessions = readingSessionsDao.streamUserReadingSessions(user, uuid)) {
+            hasDateReadingSessions = userReadingSessions.anyMatch(r -> !r.getDateReadingSessions().isEmpty());
+        }
+        if(hasDateReadingSessions) {
+            throw new BooksException(Reason.BOOK_HAS_READING_SESSION);
         }
 
         //TODO - Delete empty reading sessions
@@ -94,6 +183,14 @@ public class BooksService {
         return optionalUuid.get();
     }
 
+    public DataVersion getUserBooksVersion(String user) {
+        return booksDao.getUserBooksVersion(user);
+    }
+
+    public Optional<DataVersion> getUserBookVersion(String user, String uuid) {
+        return booksDao.getUserBookVersion(user, uuid);
+    }
+
     private boolean isValidBook(Book book) {
         return !isEmpty(book.getTitle())
                 && !isEmpty(book.getAuthors())
@@ -102,8 +199,56 @@ public class BooksService {
                 && book.getPages() > 0;
     }
 
+    private void importBatch(String user, List<Integer> batchIndexes, List<Book> batch, List<BookImportResult> results,
+                             Set<String> isbns) {
+        if(batch.isEmpty()) {
+            return;
+        }
+
+        List<Book> persistedBooks;
+        try {
+            persistedBooks = booksDao.createUserBooks(user, batch);
+        } catch(RuntimeException ex) {
+            logger.error("Error on importing a batch of {} books for user {}", batch.size(), user, ex);
+            for(int i = 0; i < batch.size(); i++) {
+                int index = batchIndexes.get(i);
+                results.set(index, new BookImportResult(index, null, Reason.BOOK_IMPORT_FAILED.name()));
+                removeIsbns(isbns, batch.get(i));
+            }
+            return;
+        }
+
+        for(int i = 0; i < persistedBooks.size(); i++) {
+            int index = batchIndexes.get(i);
+            results.set(index, new BookImportResult(index, persistedBooks.get(i).getUuid(), null));
+        }
+    }
+
+    private static boolean hasIsbn(Set<String> isbns, Book book) {
+        return (!isEmpty(book.getIsbn10()) && isbns.contains(ISBN10_KEY_PREFIX + book.getIsbn10()))
+                || (!isEmpty(book.getIsbn13()) && isbns.contains(ISBN13_KEY_PREFIX + book.getIsbn13()));
+    }
+
+    private static void addIsbns(Set<String> isbns, Book book) {
+        if(!isEmpty(book.getIsbn10())) {
+            isbns.add(ISBN10_KEY_PREFIX + book.getIsbn10());
+        }
+        if(!isEmpty(book.getIsbn13())) {
+            isbns.add(ISBN13_KEY_PREFIX + book.getIsbn13());
+        }
+    }
+
+    private static void removeIsbns(Set<String> isbns, Book book) {
+        if(!isEmpty(book.getIsbn10())) {
+            isbns.remove(ISBN10_KEY_PREFIX + book.getIsbn10());
+        }
+        if(!isEmpty(book.getIsbn13())) {
+            isbns.remove(ISBN13_KEY_PREFIX + book.getIsbn13());
+        }
+    }
+
     private boolean hasTheBook(String user, Book book) {
-        List<Book> existingBooks = booksDao.getUserBooks(user);
+        List<Book> existingBooks = booksDao.getUserBooksByIsbn(user, book.getIsbn10(), book.getIsbn13());
         for(Book existingBook : existingBooks) {
             if(areDifferentBooks(book, existingBook) && haveTheSameISBN(book, existingBook)) {
                 return true;
@@ -0,0 +1,42 @@
+package com.espressoprogrammer.library.service;
+
+public class LockStatistics {
+
+    private final long lockCount;
+    private final long contendedCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    LockStatistics(long lockCount, long contendedCount, long totalWaitNanos, long maxWaitNanos) {
+        this.lockCount = lockCount;
+        this.contendedCount = contendedCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public long getLockCount() {
+        return lockCount;
+    }
+
+    public long getContendedCount() {
+        return contendedCount;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public double getAverageWaitNanos() {
+        return lockCount == 0 ? 0.0 : (double) totalWaitNanos / lockCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("locks=%d, contended=%d, totalWaitNanos=%d, maxWaitNanos=%d",
+            lockCount, contendedCount, totalWaitNanos, maxWaitNanos);
+    }
+}
@@ -4,7 +4,12 @@ import com.espressoprogrammer.library.dto.Book;
 import com.espressoprogrammer.library.dto.DateReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSessionProgress;
+import com.espressoprogrammer.library.persistence.AsyncBooksDao;
+import com.espressoprogrammer.library.persistence.AsyncReadingSessionsDao;
 import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.DataVersion;
+import com.espressoprogrammer.library.persistence.Page;
+import com.espressoprogrammer.library.persistence.PageRequest;
 import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +28,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.isEmpty;
 
@@ -40,6 +48,15 @@ public class ReadingSessionsService {
     @Autowired
     private ReadingSessionsDao readingSessionsDao;
 
+    @Autowired
+    private AsyncBooksDao asyncBooksDao;
+
+    @Autowired
+    private AsyncReadingSessionsDao asyncReadingSessionsDao;
+
+    @Autowired
+    private StripedLockManager stripedLockManager;
+
     private DateTimeFormatter isoDateFormatter;
 
     @PostConstruct
@@ -53,6 +70,21 @@ public class ReadingSessionsService {
         return readingSessionsDao.getUserReadingSessions(user, bookUuid);
     }
 
+    /**
+     * Lazily reads all the user reading sessions. The stream must be closed to release the storage.
+     */
+    public Stream<ReadingSession> streamUserReadingSessions(String user) {
+        logger.debug("Stream reading sessions for user {}", user);
+
+        return readingSessionsDao.streamUserReadingSessions(user);
+    }
+
+    public Page<ReadingSession> getUserReadingSessions(String user, String bookUuid, PageRequest pageRequest)  {
+        logger.debug("Look for reading sessions for user {} with {}", user, pageRequest);
+
+        return readingSessionsDao.getUserReadingSessions(user, bookUuid, pageRequest);
+    }
+
     public ReadingSession getUserCurrentReadingSession(String user, String bookUuid) throws BooksException, ReadingSessionsException {
         logger.debug("Look for current reading sessions for user {}", user);
 
@@ -61,11 +93,14 @@ public class ReadingSessionsService {
             throw new BooksException(BooksException.Reason.BOOK_NOT_FOUND);
         }
 
-        List<ReadingSession> userBooks = readingSessionsDao.getUserReadingSessions(user, bookUuid);
-        if(userBooks.isEmpty()) {
+        Optional<ReadingSession> currentReadingSession;
+        try(Stream<ReadingSession> userReadingSessions = readingSessionsDao.streamUserReadingSessions(user, bookUuid)) {
+            currentReadingSession = userReadingSessions.findFirst();
+        }
+        if(!currentReadingSession.isPresent()) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
         }
-        return userBooks.get(0);
+        return currentReadingSession.get();
     }
 
     public ReadingSession createUserReadingSession(String user, String bookUuid, ReadingSession readingSession) throws BooksException, ReadingSessionsException {
@@ -76,8 +111,11 @@ public class ReadingSessionsService {
             throw new BooksException(BooksException.Reason.BOOK_NOT_FOUND);
         }
 
-        List<ReadingSession> userReadingSessions = readingSessionsDao.getUserReadingSessions(user, bookUuid);
-        if(!userReadingSessions.isEmpty()) {
+        boolean hasReadingSession;
+        try(Stream<ReadingSession> userReadingSessions = readingSessionsDao.streamUserReadingSessions(user, bookUuid)) {
+            hasReadingSession = userReadingSessions.findAny().isPresent();
+        }
+        if(hasReadingSession) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_ALREADY_EXISTS);
         }
 
@@ -121,6 +159,10 @@ public class ReadingSessionsService {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.DATE_READING_SESSION_INVALID);
         }
 
+        return stripedLockManager.callWithLock(user, uuid, () -> addDateReadingSession(user, bookUuid, uuid, dateReadingSession));
+    }
+
+    private DateReadingSession addDateReadingSession(String user, String bookUuid, String uuid, DateReadingSession dateReadingSession) throws ReadingSessionsException {
         Optional<ReadingSession> optionalReadingSession = readingSessionsDao.getUserReadingSession(user, bookUuid, uuid);
         if(!optionalReadingSession.isPresent()) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
@@ -171,6 +213,10 @@ public class ReadingSessionsService {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.DATE_READING_SESSION_INVALID);
         }
 
+        return stripedLockManager.callWithLock(user, uuid, () -> replaceDateReadingSession(user, bookUuid, uuid, date, dateReadingSession));
+    }
+
+    private String replaceDateReadingSession(String user, String bookUuid, String uuid, String date, DateReadingSession dateReadingSession) throws ReadingSessionsException {
         Optional<ReadingSession> optionalReadingSession = readingSessionsDao.getUserReadingSession(user, bookUuid, uuid);
         if(!optionalReadingSession.isPresent()) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
@@ -205,6 +251,10 @@ public class ReadingSessionsService {
     public String deleteDateReadingSession(String user, String bookUuid, String uuid, String date) throws ReadingSessionsException {
         logger.debug("Delete date reading session for user {} with uuid {} and date {}", user, uuid, date);
 
+        return stripedLockManager.callWithLock(user, uuid, () -> removeDateReadingSession(user, bookUuid, uuid, date));
+    }
+
+    private String removeDateReadingSession(String user, String bookUuid, String uuid, String date) throws ReadingSessionsException {
         Optional<ReadingSession> optionalReadingSession = readingSessionsDao.getUserReadingSession(user, bookUuid, uuid);
         if(!optionalReadingSession.isPresent()) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
@@ -245,7 +295,33 @@ public class ReadingSessionsService {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
         }
 
-        ReadingSession readingSession = optionalReadingSession.get();
+        return getReadingSessionProgress(optionalBook.get(), optionalReadingSession.get());
+    }
+
+    /**
+     * Reads the book and the reading session concurrently, without blocking the caller. The future fails with
+     * the same {@link BooksException} or {@link ReadingSessionsException} the blocking variant throws.
+     */
+    public CompletableFuture<ReadingSessionProgress> getUserReadingSessionProgressAsync(String user, String bookUuid, String uuid) {
+        logger.debug("Look for reading session progress async for user {} with uuid {} ", user, uuid);
+
+        return asyncBooksDao.getUserBook(user, bookUuid)
+            .thenCombine(asyncReadingSessionsDao.getUserReadingSession(user, bookUuid, uuid), (optionalBook, optionalReadingSession) -> {
+                try {
+                    if(!optionalBook.isPresent()) {
+                        throw new BooksException(BooksException.Reason.BOOK_NOT_FOUND);
+                    }
+                    if(!optionalReadingSession.isPresent()) {
+                        throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
+                    }
+                    return getReadingSessionProgress(optionalBook.get(), optionalReadingSession.get());
+                } catch(BooksException | ReadingSessionsException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+    }
+
+    private ReadingSessionProgress getReadingSessionProgress(Book book, ReadingSession readingSession) throws ReadingSessionsException {
         List<DateReadingSession> dateReadingSessions = new ArrayList<>(readingSession.getDateReadingSessions());
         if(dateReadingSessions.isEmpty()) {
             throw new ReadingSessionsException(ReadingSessionsException.Reason.DATE_READING_SESSION_NOT_FOUND);
@@ -268,8 +344,6 @@ public class ReadingSessionsService {
         BigDecimal averagePagesPerDay = new BigDecimal(lastReadPage)
                 .divide(new BigDecimal(dateReadingSessions.size()), RoundingMode.HALF_UP);
 
-        Book book = optionalBook.get();
-
         BigDecimal readPercentage = new BigDecimal(lastReadPage)
             .multiply(new BigDecimal(100))
             .divide(new BigDecimal(book.getPages()), RoundingMode.HALF_UP);
@@ -302,6 +376,35 @@ public class ReadingSessionsService {
         return readingSessionProgress;
     }
 
+    /**
+     * Version of the reading sessions of a book, which also covers the current reading session of the book.
+     */
+    public DataVersion getUserReadingSessionsVersion(String user, String bookUuid) {
+        DataVersion readingSessionsVersion = readingSessionsDao.getUserReadingSessionsVersion(user);
+        DataVersion bookVersion = booksDao.getUserBookVersion(user, bookUuid)
+            .orElseGet(() -> booksDao.getUserBooksVersion(user));
+        return readingSessionsVersion.combine(bookVersion);
+    }
+
+    public Optional<DataVersion> getUserReadingSessionVersion(String user, String bookUuid, String uuid) {
+        return readingSessionsDao.getUserReadingSessionVersion(user, bookUuid, uuid);
+    }
+
+    /**
+     * Version of the progress of a reading session, which is estimated relative to the current day.
+     */
+    public Optional<DataVersion> getUserReadingSessionProgressVersion(String user, String bookUuid, String uuid) {
+        Optional<DataVersion> readingSessionVersion = readingSessionsDao.getUserReadingSessionVersion(user, bookUuid, uuid);
+        Optional<DataVersion> bookVersion = booksDao.getUserBookVersion(user, bookUuid);
+        if(!readingSessionVersion.isPresent() || !bookVersion.isPresent()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(readingSessionVersion.get()
+            .combine(bookVersion.get())
+            .combine(new DataVersion(LocalDate.now().toString(), -1)));
+    }
+
     private boolean isValidDateReadingSession(DateReadingSession dateReadingSession) {
         return !isEmpty(dateReadingSession.getDate())
                 && Pattern.matches(ISO_DATE_REGEXP, dateReadingSession.getDate())
@@ -0,0 +1,86 @@
+package com.espressoprogrammer.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes read-modify-write operations on the same user item with a fixed set of lock stripes.
+ * <p>
+ * Operations on different items only wait for each other when their keys share a stripe, so the number
+ * of stripes bounds both the memory used and the chance of false contention.
+ */
+@Component
+public class StripedLockManager {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Value(value = "${service.locks.stripes:1024}")
+    int stripeCount = 1024;
+
+    @Value(value = "${service.locks.slowwaitmillis:100}")
+    long slowWaitMillis = 100;
+
+    private ReentrantLock[] stripes;
+
+    private final LongAdder lockCount = new LongAdder();
+    private final LongAdder contendedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        stripes = new ReentrantLock[stripeCount];
+        for(int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <R, E extends Exception> R callWithLock(String user, String uuid, LockedAction<R, E> action) throws E {
+        ReentrantLock lock = stripes[getStripe(user, uuid)];
+        lock(lock, user, uuid);
+        try {
+            return action.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LockStatistics getStatistics() {
+        return new LockStatistics(lockCount.sum(), contendedCount.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    int getStripe(String user, String uuid) {
+        int hash = 31 * user.hashCode() + uuid.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % stripes.length;
+    }
+
+    private void lock(ReentrantLock lock, String user, String uuid) {
+        lockCount.increment();
+        if(lock.tryLock()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        long waitNanos = System.nanoTime() - start;
+        contendedCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        if(waitNanos > slowWaitMillis * 1_000_000) {
+            logger.warn("Waited {} ms for the lock of user {} item {}", waitNanos / 1_000_000, user, uuid);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LockedAction<R, E extends Exception> {
+        R call() throws E;
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.espressoprogrammer.library.service;
 
 import com.espressoprogrammer.library.dto.Book;
+import com.espressoprogrammer.library.dto.BookImportResult;
+import com.espressoprogrammer.library.persistence.AsyncBooksDao;
 import com.espressoprogrammer.library.persistence.BooksDao;
 import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
 import com.espressoprogrammer.library.service.BooksException.Reason;
@@ -16,11 +18,20 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestReadingSession;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -34,6 +45,9 @@ public class BooksServiceTest {
     @MockBean
     private ReadingSessionsDao readingSessionsDao;
 
+    @MockBean
+    private AsyncBooksDao asyncBooksDao;
+
     @Autowired
     private BooksService booksService;
 
@@ -49,9 +63,10 @@ public class BooksServiceTest {
 
     @Test
     public void createUserBook() throws Exception {
-        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Collections.emptyList());
-
         Book bookRequest = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695-request.json");
+        when(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, bookRequest.getIsbn10(), bookRequest.getIsbn13()))
+            .thenReturn(Collections.emptyList());
+
         Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
         when(booksDao.createUserBook(JOHN_DOE_USER, bookRequest)).thenReturn(book);
 
@@ -209,9 +224,10 @@ public class BooksServiceTest {
     @Test
     public void createExistingUserBook() throws Exception {
         Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
-        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(book));
-
         Book bookRequest = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695-request.json");
+        when(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, bookRequest.getIsbn10(), bookRequest.getIsbn13()))
+            .thenReturn(Arrays.asList(book));
+
         try {
             booksService.createUserBook(JOHN_DOE_USER, bookRequest);
             fail("It should fail with " + Reason.BOOK_ALREADY_EXISTS);
@@ -222,6 +238,78 @@ public class BooksServiceTest {
         }
     }
 
+    @Test
+    public void importUserBooks() throws Exception {
+        Book existingBook = getBook("1");
+        when(booksDao.streamUserBooks(JOHN_DOE_USER, null)).thenReturn(Stream.of(existingBook));
+        when(booksDao.createUserBooks(eq(JOHN_DOE_USER), anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(1);
+            return books.stream()
+                .map(b -> b.copy("uuid-" + b.getTitle(), b.getIsbn10(), b.getIsbn13(), b.getTitle(), b.getAuthors(), b.getImage(), b.getPages()))
+                .collect(toList());
+        });
+
+        Book invalidBook = getBook("4").copy(null, "isbn10-4", "isbn13-4", "Title 4", Collections.emptyList(), null, 100);
+        List<BookImportResult> results = booksService.importUserBooks(JOHN_DOE_USER,
+            Arrays.asList(getBook("2"), existingBook, getBook("3"), getBook("2"), invalidBook).iterator());
+
+        assertThat(results).containsExactly(
+            new BookImportResult(0, "uuid-Title 2", null),
+            new BookImportResult(1, null, Reason.BOOK_ALREADY_EXISTS.name()),
+            new BookImportResult(2, "uuid-Title 3", null),
+            new BookImportResult(3, null, Reason.BOOK_ALREADY_EXISTS.name()),
+            new BookImportResult(4, null, Reason.BOOK_INVALID.name()));
+        verify(booksDao).createUserBooks(JOHN_DOE_USER, Arrays.asList(getBook("2"), getBook("3")));
+    }
+
+    @Test
+    public void importUserBooksInBatches() throws Exception {
+        when(booksDao.streamUserBooks(JOHN_DOE_USER, null)).thenReturn(Stream.empty());
+        when(booksDao.createUserBooks(eq(JOHN_DOE_USER), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        int importBatchSize = booksService.importBatchSize;
+        booksService.importBatchSize = 2;
+        try {
+            List<BookImportResult> results = booksService.importUserBooks(JOHN_DOE_USER,
+                Arrays.asList(getBook("1"), getBook("2"), getBook("3"), getBook("4"), getBook("5")).iterator());
+
+            assertThat(results).hasSize(5).allMatch(r -> r.getError() == null);
+            verify(booksDao, times(3)).createUserBooks(eq(JOHN_DOE_USER), anyList());
+        } finally {
+            booksService.importBatchSize = importBatchSize;
+        }
+    }
+
+    @Test
+    public void keepImportedBooksWhenALaterBatchFails() throws Exception {
+        when(booksDao.streamUserBooks(JOHN_DOE_USER, null)).thenReturn(Stream.empty());
+        when(booksDao.createUserBooks(eq(JOHN_DOE_USER), anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(1);
+            if(books.contains(getBook("3"))) {
+                throw new RuntimeException("Disk full");
+            }
+            return books.stream()
+                .map(b -> b.copy("uuid-" + b.getTitle(), b.getIsbn10(), b.getIsbn13(), b.getTitle(), b.getAuthors(), b.getImage(), b.getPages()))
+                .collect(toList());
+        });
+
+        int importBatchSize = booksService.importBatchSize;
+        booksService.importBatchSize = 2;
+        try {
+            List<BookImportResult> results = booksService.importUserBooks(JOHN_DOE_USER,
+                Arrays.asList(getBook("1"), getBook("2"), getBook("3"), getBook("4"), getBook("5")).iterator());
+
+            assertThat(results).containsExactly(
+                new BookImportResult(0, "uuid-Title 1", null),
+                new BookImportResult(1, "uuid-Title 2", null),
+                new BookImportResult(2, null, Reason.BOOK_IMPORT_FAILED.name()),
+                new BookImportResult(3, null, Reason.BOOK_IMPORT_FAILED.name()),
+                new BookImportResult(4, "uuid-Title 5", null));
+        } finally {
+            booksService.importBatchSize = importBatchSize;
+        }
+    }
+
     @Test
     public void getUserBook() throws Exception {
         String uuid = "1e4014b1-a551-4310-9f30-590c3140b695";
@@ -232,6 +320,29 @@ public class BooksServiceTest {
         assertThat(actualBook).isEqualTo(book);
     }
 
+    @Test
+    public void getUserBookAsync() throws Exception {
+        String uuid = "1e4014b1-a551-4310-9f30-590c3140b695";
+        Book book = getTestBook(uuid + ".json");
+        when(asyncBooksDao.getUserBook(JOHN_DOE_USER, uuid)).thenReturn(CompletableFuture.completedFuture(Optional.of(book)));
+
+        assertThat(booksService.getUserBookAsync(JOHN_DOE_USER, uuid).get(10, TimeUnit.SECONDS)).isEqualTo(book);
+    }
+
+    @Test
+    public void getMissingUserBookAsync() throws Exception {
+        String uuid = "missing-uuid-1";
+        when(asyncBooksDao.getUserBook(JOHN_DOE_USER, uuid)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        try {
+            booksService.getUserBookAsync(JOHN_DOE_USER, uuid).get(10, TimeUnit.SECONDS);
+            fail("It should fail with " + Reason.BOOK_NOT_FOUND);
+        } catch(ExecutionException ex) {
+            assertThat(ex.getCause()).isInstanceOf(BooksException.class);
+            assertThat(((BooksException) ex.getCause()).getReason()).isEqualTo(Reason.BOOK_NOT_FOUND);
+        }
+    }
+
     @Test
     public void getMissingUserBook() throws Exception {
         String uuid = "missing-uuid-1";
@@ -417,7 +528,8 @@ public class BooksServiceTest {
         Book theOtherBook = getTestBook("f2e10e37-b0fc-4eff-93aa-3dff682cc388.json");
         Book updateBook = getTestBook("f2e10e37-b0fc-4eff-93aa-3dff682cc388.json");
         Book updateBookRequest = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695-update-existing-book.json");
-        when(booksDao.getUserBooks(JOHN_DOE_USER)).thenReturn(Arrays.asList(updateBook, theOtherBook));
+        when(booksDao.getUserBooksByIsbn(JOHN_DOE_USER, updateBookRequest.getIsbn10(), updateBookRequest.getIsbn13()))
+            .thenReturn(Arrays.asList(updateBook, theOtherBook));
 
         try {
             booksService.updateUserBook(JOHN_DOE_USER, updateBook.getUuid(), updateBookRequest);
@@ -449,8 +561,8 @@ public class BooksServiceTest {
     public void deleteUserBook() throws Exception {
         Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
         when(booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid())).thenReturn(Optional.of(book.getUuid()));
-        when(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, book.getUuid()))
-                .thenReturn(Arrays.asList(getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695-delete-date-reading-session.json")));
+        when(readingSessionsDao.streamUserReadingSessions(JOHN_DOE_USER, book.getUuid()))
+                .thenReturn(Stream.of(getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695-delete-date-reading-session.json")));
 
         String actualBookUuid = booksService.deleteUserBook(JOHN_DOE_USER, book.getUuid());
         assertThat(actualBookUuid).isEqualTo(book.getUuid());
@@ -475,8 +587,8 @@ public class BooksServiceTest {
     public void deleteUserBookWithReadingSessions() throws Exception {
         Book book = getTestBook("1e4014b1-a551-4310-9f30-590c3140b695.json");
         when(booksDao.deleteUserBook(JOHN_DOE_USER, book.getUuid())).thenReturn(Optional.of(book.getUuid()));
-        when(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, book.getUuid()))
-                .thenReturn(Arrays.asList(getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695.json")));
+        when(readingSessionsDao.streamUserReadingSessions(JOHN_DOE_USER, book.getUuid()))
+                .thenReturn(Stream.of(getTestReadingSession("1e4014b1-a551-4310-9f30-590c3140b695.json")));
 
         try {
             booksService.deleteUserBook(JOHN_DOE_USER, book.getUuid());
@@ -488,4 +600,14 @@ public class BooksServiceTest {
         }
     }
 
+    private static Book getBook(String suffix) {
+        return new Book(null,
+            "isbn10-" + suffix,
+            "isbn13-" + suffix,
+            "Title " + suffix,
+            Arrays.asList("First" + suffix + " Last" + suffix),
+            "image-" + suffix,
+            100);
+    }
+
 }
@@ -4,7 +4,10 @@ import com.espressoprogrammer.library.dto.Book;
 import com.espressoprogrammer.library.dto.DateReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSession;
 import com.espressoprogrammer.library.dto.ReadingSessionProgress;
+import com.espressoprogrammer.library.persistence.AsyncBooksDao;
+import com.espressoprogrammer.library.persistence.AsyncReadingSessionsDao;
 import com.espressoprogrammer.library.persistence.BooksDao;
+import com.espressoprogrammer.library.persistence.DataVersion;
 import com.espressoprogrammer.library.persistence.ReadingSessionsDao;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,10 +18,15 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestBook;
 import static com.espressoprogrammer.library.util.LibraryTestUtil.getTestDateReadingSession;
@@ -41,9 +49,34 @@ public class ReadingSessionsServiceTest {
     @MockBean
     private ReadingSessionsDao readingSessionsDao;
 
+    @MockBean
+    private AsyncBooksDao asyncBooksDao;
+
+    @MockBean
+    private AsyncReadingSessionsDao asyncReadingSessionsDao;
+
     @Autowired
     private ReadingSessionsService readingSessionsService;
 
+    @Test
+    public void getUserReadingSessionProgressVersion() throws Exception {
+        when(readingSessionsDao.getUserReadingSessionVersion(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID))
+            .thenReturn(Optional.of(new DataVersion("rs-2", 1546300800000L)));
+        when(booksDao.getUserBookVersion(JOHN_DOE_USER, BOOK_UUID))
+            .thenReturn(Optional.of(new DataVersion("b-1", 1546300900000L)));
+
+        Optional<DataVersion> version = readingSessionsService.getUserReadingSessionProgressVersion(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID);
+        assertThat(version).contains(new DataVersion("rs-2.b-1." + LocalDate.now(), -1));
+    }
+
+    @Test
+    public void getMissingUserReadingSessionProgressVersion() throws Exception {
+        when(readingSessionsDao.getUserReadingSessionVersion(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID))
+            .thenReturn(Optional.empty());
+
+        assertThat(readingSessionsService.getUserReadingSessionProgressVersion(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID)).isEmpty();
+    }
+
     @Test
     public void getUserReadingSessions() throws Exception {
         List<ReadingSession> readingSessions = new ArrayList<>();
@@ -67,6 +100,25 @@ public class ReadingSessionsServiceTest {
         assertThat(actualReadingSessions).isEqualTo(readingSessions);
     }
 
+    @Test
+    public void getFirstUserCurrentReadingSession() throws Exception {
+        Book book = getTestBook(BOOK_UUID + ".json");
+        when(booksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Optional.of(book));
+
+        ReadingSession readingSession = getTestReadingSession(READING_SESSION_UUID + ".json");
+        AtomicInteger decodedCount = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        when(readingSessionsDao.streamUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).thenReturn(
+            Stream.generate(() -> readingSession)
+                .peek(r -> decodedCount.incrementAndGet())
+                .onClose(() -> closed.set(true)));
+
+        ReadingSession actualReadingSession = readingSessionsService.getUserCurrentReadingSession(JOHN_DOE_USER, BOOK_UUID);
+        assertThat(actualReadingSession).isEqualTo(readingSession);
+        assertThat(decodedCount.get()).isEqualTo(1);
+        assertThat(closed.get()).isTrue();
+    }
+
     @Test
     public void getMissingUserCurrentReadingSession() throws Exception {
         when(booksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Optional.empty());
@@ -104,7 +156,7 @@ public class ReadingSessionsServiceTest {
         Book book = getTestBook(BOOK_UUID + ".json");
         when(booksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Optional.of(book));
 
-        when(readingSessionsDao.getUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Arrays.asList(getTestReadingSession(READING_SESSION_UUID + ".json")));
+        when(readingSessionsDao.streamUserReadingSessions(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Stream.of(getTestReadingSession(READING_SESSION_UUID + ".json")));
 
         try {
             readingSessionsService.createUserReadingSession(JOHN_DOE_USER, BOOK_UUID, getTestReadingSession(READING_SESSION_UUID + "-request.json"));
@@ -459,6 +511,39 @@ public class ReadingSessionsServiceTest {
         assertThat(actualReadingSessionProgress.getEstimatedFinishDate()).isGreaterThanOrEqualTo(expectedReadingSessionProgress.getEstimatedFinishDate());
     }
 
+    @Test
+    public void getUserReadingSessionProgressAsync() throws Exception {
+        Book book = getTestBook(BOOK_UUID + ".json");
+        ReadingSession readingSession = getTestReadingSession(READING_SESSION_UUID + "-one-reading.json");
+        when(booksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(Optional.of(book));
+        when(readingSessionsDao.getUserReadingSession(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID)).thenReturn(Optional.of(readingSession));
+        when(asyncBooksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(CompletableFuture.completedFuture(Optional.of(book)));
+        when(asyncReadingSessionsDao.getUserReadingSession(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(readingSession)));
+
+        ReadingSessionProgress actualReadingSessionProgress = readingSessionsService
+            .getUserReadingSessionProgressAsync(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID)
+            .get(10, TimeUnit.SECONDS);
+        assertThat(actualReadingSessionProgress)
+            .isEqualTo(readingSessionsService.getUserReadingSessionProgress(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID));
+    }
+
+    @Test
+    public void getUserReadingSessionProgressAsyncOfMissingBook() throws Exception {
+        when(asyncBooksDao.getUserBook(JOHN_DOE_USER, BOOK_UUID)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(asyncReadingSessionsDao.getUserReadingSession(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID))
+            .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        try {
+            readingSessionsService.getUserReadingSessionProgressAsync(JOHN_DOE_USER, BOOK_UUID, READING_SESSION_UUID)
+                .get(10, TimeUnit.SECONDS);
+            fail("It should fail with " + BooksException.Reason.BOOK_NOT_FOUND);
+        } catch(ExecutionException ex) {
+            assertThat(ex.getCause()).isInstanceOf(BooksException.class);
+            assertThat(((BooksException) ex.getCause()).getReason()).isEqualTo(BooksException.Reason.BOOK_NOT_FOUND);
+        }
+    }
+
     @Test
     public void getUserReadingSessionProgressWithTwoConsecutiveReadings() throws Exception {
         Book book = getTestBook(BOOK_UUID + ".json");
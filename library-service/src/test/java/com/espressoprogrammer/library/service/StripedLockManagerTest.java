@@ -0,0 +1,109 @@
+package com.espressoprogrammer.library.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedLockManagerTest {
+    private static final String JOHN_DOE_USER = "johndoe";
+
+    private StripedLockManager stripedLockManager;
+    private ExecutorService executor;
+    private int counter;
+
+    @Before
+    public void init() {
+        stripedLockManager = new StripedLockManager();
+        stripedLockManager.init();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void clear() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void serializeSameItem() throws Exception {
+        List<Future<?>> updates = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            updates.add(executor.submit(() -> {
+                for(int j = 0; j < 1000; j++) {
+                    stripedLockManager.callWithLock(JOHN_DOE_USER, "uuid-1", () -> counter++);
+                }
+            }));
+        }
+        for(Future<?> update : updates) {
+            update.get();
+        }
+
+        assertThat(counter).isEqualTo(8000);
+        assertThat(stripedLockManager.getStatistics().getLockCount()).isEqualTo(8000);
+    }
+
+    @Test
+    public void doNotWaitForOtherItem() throws Exception {
+        String otherUuid = getUuidOnOtherStripe("uuid-1");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> stripedLockManager.callWithLock(JOHN_DOE_USER, "uuid-1", () -> {
+            locked.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            Future<String> other = executor.submit(() -> stripedLockManager.callWithLock(JOHN_DOE_USER, otherUuid, () -> otherUuid));
+            assertThat(other.get(1, TimeUnit.SECONDS)).isEqualTo(otherUuid);
+            assertThat(stripedLockManager.getStatistics().getContendedCount()).isZero();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void recordLockWaitTime() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        executor.submit(() -> stripedLockManager.callWithLock(JOHN_DOE_USER, "uuid-1", () -> {
+            locked.countDown();
+            Thread.sleep(50);
+            return null;
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        stripedLockManager.callWithLock(JOHN_DOE_USER, "uuid-1", () -> null);
+
+        LockStatistics statistics = stripedLockManager.getStatistics();
+        assertThat(statistics.getLockCount()).isEqualTo(2);
+        assertThat(statistics.getContendedCount()).isEqualTo(1);
+        assertThat(statistics.getMaxWaitNanos()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test(expected = ReadingSessionsException.class)
+    public void propagateActionException() throws Exception {
+        stripedLockManager.callWithLock(JOHN_DOE_USER, "uuid-1", () -> {
+            throw new ReadingSessionsException(ReadingSessionsException.Reason.READING_SESSION_NOT_FOUND);
+        });
+    }
+
+    private String getUuidOnOtherStripe(String uuid) {
+        int stripe = stripedLockManager.getStripe(JOHN_DOE_USER, uuid);
+        for(int i = 2; ; i++) {
+            String otherUuid = "uuid-" + i;
+            if(stripedLockManager.getStripe(JOHN_DOE_USER, otherUuid) != stripe) {
+                return otherUuid;
+            }
+        }
+    }
+
+}